@@ -0,0 +1,30 @@
+package display;
+
+import java.util.List;
+
+/** A window of an expanded program: rows offset+1 .. offset+instructions.size() of total, without lineage. */
+public final class ExpandPageDTO {
+    private final String programName;
+    private final int degree;
+    private final int maxDegree;
+    private final int offset;
+    private final int total;
+    private final List<InstructionDTO> instructions;
+
+    public ExpandPageDTO(String programName, int degree, int maxDegree,
+                         int offset, int total, List<InstructionDTO> instructions) {
+        this.programName = programName;
+        this.degree = degree;
+        this.maxDegree = maxDegree;
+        this.offset = offset;
+        this.total = total;
+        this.instructions = List.copyOf(instructions);
+    }
+
+    public String getProgramName() { return programName; }
+    public int getDegree() { return degree; }
+    public int getMaxDegree() { return maxDegree; }
+    public int getOffset() { return offset; }
+    public int getTotal() { return total; }
+    public List<InstructionDTO> getInstructions() { return instructions; }
+}
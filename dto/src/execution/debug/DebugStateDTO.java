@@ -1,28 +1,49 @@
 package execution.debug;
 
 import execution.VarValueDTO;
-import java.util.List;
+import types.VarOptionsDTO;
 
+import java.util.List;
 
+/**
+ * Machine state of a debug session. A keyframe carries every written variable (y, x ascending, z ascending);
+ * the state of a delta step carries none of them, its changes travel in {@link DebugStepDTO#getChanged()}.
+ */
 public final class DebugStateDTO {
     private final int degree;
     private final int pc;
     private final long cyclesSoFar;
     private final List<VarValueDTO> vars;
+    private final boolean terminated;
+    private final boolean keyframe;
 
     public DebugStateDTO(int degree, int pc, long cyclesSoFar, List<VarValueDTO> vars, boolean terminated) {
+        this(degree, pc, cyclesSoFar, vars, terminated, true);
+    }
+
+    public DebugStateDTO(int degree, int pc, long cyclesSoFar, List<VarValueDTO> vars, boolean terminated, boolean keyframe) {
         this.degree = degree;
         this.pc = pc;
         this.cyclesSoFar = cyclesSoFar;
         this.vars = (vars == null) ? List.of() : List.copyOf(vars);
+        this.terminated = terminated;
+        this.keyframe = keyframe;
     }
 
+    public int getDegree() { return degree; }
     public int getPc() { return pc; }
     public long getCyclesSoFar() { return cyclesSoFar; }
     public List<VarValueDTO> getVars() { return vars; }
+    public boolean isTerminated() { return terminated; }
+    public boolean isKeyframe() { return keyframe; }
     public long getY()
     {
-        return vars.getFirst().getValue();
+        for (VarValueDTO vv : vars) {
+            if (vv.getVar().getVariable() == VarOptionsDTO.y) {
+                return vv.getValue();
+            }
+        }
+        return 0L;
     }
 
 }
@@ -0,0 +1,94 @@
+package execution.debug;
+
+import execution.VarValueDTO;
+import types.VarOptionsDTO;
+import types.VarRefDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Full variable state of a debug session, rebuilt from the steps it is fed.
+ * A delta step only updates the variables it changed, a keyframe replaces everything,
+ * so following a session costs O(1) per step; the full DTO is built only when {@link #current()} is asked for.
+ */
+public final class DebugStateTracker {
+
+    // (kind rank << 32 | index) -> value; the key order is the display order y, x ascending, z ascending
+    private final Map<Long, Long> values = new TreeMap<>();
+    private int degree;
+    private int pc;
+    private long cyclesSoFar;
+    private boolean terminated;
+
+    /** Starts from a full state (a keyframe or anything {@link #current()} returned). */
+    public DebugStateTracker(DebugStateDTO state) {
+        reset(state);
+    }
+
+    public synchronized DebugStateTracker apply(DebugStepDTO step) {
+        if (step == null || step.getNewState() == null) {
+            return this;
+        }
+        DebugStateDTO state = step.getNewState();
+        if (state.isKeyframe()) {
+            reset(state);
+            return this;
+        }
+        for (VarValueDTO vv : step.getChanged()) {
+            values.put(keyOf(vv.getVar()), vv.getValue());
+        }
+        degree = state.getDegree();
+        pc = state.getPc();
+        cyclesSoFar = state.getCyclesSoFar();
+        terminated = state.isTerminated();
+        return this;
+    }
+
+    /** The tracked state as a keyframe. */
+    public synchronized DebugStateDTO current() {
+        List<VarValueDTO> vars = new ArrayList<>(values.size());
+        for (Map.Entry<Long, Long> e : values.entrySet()) {
+            vars.add(new VarValueDTO(refOf(e.getKey()), e.getValue()));
+        }
+        return new DebugStateDTO(degree, pc, cyclesSoFar, vars, terminated, true);
+    }
+
+    public synchronized int getPc() { return pc; }
+    public synchronized long getCyclesSoFar() { return cyclesSoFar; }
+
+    /** Replaces everything with a full state. */
+    public synchronized void reset(DebugStateDTO state) {
+        values.clear();
+        if (state == null) {
+            return;
+        }
+        for (VarValueDTO vv : state.getVars()) {
+            values.put(keyOf(vv.getVar()), vv.getValue());
+        }
+        degree = state.getDegree();
+        pc = state.getPc();
+        cyclesSoFar = state.getCyclesSoFar();
+        terminated = state.isTerminated();
+    }
+
+    private static long keyOf(VarRefDTO ref) {
+        long rank = switch (ref.getVariable()) {
+            case y -> 0;
+            case x -> 1;
+            case z -> 2;
+        };
+        return (rank << 32) | ref.getIndex();
+    }
+
+    private static VarRefDTO refOf(long key) {
+        VarOptionsDTO kind = switch ((int) (key >>> 32)) {
+            case 0 -> VarOptionsDTO.y;
+            case 1 -> VarOptionsDTO.x;
+            default -> VarOptionsDTO.z;
+        };
+        return new VarRefDTO(kind, (int) key);
+    }
+}
@@ -1,18 +1,29 @@
 package execution.debug;
 
+import execution.VarValueDTO;
+
 import java.util.List;
 
 /**
  * DTO representing a single step in the debugging process of a program execution.
- * It contains information about the executed line, cycles delta, new state after execution,
- * and any deltas that occurred during this step.
+ * It contains the executed line, the cycles it cost, the state after it and the variables it changed.
+ * Every few steps (and on the last one) the new state is a keyframe holding all variables;
+ * otherwise only {@link #getChanged()} tells how the variables moved, see {@link DebugStateTracker}.
  */
 public final class DebugStepDTO {
+    private final int executedLine;
+    private final long cyclesDelta;
     private final DebugStateDTO newState;
+    private final List<VarValueDTO> changed;
 
-    public DebugStepDTO(int executedLine, long cyclesDelta, DebugStateDTO newState, List<DebugStepDTO> deltas) {
+    public DebugStepDTO(int executedLine, long cyclesDelta, DebugStateDTO newState, List<VarValueDTO> changed) {
+        this.executedLine = executedLine;
+        this.cyclesDelta = cyclesDelta;
         this.newState = newState;
-        List<DebugStepDTO> deltas1 = (deltas == null) ? List.of() : List.copyOf(deltas);
+        this.changed = (changed == null) ? List.of() : List.copyOf(changed);
     }
+    public int getExecutedLine() { return executedLine; }
+    public long getCyclesDelta() { return cyclesDelta; }
     public DebugStateDTO getNewState() { return newState; }
+    public List<VarValueDTO> getChanged() { return changed; }
 }
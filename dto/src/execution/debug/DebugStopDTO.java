@@ -0,0 +1,37 @@
+package execution.debug;
+
+import types.VarRefDTO;
+
+/**
+ * Where a debug run that went on without per-step DTOs came to a stop.
+ * The state is a keyframe; {@code watch} is the variable that stopped it when the reason is WATCH.
+ */
+public final class DebugStopDTO {
+
+    public enum Reason {
+        /** The next instruction to execute is a breakpoint. */
+        BREAKPOINT,
+        /** The last step changed a watched variable. */
+        WATCH,
+        /** The next step would cost more cycles than were granted; it was not applied. */
+        BUDGET,
+        /** The program exited. */
+        EXIT,
+        /** The running thread was interrupted. */
+        INTERRUPTED
+    }
+
+    private final DebugStateDTO state;
+    private final Reason reason;
+    private final VarRefDTO watch;
+
+    public DebugStopDTO(DebugStateDTO state, Reason reason, VarRefDTO watch) {
+        this.state = state;
+        this.reason = reason;
+        this.watch = watch;
+    }
+
+    public DebugStateDTO getState() { return state; }
+    public Reason getReason() { return reason; }
+    public VarRefDTO getWatch() { return watch; }
+}
@@ -0,0 +1,20 @@
+package execution.debug;
+
+import types.VarRefDTO;
+
+/**
+ * A variable watched while a debug session runs: the run stops right after a step changes it,
+ * or, when {@code equals} is set, right after a step makes it equal to that value.
+ */
+public final class DebugWatchDTO {
+    private final VarRefDTO var;
+    private final Long equals;
+
+    public DebugWatchDTO(VarRefDTO var, Long equals) {
+        this.var = var;
+        this.equals = equals;
+    }
+
+    public VarRefDTO getVar() { return var; }
+    public Long getEquals() { return equals; }
+}
@@ -5,13 +5,28 @@ import execution.ExecutionDTO;
 import execution.ExecutionRequestDTO;
 import execution.debug.DebugStateDTO;
 import execution.debug.DebugStepDTO;
+import execution.debug.DebugStopDTO;
+import execution.debug.DebugWatchDTO;
+
+import java.util.List;
+import java.util.Set;
 
 public interface DebugAPI {
     DebugStateDTO init(ExecutionRequestDTO req);
     DebugStepDTO step();
     boolean isTerminated();
+    /** Rewinds to {@code snapshot}, which has to be a keyframe (delta steps carry no variables). */
     void restore(DebugStateDTO snapshot);
 
+    /**
+     * Runs at engine speed (no DTO per step) until the next instruction is one of {@code breakpoints}
+     * (not counting the one it starts on), a step changes one of {@code watches}, the next step would
+     * take the cycles of this call past {@code maxCycles} (that step is undone) or the program exits.
+     */
+    default DebugStopDTO runUntil(Set<Integer> breakpoints, List<DebugWatchDTO> watches, long maxCycles) {
+        throw new UnsupportedOperationException("runUntil is not supported by this DebugAPI");
+    }
+
     default void stop() {}
     default void resume() {}
 
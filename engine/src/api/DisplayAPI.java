@@ -2,16 +2,47 @@ package api;
 
 import display.DisplayDTO;
 import display.ExpandDTO;
+import display.ExpandPageDTO;
+import display.ExpandedInstructionDTO;
+import display.InstructionDTO;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public interface DisplayAPI {
     DisplayDTO getDisplay();
     ExpandDTO expand(int degree);
+
+    /** Up to {@code limit} rows of the expansion starting after row {@code offset}, without their lineage. */
+    default ExpandPageDTO expandPage(int degree, int offset, int limit) {
+        ExpandDTO full = expand(degree);
+        List<ExpandedInstructionDTO> rows = full.getInstructions();
+        int from = Math.min(Math.max(0, offset), rows.size());
+        int to = Math.min(rows.size(), from + Math.max(0, limit));
+        List<InstructionDTO> page = new ArrayList<>(to - from);
+        for (ExpandedInstructionDTO row : rows.subList(from, to)) {
+            page.add(row.getInstruction());
+        }
+        return new ExpandPageDTO(full.getProgramName(), degree, full.getMaxDegree(), from, rows.size(), page);
+    }
+
+    /** The instructions expanded row {@code number} came from, nearest first (empty for an unknown row). */
+    default List<InstructionDTO> lineage(int degree, int number) {
+        List<ExpandedInstructionDTO> rows = expand(degree).getInstructions();
+        return (number >= 1 && number <= rows.size())
+                ? rows.get(number - 1).getCreatedByChain()
+                : Collections.emptyList();
+    }
     ExecutionAPI execution();
     ExecutionAPI executionForDegree(int degree);
+
+    /** Like executionForDegree, but may run the program as a generated JVM class. */
+    default ExecutionAPI compiledExecutionForDegree(int degree) {
+        return executionForDegree(degree);
+    }
     void saveState(Path path);
     DisplayAPI loadState(Path path);
     DebugAPI debugForDegree(int degree);
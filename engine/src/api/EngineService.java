@@ -1,9 +1,12 @@
 package api;
 
 import structure.program.SProgram;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 
 public interface EngineService {
     SProgram loadFromXml(Path xmlPath) throws Exception;
+
+    SProgram loadFromXml(InputStream xml) throws Exception;
 }
@@ -6,4 +6,14 @@ import execution.ExecutionRequestDTO;
 public interface ExecutionAPI {
     int getMaxDegree();
     ExecutionDTO execute(ExecutionRequestDTO request);
+
+    /** Starts a run that is driven chunk by chunk (see {@link RunSession}). */
+    default RunSession startRun(ExecutionRequestDTO request) {
+        throw new UnsupportedOperationException("startRun is not supported by this ExecutionAPI");
+    }
+
+    /** A new debug session over the same prepared (expanded) program. */
+    default DebugAPI startDebug() {
+        throw new UnsupportedOperationException("startDebug is not supported by this ExecutionAPI");
+    }
 }
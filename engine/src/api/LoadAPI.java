@@ -3,8 +3,12 @@ package api;
 import exceptions.InvalidFileExtensionException;
 import exceptions.UndefinedLabelException;
 
+import java.io.InputStream;
 import java.nio.file.Path;
 
 public interface LoadAPI {
     DisplayAPI loadFromXml(Path xmlPath) throws Exception;
+
+    /** Same as {@link #loadFromXml(Path)} for an already opened document (e.g. an uploaded part); no extension check. */
+    DisplayAPI loadFromXml(InputStream xml) throws Exception;
 }
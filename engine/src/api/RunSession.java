@@ -0,0 +1,33 @@
+package api;
+
+import execution.ExecutionDTO;
+
+/**
+ * A run that is advanced in bounded chunks, so the caller can charge once per chunk
+ * instead of once per instruction. Only {@link #result()} builds DTOs.
+ * Between two calls the session is a complete continuation (pc, registers, cycles): function calls
+ * finish inside the instruction that makes them, so no per-thread call stack is left behind and the
+ * next {@link #advance} may come from another thread, as long as calls do not overlap.
+ */
+public interface RunSession {
+
+    /**
+     * Executes instructions until the program ends or the next instruction would take the cycles
+     * of this call past {@code chunkCycles} or past {@code budget}. An instruction that is bigger than
+     * a whole chunk still runs on its own, as long as it fits the budget; one that does not fit the
+     * budget is not executed (its effects are rolled back) and {@link #isBudgetExhausted()} turns true.
+     *
+     * @return cycles consumed by this call
+     */
+    long advance(long chunkCycles, long budget);
+
+    boolean isFinished();
+
+    /** True when the last advance stopped because the next instruction did not fit its budget. */
+    boolean isBudgetExhausted();
+
+    long getCyclesSoFar();
+
+    /** y, cycles so far and the written variables (y, x ascending, z ascending) of the current state. */
+    ExecutionDTO result();
+}
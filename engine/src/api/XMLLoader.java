@@ -6,14 +6,61 @@ import structure.program.SProgram;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Reads S programs with one process-wide JAXBContext (creating it is by far the most expensive part
+ * of an upload). Unmarshallers are not thread-safe, so each parse borrows one from a small pool.
+ */
 public class XMLLoader implements EngineService {
 
+    private static final int MAX_POOLED_UNMARSHALLERS = 16;
+    private static final Queue<Unmarshaller> UNMARSHALLERS = new ConcurrentLinkedQueue<>();
+
+    private static final class ContextHolder {
+        static final JAXBContext CONTEXT = createContext();
+
+        private static JAXBContext createContext() {
+            try {
+                return JAXBContext.newInstance(SProgram.class);
+            } catch (JAXBException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
     @Override
     public SProgram loadFromXml(Path xmlPath) throws JAXBException {
-        JAXBContext context = JAXBContext.newInstance(SProgram.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
-        return (SProgram) unmarshaller.unmarshal(xmlPath.toFile());
+        Unmarshaller unmarshaller = borrow();
+        try {
+            return (SProgram) unmarshaller.unmarshal(xmlPath.toFile());
+        } finally {
+            release(unmarshaller);
+        }
+    }
+
+    @Override
+    public SProgram loadFromXml(InputStream xml) throws JAXBException {
+        Unmarshaller unmarshaller = borrow();
+        try {
+            return (SProgram) unmarshaller.unmarshal(xml);
+        } finally {
+            release(unmarshaller);
+        }
+    }
+
+    private static Unmarshaller borrow() throws JAXBException {
+        Unmarshaller pooled = UNMARSHALLERS.poll();
+        return (pooled != null) ? pooled : ContextHolder.CONTEXT.createUnmarshaller();
+    }
+
+    private static void release(Unmarshaller unmarshaller) {
+        // size() is O(n) on this queue, but n stays tiny
+        if (UNMARSHALLERS.size() < MAX_POOLED_UNMARSHALLERS) {
+            UNMARSHALLERS.offer(unmarshaller);
+        }
     }
 }
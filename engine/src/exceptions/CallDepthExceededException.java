@@ -0,0 +1,7 @@
+package exceptions;
+
+public class CallDepthExceededException extends RuntimeException {
+    public CallDepthExceededException(String message) {
+        super(message);
+    }
+}
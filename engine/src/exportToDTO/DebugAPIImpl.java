@@ -7,8 +7,11 @@ import execution.ExecutionRequestDTO;
 import execution.VarValueDTO;
 import execution.debug.DebugStateDTO;
 import execution.debug.DebugStepDTO;
+import execution.debug.DebugStopDTO;
+import execution.debug.DebugWatchDTO;
 import structure.execution.ExecutionContext;
-import structure.execution.ExecutionContextImpl;
+import structure.execution.LinkedProgram;
+import structure.execution.RegisterFile;
 import structure.execution.ProgramExecutorImpl;
 import structure.instruction.Instruction;
 import structure.label.Label;
@@ -24,30 +27,30 @@ import java.util.*;
 
 public class DebugAPIImpl implements DebugAPI {
 
+    // every KEYFRAME_INTERVAL-th step (and the last one) carries all variables, the others only what they changed
+    private static final int KEYFRAME_INTERVAL = 64;
+
     private final ProgramImpl expanded;
-    private final ProgramImpl original;
     private final int degree;
 
-    private List<Instruction> instructions;
-    private Map<String,Integer> labelToIndex;
-    private ExecutionContext context;
+    private LinkedProgram linked;
+    private RegisterFile context;
     private int pc;
+    private int stepsSinceKeyframe;
     private long cyclesBeforeStep;
     private long logicalCyclesSoFar;
     private boolean terminated;
     private ProgramExecutorImpl runner;
 
-    public DebugAPIImpl(ProgramImpl expanded, ProgramImpl original, int degree) {
+    public DebugAPIImpl(ProgramImpl expanded, int degree) {
         this.expanded = expanded;
-        this.original = original;
         this.degree = Math.max(0, degree);
     }
 
     @Override
     public DebugStateDTO init(ExecutionRequestDTO req) {
-        this.instructions = expanded.getInstructions();
-        this.labelToIndex = buildLabelIndex(instructions);
-        this.context = new ExecutionContextImpl();
+        this.linked = expanded.getLinkedProgram();
+        this.context = new RegisterFile(linked.getLayout());
 
         List<Long> inputs = (req == null || req.getInputs() == null)
                 ? Collections.emptyList()
@@ -60,8 +63,9 @@ public class DebugAPIImpl implements DebugAPI {
         context.updateVariable(Variable.RESULT, 0L); // y=0
 
         this.pc = 0;
-        this.terminated = (instructions.isEmpty());
-        this.runner = new ProgramExecutorImpl(expanded, original);
+        this.stepsSinceKeyframe = 0;
+        this.terminated = (linked.size() == 0);
+        this.runner = new ProgramExecutorImpl(expanded);
         this.cyclesBeforeStep = runner.getCycles();
         this.logicalCyclesSoFar = 0L;
 
@@ -76,7 +80,7 @@ public class DebugAPIImpl implements DebugAPI {
 
     @Override
     public DebugStepDTO step() {
-        if (terminated || pc < 0 || pc >= instructions.size()) {
+        if (terminated || pc < 0 || pc >= linked.size()) {
             return new DebugStepDTO(
                     Math.max(pc, 0),
                     0L,
@@ -85,9 +89,14 @@ public class DebugAPIImpl implements DebugAPI {
             );
         }
         int executedPc = pc;
-        pc = runner.singleExecute(instructions, labelToIndex, context, pc);
+        // an instruction writes at most the variable it names; remember it to report only that one
+        Variable target = linked.instructionAt(pc).getVariable();
+        long valueBefore = (target == null) ? 0L : context.getVariableValue(target);
+        boolean writtenBefore = target != null && context.isWritten(target);
+
+        pc = runner.singleExecute(linked, context, pc);
 
-        if (pc < 0 || pc >= instructions.size()) {
+        if (pc < 0 || pc >= linked.size()) {
             terminated = true;
         }
 
@@ -96,14 +105,95 @@ public class DebugAPIImpl implements DebugAPI {
         cyclesBeforeStep = cyclesAfter;
         logicalCyclesSoFar += delta;
 
+        List<VarValueDTO> changed = List.of();
+        if (target != null && context.isWritten(target)) {
+            long valueAfter = context.getVariableValue(target);
+            if (!writtenBefore || valueAfter != valueBefore) {
+                changed = List.of(toDTO(target, valueAfter));
+            }
+        }
+
+        boolean keyframe = terminated || ++stepsSinceKeyframe >= KEYFRAME_INTERVAL;
+        if (keyframe) {
+            stepsSinceKeyframe = 0;
+        }
         DebugStateDTO newState = new DebugStateDTO(
                 degree,
                 pc,
                 logicalCyclesSoFar,
-                snapshotVars(context),
-                terminated
+                keyframe ? snapshotVars(context) : List.of(),
+                terminated,
+                keyframe
         );
-        return new DebugStepDTO(executedPc, delta, newState, List.of());
+        return new DebugStepDTO(executedPc, delta, newState, changed);
+    }
+
+    @Override
+    public DebugStopDTO runUntil(Set<Integer> breakpoints, List<DebugWatchDTO> watches, long maxCycles) {
+        boolean[] breakAt = new boolean[linked.size()];
+        if (breakpoints != null) {
+            for (Integer bp : breakpoints) {
+                if (bp != null && bp >= 0 && bp < breakAt.length) {
+                    breakAt[bp] = true;
+                }
+            }
+        }
+        List<DebugWatchDTO> watchList = (watches == null) ? List.of() : watches;
+        Variable[] watched = new Variable[watchList.size()];
+        for (int i = 0; i < watched.length; i++) {
+            watched[i] = toVariable(watchList.get(i).getVar());
+        }
+
+        long spent = 0L;
+        boolean first = true;
+        while (true) {
+            if (terminated) {
+                return stopAt(DebugStopDTO.Reason.EXIT, null);
+            }
+            if (!first && breakAt[pc]) {
+                return stopAt(DebugStopDTO.Reason.BREAKPOINT, null);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return stopAt(DebugStopDTO.Reason.INTERRUPTED, null);
+            }
+            first = false;
+
+            int executedPc = pc;
+            Variable target = linked.instructionAt(pc).getVariable();
+            long valueBefore = (target == null) ? 0L : context.getVariableValue(target);
+            boolean writtenBefore = target != null && context.isWritten(target);
+
+            pc = runner.singleExecute(linked, context, pc);
+
+            long cyclesAfter = runner.getCycles();
+            long delta = cyclesAfter - cyclesBeforeStep;
+            cyclesBeforeStep = cyclesAfter;
+            if (spent + delta > maxCycles) {
+                // not paid for: undo the one variable it may have written
+                if (target != null) {
+                    context.rewind(target, valueBefore, writtenBefore);
+                }
+                pc = executedPc;
+                return stopAt(DebugStopDTO.Reason.BUDGET, null);
+            }
+            spent += delta;
+            logicalCyclesSoFar += delta;
+            if (pc < 0 || pc >= linked.size()) {
+                terminated = true;
+            }
+
+            if (target != null && watched.length > 0 && context.isWritten(target)) {
+                long valueAfter = context.getVariableValue(target);
+                if (!writtenBefore || valueAfter != valueBefore) {
+                    for (int i = 0; i < watched.length; i++) {
+                        Long equals = watchList.get(i).getEquals();
+                        if (target.equals(watched[i]) && (equals == null || equals == valueAfter)) {
+                            return stopAt(DebugStopDTO.Reason.WATCH, watchList.get(i).getVar());
+                        }
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -113,43 +203,61 @@ public class DebugAPIImpl implements DebugAPI {
 
     @Override
     public void restore(final DebugStateDTO snapshot) {
-        ExecutionContext newCtx = new ExecutionContextImpl();
+        if (!snapshot.isKeyframe()) {
+            throw new IllegalArgumentException("Only a keyframe state can be restored");
+        }
+        RegisterFile newCtx = new RegisterFile(linked.getLayout());
         for (VarValueDTO vv : snapshot.getVars()) {
             Variable var = toVariable(vv);
             newCtx.updateVariable(var, vv.getValue());
         }
         this.context = newCtx;
         this.pc = snapshot.getPc();
-        this.terminated = (pc < 0 || pc >= instructions.size());
+        this.terminated = (pc < 0 || pc >= linked.size());
         this.logicalCyclesSoFar = snapshot.getCyclesSoFar();
         this.cyclesBeforeStep = runner.getCycles();
+        this.stepsSinceKeyframe = 0;
     }
 
     // ===== utils =====
 
+    private DebugStopDTO stopAt(DebugStopDTO.Reason reason, VarRefDTO watch) {
+        stepsSinceKeyframe = 0;
+        DebugStateDTO state = new DebugStateDTO(degree, pc, logicalCyclesSoFar, snapshotVars(context), terminated);
+        return new DebugStopDTO(state, reason, watch);
+    }
+
     private static Variable toVariable(VarValueDTO vv) {
-        VarOptionsDTO kind = vv.getVar().getVariable();
-        int idx = vv.getVar().getIndex();
+        return toVariable(vv.getVar());
+    }
+
+    private static Variable toVariable(VarRefDTO ref) {
+        VarOptionsDTO kind = ref.getVariable();
+        int idx = ref.getIndex();
         if (kind == VarOptionsDTO.y) return Variable.RESULT;                 // y
         if (kind == VarOptionsDTO.x) return new VariableImpl(VariableType.INPUT, idx); // x_i
         /* kind == z */ return new VariableImpl(VariableType.WORK, idx);              // z_i
     }
 
-    private static Map<String,Integer> buildLabelIndex(List<Instruction> instructions) {
-        Map<String,Integer> map = new HashMap<>();
-        for (int i = 0; i < instructions.size(); i++) {
-            Label lab = instructions.get(i).getMyLabel();
-            if (lab != null && lab != FixedLabel.EMPTY) {
-                String rep = lab.getLabelRepresentation();
-                if (rep != null && !rep.isBlank()) {
-                    map.putIfAbsent(rep.trim(), i);
-                }
+    private static VarValueDTO toDTO(Variable v, long value) {
+        VarOptionsDTO kind = switch (v.getType()) {
+            case RESULT -> VarOptionsDTO.y;
+            case INPUT -> VarOptionsDTO.x;
+            case WORK -> VarOptionsDTO.z;
+        };
+        return new VarValueDTO(new VarRefDTO(kind, v.getNumber()), value);
+    }
+
+    static List<VarValueDTO> snapshotVars(ExecutionContext context) {
+        if (context instanceof RegisterFile registers) {
+            // variableState() is already ordered y, x ascending, z ascending
+            List<VarValueDTO> out = new ArrayList<>();
+            for (Map.Entry<Variable, Long> e : registers.variableState().entrySet()) {
+                out.add(toDTO(e.getKey(), e.getValue()));
             }
+            return out;
         }
-        return map;
-    }
 
-    private static List<VarValueDTO> snapshotVars(ExecutionContext context) {
         Map<String, Long> snap = (context).snapshot();
         List<VarValueDTO> out = new ArrayList<>();
 
@@ -184,7 +292,7 @@ public class DebugAPIImpl implements DebugAPI {
 
     @Override
     public DisplayDTO executedDisplaySnapshot() {
-        return DisplayMapper.toCommand2(expanded);
+        return RenderCache.display(expanded);
     }
 
     @Override
@@ -6,6 +6,8 @@ import display.DisplayDTO;
 import api.DebugAPI;
 
 import display.ExpandDTO;
+import display.ExpandPageDTO;
+import display.InstructionDTO;
 import exceptions.InvalidDegreeException;
 import exceptions.StatePersistenceException;
 import structure.expand.ExpandResult;
@@ -28,30 +30,57 @@ public class DisplayAPIImpl implements DisplayAPI {
 
     public DisplayAPIImpl(Program program) { this.program = program; }
 
+    public Program getProgram() { return program; }
+
     @Override
-    public DisplayDTO getDisplay() { return DisplayMapper.toCommand2(program); }
+    public DisplayDTO getDisplay() { return RenderCache.display(program); }
 
     @Override
     public ExpandDTO expand(int degree) {
+        int max = checkDegree(degree);
+        return RenderCache.expand(program, degree, max);
+    }
+
+    @Override
+    public ExpandPageDTO expandPage(int degree, int offset, int limit) {
+        int max = checkDegree(degree);
+        return ExpandMapper.toPage(program, degree, max, offset, limit);
+    }
+
+    @Override
+    public List<InstructionDTO> lineage(int degree, int number) {
+        checkDegree(degree);
+        return RenderCache.lineage(program, degree, number);
+    }
+
+    private int checkDegree(int degree) {
         int max = program.calculateMaxDegree();
         if (degree < 0 || degree > max) {
             throw new InvalidDegreeException(
                     "Degree must be between 0 and " + max
             );
         }
-        return ExpandMapper.toCommand3(program,degree, max);
+        return max;
     }
 
     @Override
     public ExecutionAPI execution() {
-        ((ProgramImpl) program).setCurrentRunDegree(0);
-        return new ExecutionAPIImpl(((ProgramImpl) program), ((ProgramImpl) program));
+        return new ExecutionAPIImpl(((ProgramImpl) program));
     }
 
     @Override
     public ExecutionAPI executionForDegree(int degree) {
+        return executionFor(degree, false);
+    }
+
+    @Override
+    public ExecutionAPI compiledExecutionForDegree(int degree) {
+        return executionFor(degree, true);
+    }
+
+    private ExecutionAPI executionFor(int degree, boolean compiled) {
         if (degree == 0) {
-            return execution();
+            return new ExecutionAPIImpl(((ProgramImpl) program), compiled);
         }
         int max = program.calculateMaxDegree();
         if (degree < 0 || degree > max) {
@@ -59,10 +88,9 @@ public class DisplayAPIImpl implements DisplayAPI {
                     "Degree must be between 0 and " + max
             );
         }
-        ((ProgramImpl) program).setCurrentRunDegree(degree);
         ExpandResult res = ProgramExpander.expandTo(program, degree);
         Program expanded = res.getExpandedProgram();
-       return new ExecutionAPIImpl(((ProgramImpl) expanded), ((ProgramImpl) program));
+        return new ExecutionAPIImpl(((ProgramImpl) expanded), compiled, degree);
     }
 
     @Override
@@ -93,9 +121,8 @@ public class DisplayAPIImpl implements DisplayAPI {
     @Override
     public DebugAPI debugForDegree(int degree) {
         if (degree == 0) {
-            ((ProgramImpl) program).setCurrentRunDegree(0);
             // expanded=original degree 0
-            return new DebugAPIImpl(((ProgramImpl) program), ((ProgramImpl) program), 0);
+            return new DebugAPIImpl(((ProgramImpl) program), 0);
         }
         int max = program.calculateMaxDegree();
         if (degree < 0 || degree > max) {
@@ -103,7 +130,7 @@ public class DisplayAPIImpl implements DisplayAPI {
         }
         ExpandResult res = ProgramExpander.expandTo(program, degree);
         Program expanded = res.getExpandedProgram();
-        return new DebugAPIImpl(((ProgramImpl) expanded), ((ProgramImpl) program), degree);
+        return new DebugAPIImpl(((ProgramImpl) expanded), degree);
     }
 
     @Override
@@ -197,6 +224,8 @@ public class DisplayAPIImpl implements DisplayAPI {
                 // add to program and mark as existing
                 program.addFunction(f);
                 existing.add(us);
+                // per-function views were built against the old function set
+                functionToDisplayAPI = null;
             }
         }
     }
@@ -24,24 +24,20 @@ import static java.lang.Integer.parseInt;
 
 
 class DisplayMapper {
-    private static Map<String, String> nameToUserString = Collections.emptyMap();
 
+    /** Renders from scratch; callers normally go through {@link RenderCache#display(Program)}. */
     static DisplayDTO toCommand2(Program program) {
         String programName = program.getName();
         List<Instruction> instructions = program.getInstructions();
 
-        Map<String, String> map = new HashMap<>();
-        for (Function func : program.getFunctions()) {
-            map.put(func.getName(), func.getUserString());
-        }
-        nameToUserString = map;
+        Map<String, String> nameToUserString = functionNames(program);
 
         List<VarRefDTO> inputsInUse = computeInputsInUse(instructions);
         List<LabelDTO> labelsInUse  = computeLabelsInUse(instructions);
 
         List<InstructionDTO> dtoList = new ArrayList<>();
         for (int i = 0; i < instructions.size(); i++) {
-            dtoList.add(toInstructionDTO(i + 1, instructions.get(i)));
+            dtoList.add(toInstructionDTO(i + 1, instructions.get(i), nameToUserString));
         }
 
         List<FunctionDTO> functionDTOs = new ArrayList<>();
@@ -49,27 +45,36 @@ class DisplayMapper {
             List<Instruction> fInstructions = func.getInstructions();
             List<InstructionDTO> fdtoList = new ArrayList<>();
             for (int i = 0; i < fInstructions.size(); i++) {
-                fdtoList.add(toInstructionDTO(i + 1, fInstructions.get(i)));
+                fdtoList.add(toInstructionDTO(i + 1, fInstructions.get(i), nameToUserString));
             }
             functionDTOs.add(new FunctionDTO(func.getName(), func.getUserString(), fdtoList));
         }
         return new DisplayDTO(programName, inputsInUse, labelsInUse, dtoList,functionDTOs);
     }
 
-    private static InstructionDTO toInstructionDTO(int number, Instruction ins) {
+    /** functionName -> userString of every function of {@code program} (used to show composed arguments). */
+    static Map<String, String> functionNames(Program program) {
+        Map<String, String> map = new HashMap<>();
+        for (Function func : program.getFunctions()) {
+            map.put(func.getName(), func.getUserString());
+        }
+        return map;
+    }
+
+    static InstructionDTO toInstructionDTO(int number, Instruction ins, Map<String, String> nameToUserString) {
         InstrKindDTO kind;
         switch (ins.kind()) {
             case 'B': kind = InstrKindDTO.BASIC; break;
             default:  kind = InstrKindDTO.SYNTHETIC;
         }
         LabelDTO lineLabel = labelDTO(ins.getMyLabel());
-        InstructionBodyDTO body = toBody(ins);
+        InstructionBodyDTO body = toBody(ins, nameToUserString);
         int cycles = ins.cycles();
         String generation = InstructionType.valueOf(ins.getName()).getGeneration();
         return new InstructionDTO(number, kind, lineLabel, body, cycles, generation);
     }
 
-    private static InstructionBodyDTO toBody(Instruction ins) {
+    private static InstructionBodyDTO toBody(Instruction ins, Map<String, String> nameToUserString) {
         switch (ins.getName()) {
             case "INCREASE": {
                 IncreaseInstruction i = (IncreaseInstruction) ins;
@@ -150,7 +155,7 @@ class DisplayMapper {
             }
             case "QUOTE": {
                 QuotationInstruction q = (QuotationInstruction) ins;
-                String shownArgs = ArgsWithComposition(q.getFunctionArguments());
+                String shownArgs = ArgsWithComposition(q.getFunctionArguments(), nameToUserString);
                 return new InstructionBodyDTO(
                         InstrOpDTO.QUOTE,
                         toVarRef(q.getVariable()),
@@ -164,7 +169,7 @@ class DisplayMapper {
             case "JUMP_EQUAL_FUNCTION": {
                 JumpEqualFunctionInstruction f = (JumpEqualFunctionInstruction) ins;
                 VarRefDTO v = toVarRef(f.getVariable());
-                String shownArgs = ArgsWithComposition(f.getFunctionArguments());
+                String shownArgs = ArgsWithComposition(f.getFunctionArguments(), nameToUserString);
                 return new InstructionBodyDTO(
                         InstrOpDTO.JUMP_EQUAL_FUNCTION,
                         v,
@@ -349,7 +354,7 @@ class DisplayMapper {
         };
     }
 
-    private static String ArgsWithComposition(String args) {
+    private static String ArgsWithComposition(String args, Map<String, String> nameToUserString) {
         if (args == null || args.isBlank() || nameToUserString == null || nameToUserString.isEmpty()) return args;
         StringBuilder out = new StringBuilder(args.length());
         int n = args.length();
@@ -1,12 +1,17 @@
 package exportToDTO;
 
+import api.DebugAPI;
 import api.DisplayAPI;
 import api.ExecutionAPI;
+import api.RunSession;
 import display.*;
 import exceptions.InvalidInputException;
 import execution.ExecutionDTO;
 import execution.ExecutionRequestDTO;
 import execution.VarValueDTO;
+import structure.compiler.CompiledProgram;
+import structure.compiler.CompiledProgramExecutor;
+import structure.execution.ProgramExecutor;
 import structure.execution.ProgramExecutorImpl;
 import structure.program.Program;
 import structure.program.ProgramImpl;
@@ -18,18 +23,41 @@ import java.util.*;
 
 public class ExecutionAPIImpl implements ExecutionAPI {
     private final Program program;
-    private final Program originalProgram;
+    private final boolean compiled;
+    private final int degree;
 
+    public ExecutionAPIImpl(ProgramImpl program) {
+        this(program, false);
+    }
+
+    /** compiled=true runs the generated JVM class when the program compiles (interpreter otherwise). */
     public ExecutionAPIImpl(ProgramImpl program,
-                            ProgramImpl originalProgram) {
-        this(program, originalProgram, null);
+                            boolean compiled) {
+        this(program, compiled, 0);
     }
 
+    /** {@code program} is the loaded program already expanded to {@code degree}. */
     public ExecutionAPIImpl(ProgramImpl program,
-                            ProgramImpl originalProgram,
-                            DisplayAPI display) {
+                            boolean compiled,
+                            int degree) {
         this.program = program;
-        this.originalProgram = originalProgram;
+        this.compiled = compiled;
+        this.degree = degree;
+    }
+
+    public ExecutionAPIImpl(ProgramImpl program,
+                            DisplayAPI display) {
+        this(program, false);
+    }
+
+    @Override
+    public DebugAPI startDebug() {
+        return new DebugAPIImpl((ProgramImpl) program, degree);
+    }
+
+    /** Instructions of the prepared program, i.e. what an image of this API costs to keep around. */
+    public int getInstructionCount() {
+        return program.getInstructions().size();
     }
 
     @Override
@@ -39,7 +67,7 @@ public class ExecutionAPIImpl implements ExecutionAPI {
 
     @Override
     public ExecutionDTO execute(ExecutionRequestDTO request) {
-        DisplayDTO executed = DisplayMapper.toCommand2(program);
+        DisplayDTO executed = RenderCache.display(program);
 
         SortedSet<Integer> xsInProgram = new TreeSet<>();
         SortedSet<Integer> zsInProgram = new TreeSet<>();
@@ -62,7 +90,7 @@ public class ExecutionAPIImpl implements ExecutionAPI {
             }
         }
 
-        ProgramExecutorImpl runner = new ProgramExecutorImpl(program, originalProgram);
+        ProgramExecutor runner = newRunner();
         long y = runner.run(inputs);
         Map<Variable, Long> state = runner.variableState();
         List<VarValueDTO> finals = new ArrayList<>();
@@ -88,6 +116,26 @@ public class ExecutionAPIImpl implements ExecutionAPI {
         return new ExecutionDTO(y, cycles, finals, executed);
     }
 
+    @Override
+    public RunSession startRun(ExecutionRequestDTO request) {
+        List<Long> inputsList = (request == null || request.getInputs() == null)
+                ? Collections.emptyList()
+                : request.getInputs();
+        ProgramImpl impl = (ProgramImpl) program;
+        CompiledProgram image = compiled ? impl.getCompiledProgram() : null;
+        return new RunSessionImpl(impl, image, inputsList);
+    }
+
+    private ProgramExecutor newRunner() {
+        if (compiled) {
+            CompiledProgram image = ((ProgramImpl) program).getCompiledProgram();
+            if (image != null) {
+                return new CompiledProgramExecutor(image, program);
+            }
+        }
+        return new ProgramExecutorImpl(program);
+    }
+
     private static void collectXFromInputs(DisplayDTO dto, SortedSet<Integer> xs) {
         if (dto.getInputsInUse() == null) return;
         for (VarRefDTO v : dto.getInputsInUse()) {
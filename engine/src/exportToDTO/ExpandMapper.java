@@ -2,69 +2,45 @@ package exportToDTO;
 
 import display.DisplayDTO;
 import display.ExpandDTO;
+import display.ExpandPageDTO;
 import display.ExpandedInstructionDTO;
 import display.InstructionDTO;
 import structure.expand.ExpandResult;
+import structure.expand.InstructionTable;
 import structure.expand.ProgramExpander;
-import structure.function.Function;
-import structure.instruction.AbstractInstruction;
 import structure.instruction.Instruction;
 import structure.program.Program;
-import structure.program.ProgramImpl;
 
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 public final class ExpandMapper {
     private ExpandMapper(){}
 
-    public static ExpandDTO toCommand3(Program program, int degree, int maxDegree) {
+    /**
+     * Leaves of {@code program} expanded to {@code degree}, each with the chain of instructions it came from.
+     * An ancestor was expanded away, so it lives in exactly one level and its number is its position there.
+     * Ancestor DTOs are rendered once and kept in {@code ancestors} (by level and index) so other degrees
+     * of the same expansion reuse them.
+     */
+    static ExpandDTO toCommand3(Program program, int degree, int maxDegree,
+                                Map<Long, InstructionDTO> ancestors) {
         ExpandResult res = ProgramExpander.expandTo(program, degree);
 
         Program finalProg = res.getExpandedProgram();
-        List<List<Instruction>> levels = res.getLevels();   // 0..degree
+        List<InstructionTable> levels = res.getLevels();   // 0..degree
         int lastLevel = levels.size() - 1;
+        Map<String, String> names = DisplayMapper.functionNames(finalProg);
 
-        List<Map<Instruction, InstructionDTO>> dtoAtLevel = new ArrayList<>(levels.size());
-        for (int lvl = 0; lvl <= lastLevel; lvl++) {
-            ProgramImpl progL = new ProgramImpl(finalProg.getName());
-            for (Instruction ins : levels.get(lvl)) progL.addInstruction(ins);
-            for (Function fn : finalProg.getFunctions()) progL.addFunction(fn);
-            DisplayDTO c2 = DisplayMapper.toCommand2(progL);
-
-            List<Instruction> insL = levels.get(lvl);
-            List<InstructionDTO> dtoL = c2.getInstructions();
-            Map<Instruction, InstructionDTO> map = new IdentityHashMap<>();
-            int n = Math.min(insL.size(), dtoL.size());
-            for (int i = 0; i < n; i++) map.put(insL.get(i), dtoL.get(i));
-            dtoAtLevel.add(map);
-        }
-
-        DisplayDTO finalC2 = DisplayMapper.toCommand2(finalProg);
+        DisplayDTO finalC2 = RenderCache.display(finalProg);
         List<InstructionDTO> finalDtos = finalC2.getInstructions();
-        List<Instruction>     finalIns  = levels.get(lastLevel);
-
-        Map<Instruction, Integer> levelOf = new IdentityHashMap<>();
-        for (int lvl = 0; lvl <= lastLevel; lvl++) {
-            for (Instruction ins : levels.get(lvl)) levelOf.put(ins, lvl);
-        }
+        int leaves = Math.min(levels.get(lastLevel).size(), finalDtos.size());
 
         List<ExpandedInstructionDTO> out = new ArrayList<>();
-        for (int i = 0; i < finalIns.size() && i < finalDtos.size(); i++) {
-            Instruction    leaf = finalIns.get(i);
+        for (int i = 0; i < leaves; i++) {
             InstructionDTO left = finalDtos.get(i);
-
-            List<InstructionDTO> chain = new ArrayList<>();
-            for (Instruction anc : ((AbstractInstruction) leaf).getFamilyTree()) {
-                Integer lvl = levelOf.get(anc);
-                if (lvl == null) continue;
-                InstructionDTO ancDto = dtoAtLevel.get(lvl).get(anc);
-                if (ancDto != null) chain.add(ancDto);
-            }
-
-            out.add(new ExpandedInstructionDTO(left, chain));
+            out.add(new ExpandedInstructionDTO(left, chainOf(levels, i, names, ancestors)));
         }
 
         return new ExpandDTO(
@@ -75,4 +51,52 @@ public final class ExpandMapper {
                 maxDegree
         );
     }
+
+    /** Rows offset+1 .. offset+limit of the expansion; only those rows are decoded and rendered. */
+    static ExpandPageDTO toPage(Program program, int degree, int maxDegree, int offset, int limit) {
+        List<InstructionTable> levels = ProgramExpander.levelsTo(program, degree);
+        int total = levels.get(degree).size();
+        int from = Math.min(Math.max(0, offset), total);
+        int to = Math.min(total, from + Math.max(0, limit));
+        Map<String, String> names = DisplayMapper.functionNames(program);
+
+        List<InstructionDTO> rows = new ArrayList<>(to - from);
+        List<Instruction> slice = ProgramExpander.instructions(program, degree, from, to);
+        for (int i = 0; i < slice.size(); i++) {
+            rows.add(DisplayMapper.toInstructionDTO(from + i + 1, slice.get(i), names));
+        }
+        return new ExpandPageDTO(program.getName(), degree, maxDegree, from, total, rows);
+    }
+
+    /** The chain toCommand3 would attach to row {@code number}, built for that row alone. */
+    static List<InstructionDTO> lineage(Program program, int degree, int number,
+                                        Map<Long, InstructionDTO> ancestors) {
+        List<InstructionTable> levels = ProgramExpander.levelsTo(program, degree);
+        if (number < 1 || number > levels.get(degree).size()) {
+            return List.of();
+        }
+        return chainOf(levels, number - 1, DisplayMapper.functionNames(program), ancestors);
+    }
+
+    // walk the parent indexes down to level 0; copies of a basic instruction that did not expand are skipped
+    private static List<InstructionDTO> chainOf(List<InstructionTable> levels, int row, Map<String, String> names,
+                                                Map<Long, InstructionDTO> ancestors) {
+        int lastLevel = levels.size() - 1;
+        List<InstructionDTO> chain = new ArrayList<>();
+        int index = levels.get(lastLevel).parentOf(row);
+        for (int lvl = lastLevel - 1; lvl >= 0 && index >= 0; lvl--) {
+            InstructionTable level = levels.get(lvl);
+            if (level.isSynthetic(index)) {
+                long key = ((long) lvl << 32) | index;
+                InstructionDTO ancDto = ancestors.get(key);
+                if (ancDto == null) {
+                    ancDto = DisplayMapper.toInstructionDTO(index + 1, level.instructionAt(index), names);
+                    ancestors.put(key, ancDto);
+                }
+                chain.add(ancDto);
+            }
+            index = level.parentOf(index);
+        }
+        return chain;
+    }
 }
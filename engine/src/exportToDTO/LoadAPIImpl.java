@@ -12,6 +12,7 @@ import structure.program.SProgram;
 import utils.XMLToStructure;
 import api.XMLLoader;
 
+import java.io.InputStream;
 import java.nio.file.Path;
 
 public class LoadAPIImpl implements LoadAPI {
@@ -30,12 +31,30 @@ public class LoadAPIImpl implements LoadAPI {
         try {
             s = new XMLLoader().loadFromXml(xmlPath);
         } catch (JAXBException e) {
-            String msg = (e.getLinkedException() != null && e.getLinkedException().getMessage() != null)
-                    ? e.getLinkedException().getMessage()
-                    : (e.getMessage() != null ? e.getMessage() : "Failed to parse XML.");
-            throw new InvalidXmlFormatException("Invalid XML: " + msg, e);  // ← Unchecked
+            throw invalidXml(e);
         }
+        return toDisplay(s);
+    }
+
+    @Override
+    public DisplayAPI loadFromXml(InputStream xml) throws Exception {
+        final SProgram s;
+        try {
+            s = new XMLLoader().loadFromXml(xml);
+        } catch (JAXBException e) {
+            throw invalidXml(e);
+        }
+        return toDisplay(s);
+    }
+
+    private static InvalidXmlFormatException invalidXml(JAXBException e) {
+        String msg = (e.getLinkedException() != null && e.getLinkedException().getMessage() != null)
+                ? e.getLinkedException().getMessage()
+                : (e.getMessage() != null ? e.getMessage() : "Failed to parse XML.");
+        return new InvalidXmlFormatException("Invalid XML: " + msg, e);  // ← Unchecked
+    }
 
+    private static DisplayAPI toDisplay(SProgram s) {
         ProgramImpl program = new XMLToStructure().toProgram(s);
         try {
             program.validate();
@@ -0,0 +1,92 @@
+package exportToDTO;
+
+import display.DisplayDTO;
+import display.ExpandDTO;
+import display.InstructionDTO;
+import structure.program.Program;
+import structure.program.ProgramImpl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * DTO renderings of one program: its DisplayDTO, its ExpandDTO per degree and the InstructionDTOs
+ * of expanded ancestors (shared by every degree). DTOs are immutable, so one rendering serves every caller.
+ * Everything is dropped once the program's version changes (functions attached, ...).
+ */
+final class RenderCache {
+
+    // weak keys: an expanded program that leaves its ExpansionCache takes its renderings with it
+    private static final Map<ProgramImpl, RenderCache> CACHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private int version;
+    private DisplayDTO display;
+    private final Map<Integer, ExpandDTO> expands = new HashMap<>();
+    private final Map<Long, InstructionDTO> ancestors = new HashMap<>();
+
+    private RenderCache(int version) {
+        this.version = version;
+    }
+
+    static DisplayDTO display(Program program) {
+        if (!(program instanceof ProgramImpl impl)) {
+            return DisplayMapper.toCommand2(program);
+        }
+        return of(impl).displayOf(impl);
+    }
+
+    static ExpandDTO expand(Program program, int degree, int maxDegree) {
+        if (!(program instanceof ProgramImpl impl)) {
+            return ExpandMapper.toCommand3(program, degree, maxDegree, new HashMap<>());
+        }
+        return of(impl).expandOf(impl, degree, maxDegree);
+    }
+
+    /** Lineage of one expanded row; ancestor DTOs are shared with {@link #expand}. */
+    static List<InstructionDTO> lineage(Program program, int degree, int number) {
+        if (!(program instanceof ProgramImpl impl)) {
+            return ExpandMapper.lineage(program, degree, number, new HashMap<>());
+        }
+        return of(impl).lineageOf(impl, degree, number);
+    }
+
+    private static RenderCache of(ProgramImpl program) {
+        return CACHES.computeIfAbsent(program, p -> new RenderCache(p.getVersion()));
+    }
+
+    private synchronized DisplayDTO displayOf(ProgramImpl program) {
+        sync(program);
+        if (display == null) {
+            display = DisplayMapper.toCommand2(program);
+        }
+        return display;
+    }
+
+    private synchronized ExpandDTO expandOf(ProgramImpl program, int degree, int maxDegree) {
+        sync(program);
+        ExpandDTO dto = expands.get(degree);
+        if (dto == null) {
+            dto = ExpandMapper.toCommand3(program, degree, maxDegree, ancestors);
+            expands.put(degree, dto);
+        }
+        return dto;
+    }
+
+    private synchronized List<InstructionDTO> lineageOf(ProgramImpl program, int degree, int number) {
+        sync(program);
+        return ExpandMapper.lineage(program, degree, number, ancestors);
+    }
+
+    private void sync(ProgramImpl program) {
+        int now = program.getVersion();
+        if (now != version) {
+            version = now;
+            display = null;
+            expands.clear();
+            ancestors.clear();
+        }
+    }
+}
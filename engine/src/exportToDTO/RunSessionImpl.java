@@ -0,0 +1,134 @@
+package exportToDTO;
+
+import api.RunSession;
+import execution.ExecutionDTO;
+import execution.VarValueDTO;
+import structure.compiler.CompiledProgram;
+import structure.compiler.CompiledRun;
+import structure.execution.CallStack;
+import structure.execution.LinkedProgram;
+import structure.execution.ProgramExecutorImpl;
+import structure.execution.RegisterFile;
+import structure.program.ProgramImpl;
+import structure.variable.Variable;
+import structure.variable.VariableImpl;
+import structure.variable.VariableType;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * RunSession over an expanded program. Runs the generated class when there is one
+ * (its budget check stops exactly before the first instruction that does not fit),
+ * otherwise steps the interpreter with the same rollback rule.
+ */
+public class RunSessionImpl implements RunSession {
+
+    private final ProgramImpl program;
+    private final LinkedProgram linked;
+    private final CompiledProgram compiled;
+    private final CompiledRun run;
+    private int pc = 0;
+    private boolean finished;
+    private boolean budgetExhausted;
+
+    public RunSessionImpl(ProgramImpl program, CompiledProgram compiled, List<Long> inputs) {
+        this.program = program;
+        this.compiled = compiled;
+        this.linked = (compiled != null) ? compiled.getLinked() : program.getLinkedProgram();
+
+        RegisterFile registers = new RegisterFile(linked.getLayout());
+        for (int i = 0; i < inputs.size(); i++) {
+            long val = (inputs.get(i) == null ? 0L : inputs.get(i));
+            registers.updateVariable(new VariableImpl(VariableType.INPUT, i + 1), val); // x(i+1) = val
+        }
+        registers.updateVariable(Variable.RESULT, 0L); // y=0
+
+        this.run = new CompiledRun(linked, registers, new ProgramExecutorImpl(program));
+        this.finished = (linked.size() == 0);
+    }
+
+    @Override
+    public long advance(long chunkCycles, long budget) {
+        budgetExhausted = false;
+        if (finished) return 0L;
+
+        long start = run.cycles;
+        long softLimit = limitAfter(start, chunkCycles);
+        long hardLimit = limitAfter(start, budget);
+        long limit = Math.min(softLimit, hardLimit);
+
+        CallStack stack = CallStack.current();
+        boolean memoWasEnabled = stack.setMemoEnabled(true);
+        try {
+            pc = (compiled != null) ? compiled.execute(run, pc, limit) : interpret(limit);
+            if (!isRunning(pc)) {
+                finished = true;
+            } else if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Canceled");
+            } else if (limit == hardLimit) {
+                budgetExhausted = true;
+            } else if (run.cycles == start) {
+                // the next instruction alone is bigger than a chunk: run just that one against the budget
+                int next = run.callOut(pc, run.cycles, hardLimit);
+                if (next == CompiledRun.STOP) {
+                    budgetExhausted = true;
+                } else {
+                    pc = next;
+                    finished = !isRunning(pc);
+                }
+            }
+        } finally {
+            stack.setMemoEnabled(memoWasEnabled);
+        }
+        return run.cycles - start;
+    }
+
+    /** Interpreted fallback: one instruction at a time, stopping before the first one that exceeds {@code limit}. */
+    private int interpret(long limit) {
+        int at = pc;
+        while (isRunning(at)) {
+            int next = run.callOut(at, run.cycles, limit);
+            if (next == CompiledRun.STOP) return at;
+            at = next;
+            if (Thread.currentThread().isInterrupted()) return at;
+        }
+        return at;
+    }
+
+    private boolean isRunning(int at) {
+        return at >= 0 && at < linked.size();
+    }
+
+    private static long limitAfter(long start, long cycles) {
+        long limit = start + Math.max(0L, cycles);
+        return (limit < start) ? Long.MAX_VALUE : limit;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /** Index of the next instruction to run in the expanded program (past the end once finished). */
+    public int getPc() {
+        return pc;
+    }
+
+    @Override
+    public long getCyclesSoFar() {
+        return run.cycles;
+    }
+
+    @Override
+    public ExecutionDTO result() {
+        RegisterFile registers = run.getRegisters();
+        List<VarValueDTO> vars = DebugAPIImpl.snapshotVars(registers);
+        return new ExecutionDTO(registers.get(0), run.cycles, vars, RenderCache.display(program));
+    }
+}
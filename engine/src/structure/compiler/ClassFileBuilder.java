@@ -0,0 +1,302 @@
+package structure.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class-file writer: one public final class with a no-arg constructor and a single method.
+ * Emits class-file version 49 so no StackMapTable is needed (the JVM falls back to the inferencing verifier).
+ */
+final class ClassFileBuilder {
+
+    private static final int VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    // constant pool
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String className;
+    private final String superName;
+
+    ClassFileBuilder(String className, String superName) {
+        this.className = className;
+        this.superName = superName;
+    }
+
+    // ---------- constant pool ----------
+
+    int utf8(String s) {
+        return intern("U" + s, () -> {
+            pool.writeByte(1);
+            pool.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return intern("C" + internalName, () -> {
+            pool.writeByte(7);
+            pool.writeShort(name);
+        });
+    }
+
+    int integer(int value) {
+        return intern("I" + value, () -> {
+            pool.writeByte(3);
+            pool.writeInt(value);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int cls = classRef(owner);
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        int nat = intern("N" + name + ":" + descriptor, () -> {
+            pool.writeByte(12);
+            pool.writeShort(n);
+            pool.writeShort(d);
+        });
+        return intern(tag + owner + "." + name + ":" + descriptor, () -> {
+            pool.writeByte(tag);
+            pool.writeShort(cls);
+            pool.writeShort(nat);
+        });
+    }
+
+    private interface PoolWrite { void write() throws IOException; }
+
+    private int intern(String key, PoolWrite writer) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) return existing;
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int index = poolCount++;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    // ---------- class assembly ----------
+
+    byte[] toBytes(String methodName, String methodDescriptor, Code code) {
+        Code init = new Code();
+        init.op(Op.ALOAD_0);
+        init.op(Op.INVOKESPECIAL);
+        init.u2(methodRef(superName, "<init>", "()V"));
+        init.op(Op.RETURN);
+
+        int thisClass = classRef(className);
+        int superClass = classRef(superName);
+        int codeAttr = utf8("Code");
+        int initName = utf8("<init>");
+        int initDesc = utf8("()V");
+        int execName = utf8(methodName);
+        int execDesc = utf8(methodDescriptor);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.flush();
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+            writeMethod(out, initName, initDesc, codeAttr, init, 1, 1);
+            writeMethod(out, execName, execDesc, codeAttr, code, code.maxStack, code.maxLocals);
+            out.writeShort(0); // class attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int desc, int codeAttr,
+                                    Code code, int maxStack, int maxLocals) throws IOException {
+        byte[] body = code.resolve();
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(desc);
+        out.writeShort(1);
+        out.writeShort(codeAttr);
+        out.writeInt(12 + body.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+    }
+
+    // ---------- bytecode ----------
+
+    /** JVM opcodes used by the compiler. */
+    static final class Op {
+        static final int ICONST_M1 = 0x02, ICONST_0 = 0x03, ICONST_1 = 0x04;
+        static final int LCONST_0 = 0x09, LCONST_1 = 0x0a;
+        static final int BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13;
+        static final int ILOAD = 0x15, LLOAD = 0x16, ALOAD = 0x19, ALOAD_0 = 0x2a;
+        static final int LALOAD = 0x2f, BALOAD = 0x33;
+        static final int ISTORE = 0x36, LSTORE = 0x37, ASTORE = 0x3a;
+        static final int LASTORE = 0x50, BASTORE = 0x54;
+        static final int LADD = 0x61, LSUB = 0x65, I2L = 0x85, LCMP = 0x94;
+        static final int IFEQ = 0x99, IFNE = 0x9a, IFLE = 0x9e;
+        static final int IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0;
+        static final int GOTO = 0xa7, TABLESWITCH = 0xaa;
+        static final int IRETURN = 0xac, RETURN = 0xb1;
+        static final int GETFIELD = 0xb4, PUTFIELD = 0xb5;
+        static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+
+        private Op() {}
+    }
+
+    /** Branch target inside a {@link Code} buffer. */
+    static final class Label {
+        int position = -1;
+    }
+
+    /** Growable method body with forward-referencing labels (16-bit branches, 32-bit switch offsets). */
+    static final class Code {
+        private byte[] buf = new byte[256];
+        private int len = 0;
+        private final List<int[]> shortFixups = new ArrayList<>();   // {opcodePos, patchPos}
+        private final List<Label> shortTargets = new ArrayList<>();
+        private final List<int[]> wideFixups = new ArrayList<>();
+        private final List<Label> wideTargets = new ArrayList<>();
+        int maxStack = 8;
+        int maxLocals = 1;
+
+        int length() { return len; }
+
+        void op(int opcode) { u1(opcode); }
+
+        void u1(int v) {
+            ensure(1);
+            buf[len++] = (byte) v;
+        }
+
+        void u2(int v) {
+            u1(v >>> 8);
+            u1(v);
+        }
+
+        void u4(int v) {
+            u2(v >>> 16);
+            u2(v);
+        }
+
+        void mark(Label label) { label.position = len; }
+
+        void branch(int opcode, Label target) {
+            int at = len;
+            u1(opcode);
+            shortFixups.add(new int[]{at, len});
+            shortTargets.add(target);
+            u2(0);
+        }
+
+        /** tableswitch over 0..targets.length-1. */
+        void tableSwitch(Label[] targets, Label dflt) {
+            int at = len;
+            u1(Op.TABLESWITCH);
+            while (len % 4 != 0) u1(0);
+            wide(at, dflt);
+            u4(0);
+            u4(targets.length - 1);
+            for (Label t : targets) wide(at, t);
+        }
+
+        private void wide(int opcodePos, Label target) {
+            wideFixups.add(new int[]{opcodePos, len});
+            wideTargets.add(target);
+            u4(0);
+        }
+
+        void pushInt(int v) {
+            if (v >= -1 && v <= 5) {
+                op(Op.ICONST_0 + v);
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                op(Op.BIPUSH);
+                u1(v);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                op(Op.SIPUSH);
+                u2(v);
+            } else {
+                throw new IllegalStateException("constant needs the pool: " + v);
+            }
+        }
+
+        void local(int opcode, int index) {
+            if (index > 255) {
+                u1(0xc4); // wide
+                u1(opcode);
+                u2(index);
+            } else {
+                u1(opcode);
+                u1(index);
+            }
+        }
+
+        byte[] resolve() {
+            for (int i = 0; i < shortFixups.size(); i++) {
+                int[] f = shortFixups.get(i);
+                int offset = position(shortTargets.get(i)) - f[0];
+                if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException("branch offset out of range");
+                }
+                buf[f[1]] = (byte) (offset >>> 8);
+                buf[f[1] + 1] = (byte) offset;
+            }
+            for (int i = 0; i < wideFixups.size(); i++) {
+                int[] f = wideFixups.get(i);
+                int offset = position(wideTargets.get(i)) - f[0];
+                buf[f[1]] = (byte) (offset >>> 24);
+                buf[f[1] + 1] = (byte) (offset >>> 16);
+                buf[f[1] + 2] = (byte) (offset >>> 8);
+                buf[f[1] + 3] = (byte) offset;
+            }
+            byte[] out = new byte[len];
+            System.arraycopy(buf, 0, out, 0, len);
+            return out;
+        }
+
+        private static int position(Label label) {
+            if (label.position < 0) throw new IllegalStateException("unbound label");
+            return label.position;
+        }
+
+        private void ensure(int more) {
+            if (len + more > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length * 2, len + more)];
+                System.arraycopy(buf, 0, bigger, 0, len);
+                buf = bigger;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package structure.compiler;
+
+/**
+ * Base class of the classes generated by {@link ProgramCompiler}.
+ * One instance per compiled program; it keeps no per-run state and is safe to share between threads.
+ */
+public abstract class CompiledCode {
+
+    /**
+     * Runs from {@code startPc} until the program ends, the next instruction would push the cycles
+     * past {@code budget}, or the thread is interrupted at a backward jump.
+     * Returns the pc to continue from (outside [0, size) once the program has terminated).
+     */
+    public abstract int exec(CompiledRun run, int startPc, long budget);
+}
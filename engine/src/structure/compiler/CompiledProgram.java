@@ -0,0 +1,22 @@
+package structure.compiler;
+
+import structure.execution.LinkedProgram;
+
+/** A linked program together with the JVM class generated for it. */
+public final class CompiledProgram {
+
+    private final LinkedProgram linked;
+    private final CompiledCode code;
+
+    CompiledProgram(LinkedProgram linked, CompiledCode code) {
+        this.linked = linked;
+        this.code = code;
+    }
+
+    public LinkedProgram getLinked() { return linked; }
+
+    /** See {@link CompiledCode#exec}. */
+    public int execute(CompiledRun run, int pc, long budget) {
+        return code.exec(run, pc, budget);
+    }
+}
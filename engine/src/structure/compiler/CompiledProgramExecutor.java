@@ -0,0 +1,80 @@
+package structure.compiler;
+
+import structure.execution.CallStack;
+import structure.execution.ExecutionContext;
+import structure.execution.LinkedProgram;
+import structure.execution.ProgramExecutor;
+import structure.execution.ProgramExecutorImpl;
+import structure.execution.RegisterFile;
+import structure.program.Program;
+import structure.variable.Variable;
+import structure.variable.VariableImpl;
+import structure.variable.VariableType;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * ProgramExecutor that runs the generated class of a {@link CompiledProgram}.
+ * Same results, variable state and cycles as {@link ProgramExecutorImpl}.
+ */
+public class CompiledProgramExecutor implements ProgramExecutor {
+
+    private final CompiledProgram compiled;
+    private final ProgramExecutorImpl interpreter;
+    private Map<Variable, Long> lastState = new HashMap<>();
+    private int cycles = 0;
+
+    public CompiledProgramExecutor(CompiledProgram compiled, Program program) {
+        this.compiled = compiled;
+        this.interpreter = new ProgramExecutorImpl(program);
+    }
+
+    @Override
+    public long run(Long... input) {
+        LinkedProgram linked = compiled.getLinked();
+        RegisterFile context = new RegisterFile(linked.getLayout());
+
+        for (int i = 0; i < input.length; i++) {
+            long val = (input[i] == null ? 0L : input[i]);
+            context.updateVariable(new VariableImpl(VariableType.INPUT, i + 1), val); // x(i+1) = val
+        }
+        context.updateVariable(Variable.RESULT, 0L);
+
+        CompiledRun run = new CompiledRun(linked, context, interpreter);
+        CallStack stack = CallStack.current();
+        boolean memoWasEnabled = stack.setMemoEnabled(true);
+        int pc = 0;
+        try {
+            while (pc >= 0 && pc < linked.size()) {
+                pc = compiled.execute(run, pc, Long.MAX_VALUE);
+                if (Thread.currentThread().isInterrupted()) throw new CancellationException("Canceled");
+            }
+        } finally {
+            stack.setMemoEnabled(memoWasEnabled);
+        }
+        this.cycles = (int) run.cycles;
+        long y = context.getVariableValue(Variable.RESULT);
+        this.lastState = context.variableState();
+
+        return y;
+    }
+
+    @Override
+    public int singleExecute(LinkedProgram linked, ExecutionContext context, int pc) {
+        int before = interpreter.getCycles();
+        int next = interpreter.singleExecute(linked, context, pc);
+        cycles += interpreter.getCycles() - before;
+        return next;
+    }
+
+    @Override
+    public int getCycles() {
+        return cycles;
+    }
+
+    @Override
+    public Map<Variable, Long> variableState() {
+        return Collections.unmodifiableMap(lastState);
+    }
+}
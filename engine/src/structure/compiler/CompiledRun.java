@@ -0,0 +1,63 @@
+package structure.compiler;
+
+import structure.execution.LinkedProgram;
+import structure.execution.ProgramExecutorImpl;
+import structure.execution.RegisterFile;
+import structure.instruction.Instruction;
+import structure.variable.Variable;
+
+/**
+ * Per-run state handed to generated code.
+ * The fields are public because the generated class lives in its own class loader;
+ * {@code regs}/{@code written} are the backing arrays of the run's RegisterFile.
+ */
+public final class CompiledRun {
+
+    /** Returned by {@link #callOut} when the instruction does not fit in the budget. */
+    public static final int STOP = -2;
+
+    public final long[] regs;
+    public final boolean[] written;
+    public long cycles;
+
+    private final LinkedProgram linked;
+    private final RegisterFile registers;
+    private final ProgramExecutorImpl interpreter;
+
+    public CompiledRun(LinkedProgram linked, RegisterFile registers, ProgramExecutorImpl interpreter) {
+        this.linked = linked;
+        this.registers = registers;
+        this.interpreter = interpreter;
+        this.regs = registers.rawValues();
+        this.written = registers.rawWritten();
+    }
+
+    public RegisterFile getRegisters() { return registers; }
+
+    /**
+     * Runs a QUOTE / JUMP_EQUAL_FUNCTION through the interpreter (generated code spills its locals first).
+     * If the call turns out to cost more than the budget allows, its write is rolled back and STOP is returned.
+     */
+    public int callOut(int pc, long cyclesSoFar, long budget) {
+        Instruction ins = linked.instructionAt(pc);
+        Variable dest = ins.getVariable();
+        int slot = (dest == null) ? -1 : registers.getLayout().slotOf(dest);
+        long oldValue = (slot >= 0) ? regs[slot] : 0L;
+        boolean oldWritten = slot >= 0 && written[slot];
+
+        int before = interpreter.getCycles();
+        int next = interpreter.singleExecute(linked, registers, pc);
+        long cost = interpreter.getCycles() - before;
+
+        if (cyclesSoFar + cost > budget) {
+            if (slot >= 0) {
+                regs[slot] = oldValue;
+                written[slot] = oldWritten;
+            }
+            cycles = cyclesSoFar;
+            return STOP;
+        }
+        cycles = cyclesSoFar + cost;
+        return next;
+    }
+}
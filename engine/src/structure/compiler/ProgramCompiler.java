@@ -0,0 +1,403 @@
+package structure.compiler;
+
+import structure.compiler.ClassFileBuilder.Code;
+import structure.compiler.ClassFileBuilder.Label;
+import structure.compiler.ClassFileBuilder.Op;
+import structure.execution.LinkedProgram;
+import structure.execution.RegisterLayout;
+import structure.instruction.Instruction;
+import structure.instruction.synthetic.AssignmentInstruction;
+import structure.instruction.synthetic.ConstantAssignmentInstruction;
+import structure.instruction.synthetic.JumpEqualConstantInstruction;
+import structure.instruction.synthetic.JumpEqualVariableInstruction;
+import structure.variable.Variable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles a linked (usually expanded) program into a JVM class.
+ * Every variable lives in a local {@code long}, jumps become real branches and cycles are
+ * counted in a local; QUOTE / JUMP_EQUAL_FUNCTION call back into the interpreter.
+ * Results, variable state and cycles are identical to {@code ProgramExecutorImpl}.
+ */
+public final class ProgramCompiler {
+
+    private ProgramCompiler() {}
+
+    private static final String BASE = "structure/compiler/CompiledCode";
+    private static final String RUN = "structure/compiler/CompiledRun";
+    private static final String EXEC_DESC = "(L" + RUN + ";IJ)I";
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    // fixed locals of exec(CompiledRun run, int startPc, long budget)
+    private static final int L_RUN = 1, L_START = 2, L_BUDGET = 3;
+    private static final int L_REGS = 5, L_WRITTEN = 6, L_CYCLES = 7, L_PC_OUT = 9, L_TMP = 10;
+    private static final int FIRST_FREE_LOCAL = 11;
+
+    /** Keeps all branch offsets within 16 bits. */
+    private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+    /** Returns the compiled program, or null when this program can't be compiled (it then stays interpreted). */
+    public static CompiledProgram compile(LinkedProgram linked) {
+        try {
+            String name = "structure/compiler/generated/SProgram" + SEQ.incrementAndGet();
+            byte[] bytes = new ProgramCompiler.Emitter(linked, name).emit();
+            if (bytes == null) return null;
+            Class<?> cls = new GeneratedLoader().define(name.replace('/', '.'), bytes);
+            CompiledCode code = (CompiledCode) cls.getDeclaredConstructor().newInstance();
+            return new CompiledProgram(linked, code);
+        } catch (ReflectiveOperationException | LinkageError | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /** One loader per class so a generated class can be unloaded together with its program. */
+    private static final class GeneratedLoader extends ClassLoader {
+        GeneratedLoader() { super(CompiledCode.class.getClassLoader()); }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Emitter {
+        private final LinkedProgram linked;
+        private final RegisterLayout layout;
+        private final ClassFileBuilder cf;
+        private final Code code = new Code();
+        private final Label[] at;
+        private final Label exit = new Label();
+        private final Label end = new Label();
+        private final Label save = new Label();
+        private final int[] valueLocal;
+        private final boolean[] writes;
+
+        Emitter(LinkedProgram linked, String name) {
+            this.linked = linked;
+            this.layout = linked.getLayout();
+            this.cf = new ClassFileBuilder(name, BASE);
+            this.at = new Label[linked.size()];
+            for (int i = 0; i < at.length; i++) at[i] = new Label();
+            this.valueLocal = new int[layout.size()];
+            this.writes = new boolean[layout.size()];
+        }
+
+        byte[] emit() {
+            if (!assignLocals()) return null;
+            prolog();
+            for (int pc = 0; pc < linked.size(); pc++) {
+                if (!instruction(pc)) return null;
+                if (code.length() > MAX_CODE_LENGTH) return null;
+            }
+            epilog();
+            if (code.length() > MAX_CODE_LENGTH) return null;
+            return cf.toBytes("exec", EXEC_DESC, code);
+        }
+
+        // ---------- locals ----------
+
+        private boolean assignLocals() {
+            Arrays.fill(valueLocal, -1);
+            for (int pc = 0; pc < linked.size(); pc++) {
+                Instruction ins = linked.instructionAt(pc);
+                switch (ins.getName()) {
+                    case "INCREASE", "DECREASE", "ZERO_VARIABLE", "CONSTANT_ASSIGNMENT", "QUOTE" ->
+                            markWritten(ins.getVariable());
+                    case "ASSIGNMENT" -> {
+                        markWritten(ins.getVariable());
+                        markRead(((AssignmentInstruction) ins).getToAssign());
+                    }
+                    case "JUMP_EQUAL_VARIABLE" -> {
+                        markRead(ins.getVariable());
+                        markRead(((JumpEqualVariableInstruction) ins).getToCompare());
+                    }
+                    case "NEUTRAL", "JUMP_NOT_ZERO", "JUMP_ZERO", "JUMP_EQUAL_CONSTANT",
+                         "GOTO_LABEL", "JUMP_EQUAL_FUNCTION" -> markRead(ins.getVariable());
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+            int next = FIRST_FREE_LOCAL;
+            for (int slot = 0; slot < valueLocal.length; slot++) {
+                if (valueLocal[slot] == 0) {
+                    valueLocal[slot] = next;
+                    next += 2;
+                }
+            }
+            code.maxLocals = next;
+            return next < 0xFFFF;
+        }
+
+        private void markRead(Variable v) {
+            if (v == null) return;
+            valueLocal[layout.slotOf(v)] = 0;
+        }
+
+        private void markWritten(Variable v) {
+            if (v == null) return;
+            valueLocal[layout.slotOf(v)] = 0;
+            writes[layout.slotOf(v)] = true;
+        }
+
+        private int value(Variable v) { return valueLocal[layout.slotOf(v)]; }
+
+        // ---------- frame ----------
+
+        private void prolog() {
+            code.local(Op.ALOAD, L_RUN);
+            code.op(Op.GETFIELD);
+            code.u2(cf.fieldRef(RUN, "regs", "[J"));
+            code.local(Op.ASTORE, L_REGS);
+            code.local(Op.ALOAD, L_RUN);
+            code.op(Op.GETFIELD);
+            code.u2(cf.fieldRef(RUN, "written", "[Z"));
+            code.local(Op.ASTORE, L_WRITTEN);
+            code.local(Op.ALOAD, L_RUN);
+            code.op(Op.GETFIELD);
+            code.u2(cf.fieldRef(RUN, "cycles", "J"));
+            code.local(Op.LSTORE, L_CYCLES);
+            code.op(Op.ICONST_0);
+            code.local(Op.ISTORE, L_PC_OUT);
+            code.op(Op.ICONST_0);
+            code.local(Op.ISTORE, L_TMP);
+            for (int slot = 0; slot < valueLocal.length; slot++) {
+                if (valueLocal[slot] >= 0) load(slot);
+            }
+
+            Label outside = new Label();
+            if (at.length > 0) {
+                code.local(Op.ILOAD, L_START);
+                code.tableSwitch(at, outside);
+            }
+            code.mark(outside);
+            code.local(Op.ILOAD, L_START);
+            code.local(Op.ISTORE, L_PC_OUT);
+            code.branch(Op.GOTO, save);
+        }
+
+        private void load(int slot) {
+            code.local(Op.ALOAD, L_REGS);
+            code.pushInt(slot);
+            code.op(Op.LALOAD);
+            code.local(Op.LSTORE, valueLocal[slot]);
+        }
+
+        /** Writes every local that generated code may have changed back into the register file. */
+        private void spill() {
+            for (int slot = 0; slot < writes.length; slot++) {
+                if (!writes[slot]) continue;
+                code.local(Op.ALOAD, L_REGS);
+                code.pushInt(slot);
+                code.local(Op.LLOAD, valueLocal[slot]);
+                code.op(Op.LASTORE);
+            }
+        }
+
+        private void epilog() {
+            code.mark(end);
+            code.pushInt(linked.size());
+            code.local(Op.ISTORE, L_PC_OUT);
+            code.branch(Op.GOTO, save);
+
+            code.mark(exit);
+            code.op(Op.ICONST_M1);
+            code.local(Op.ISTORE, L_PC_OUT);
+
+            code.mark(save);
+            spill();
+            code.local(Op.ALOAD, L_RUN);
+            code.local(Op.LLOAD, L_CYCLES);
+            code.op(Op.PUTFIELD);
+            code.u2(cf.fieldRef(RUN, "cycles", "J"));
+            code.local(Op.ILOAD, L_PC_OUT);
+            code.op(Op.IRETURN);
+        }
+
+        private void stopAt(int pc) {
+            code.pushInt(pc);
+            code.local(Op.ISTORE, L_PC_OUT);
+            code.branch(Op.GOTO, save);
+        }
+
+        // ---------- instructions ----------
+
+        private boolean instruction(int pc) {
+            Instruction ins = linked.instructionAt(pc);
+            code.mark(at[pc]);
+            String name = ins.getName();
+
+            if (name.equals("QUOTE") || name.equals("JUMP_EQUAL_FUNCTION")) {
+                callOut(pc, ins);
+                return true;
+            }
+
+            charge(pc, ins.cycles());
+            Variable v = ins.getVariable();
+            switch (name) {
+                case "INCREASE" -> {
+                    code.local(Op.LLOAD, value(v));
+                    code.op(Op.LCONST_1);
+                    code.op(Op.LADD);
+                    store(v);
+                }
+                case "DECREASE" -> {
+                    code.local(Op.LLOAD, value(v));
+                    code.op(Op.LCONST_1);
+                    code.op(Op.LSUB);
+                    code.op(Op.LCONST_0);
+                    code.op(Op.INVOKESTATIC);
+                    code.u2(cf.methodRef("java/lang/Math", "max", "(JJ)J"));
+                    store(v);
+                }
+                case "NEUTRAL" -> { }
+                case "ZERO_VARIABLE" -> {
+                    code.op(Op.LCONST_0);
+                    store(v);
+                }
+                case "CONSTANT_ASSIGNMENT" -> {
+                    pushIntConstant(((ConstantAssignmentInstruction) ins).getConstant());
+                    code.op(Op.I2L);
+                    store(v);
+                }
+                case "ASSIGNMENT" -> {
+                    code.local(Op.LLOAD, value(((AssignmentInstruction) ins).getToAssign()));
+                    store(v);
+                }
+                case "JUMP_NOT_ZERO" -> {
+                    code.local(Op.LLOAD, value(v));
+                    code.op(Op.LCONST_0);
+                    code.op(Op.LCMP);
+                    jumpIf(pc, Op.IFNE);
+                }
+                case "JUMP_ZERO" -> {
+                    code.local(Op.LLOAD, value(v));
+                    code.op(Op.LCONST_0);
+                    code.op(Op.LCMP);
+                    jumpIf(pc, Op.IFEQ);
+                }
+                case "JUMP_EQUAL_CONSTANT" -> {
+                    code.local(Op.LLOAD, value(v));
+                    pushIntConstant(((JumpEqualConstantInstruction) ins).getConstant());
+                    code.op(Op.I2L);
+                    code.op(Op.LCMP);
+                    jumpIf(pc, Op.IFEQ);
+                }
+                case "JUMP_EQUAL_VARIABLE" -> {
+                    code.local(Op.LLOAD, value(v));
+                    code.local(Op.LLOAD, value(((JumpEqualVariableInstruction) ins).getToCompare()));
+                    code.op(Op.LCMP);
+                    jumpIf(pc, Op.IFEQ);
+                }
+                case "GOTO_LABEL" -> jump(pc);
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Stops before the instruction when it does not fit in the budget, otherwise adds its cycles. */
+        private void charge(int pc, int cost) {
+            if (cost == 0) return;
+            Label fits = new Label();
+            code.local(Op.LLOAD, L_CYCLES);
+            code.pushInt(cost);
+            code.op(Op.I2L);
+            code.op(Op.LADD);
+            code.local(Op.LLOAD, L_BUDGET);
+            code.op(Op.LCMP);
+            code.branch(Op.IFLE, fits);
+            stopAt(pc);
+            code.mark(fits);
+            code.local(Op.LLOAD, L_CYCLES);
+            code.pushInt(cost);
+            code.op(Op.I2L);
+            code.op(Op.LADD);
+            code.local(Op.LSTORE, L_CYCLES);
+        }
+
+        /** Values stay in locals until the next spill; the written flag goes straight to the register file. */
+        private void store(Variable v) {
+            code.local(Op.LSTORE, value(v));
+            code.local(Op.ALOAD, L_WRITTEN);
+            code.pushInt(layout.slotOf(v));
+            code.op(Op.ICONST_1);
+            code.op(Op.BASTORE);
+        }
+
+        private void pushIntConstant(int c) {
+            if (c >= Short.MIN_VALUE && c <= Short.MAX_VALUE) {
+                code.pushInt(c);
+            } else {
+                code.op(Op.LDC_W);
+                code.u2(cf.integer(c));
+            }
+        }
+
+        /** Conditional jump: the int on the stack satisfies {@code opcode} -> take the instruction's jump. */
+        private void jumpIf(int pc, int opcode) {
+            int target = linked.jumpTargetAt(pc);
+            if (target > pc) {
+                code.branch(opcode, labelFor(target));
+                return;
+            }
+            // backward jumps and EXIT go through jump() so loops can be interrupted
+            Label fallThrough = new Label();
+            code.branch(opcode == Op.IFEQ ? Op.IFNE : Op.IFEQ, fallThrough);
+            jump(pc);
+            code.mark(fallThrough);
+        }
+
+        /** Unconditional jump to the instruction's resolved target, checking for cancellation on loops. */
+        private void jump(int pc) {
+            int target = linked.jumpTargetAt(pc);
+            if (target >= 0 && target <= pc) {
+                code.op(Op.INVOKESTATIC);
+                code.u2(cf.methodRef("java/lang/Thread", "currentThread", "()Ljava/lang/Thread;"));
+                code.op(Op.INVOKEVIRTUAL);
+                code.u2(cf.methodRef("java/lang/Thread", "isInterrupted", "()Z"));
+                code.branch(Op.IFEQ, at[target]);
+                stopAt(target);
+                return;
+            }
+            code.branch(Op.GOTO, labelFor(target));
+        }
+
+        private Label labelFor(int target) {
+            if (target == LinkedProgram.EXIT) return exit;
+            return (target >= at.length) ? end : at[target];
+        }
+
+        private void callOut(int pc, Instruction ins) {
+            spill();
+            code.local(Op.ALOAD, L_RUN);
+            code.pushInt(pc);
+            code.local(Op.LLOAD, L_CYCLES);
+            code.local(Op.LLOAD, L_BUDGET);
+            code.op(Op.INVOKEVIRTUAL);
+            code.u2(cf.methodRef(RUN, "callOut", "(IJJ)I"));
+            code.local(Op.ISTORE, L_TMP);
+            code.local(Op.ALOAD, L_RUN);
+            code.op(Op.GETFIELD);
+            code.u2(cf.fieldRef(RUN, "cycles", "J"));
+            code.local(Op.LSTORE, L_CYCLES);
+            if (ins.getName().equals("QUOTE")) {
+                load(layout.slotOf(ins.getVariable()));
+            }
+
+            Label proceed = new Label();
+            code.local(Op.ILOAD, L_TMP);
+            code.pushInt(CompiledRun.STOP);
+            code.branch(Op.IF_ICMPNE, proceed);
+            stopAt(pc);
+            code.mark(proceed);
+
+            code.local(Op.ILOAD, L_TMP);
+            code.pushInt(pc + 1);
+            code.branch(Op.IF_ICMPEQ, labelFor(pc + 1));
+            jump(pc);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package structure.execution;
+
+import exceptions.CallDepthExceededException;
+import structure.function.Function;
+import structure.instruction.Instruction;
+import structure.instruction.synthetic.FunctionArguments;
+import structure.label.FixedLabel;
+import structure.label.Label;
+import structure.program.Program;
+import structure.program.ProgramImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Per-thread call stack used by QUOTE / JUMP_EQUAL_FUNCTION.
+ * A call runs the function's pre-linked image in a pooled register frame (one per depth),
+ * so it allocates nothing proportional to the size of the function or the program.
+ * Argument values are staged on a per-thread operand stack, so evaluating nested
+ * argument calls such as {@code (f,(g,x1))} does not allocate either.
+ * When memoization is on (run mode only, unless {@link FunctionMemo#isEnabled()} says it is off for the JVM),
+ * calls are answered from the source program's {@link FunctionMemo}.
+ */
+public final class CallStack {
+
+    public static final int MAX_DEPTH = 1024;
+
+    private static final ThreadLocal<CallStack> CURRENT = ThreadLocal.withInitial(CallStack::new);
+
+    private final List<RegisterFile> frames = new ArrayList<>();
+    private long[] operands = new long[16];
+    private int sp = 0;
+    private int depth = 0;
+    private int lastCallCycles = 0;
+    private int argumentCycles = 0;
+    private int lastArgumentCycles = 0;
+    private int callCharge = 0;
+    private boolean memoEnabled = false;
+
+    private CallStack() {}
+
+    public static CallStack current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs {@code function} on the given inputs and returns its y.
+     * Nested calls inside the function resolve against {@code source}.
+     */
+    public long call(Function function, Program source, Long... inputs) {
+        int base = sp;
+        try {
+            for (Long input : inputs) {
+                push(input == null ? 0L : input);
+            }
+            return invoke(function, source, base);
+        } finally {
+            sp = base;
+        }
+    }
+
+    /**
+     * Evaluates {@code arguments} against the caller's registers, then runs {@code function} on them.
+     * Cycles spent in nested argument calls are reported by {@link #getLastArgumentCycles()}.
+     */
+    public long call(Function function, Program source, FunctionArguments arguments, ExecutionContext caller) {
+        int base = sp;
+        int outerArgumentCycles = argumentCycles;
+        argumentCycles = 0;
+        try {
+            for (int i = 0; i < arguments.size(); i++) {
+                long value = arguments.get(i).evaluate(caller, source, this);
+                push(value);
+            }
+            int ownArgumentCycles = argumentCycles;
+            argumentCycles = outerArgumentCycles;
+            long result = invoke(function, source, base);
+            lastArgumentCycles = ownArgumentCycles; // the body's own calls overwrote it
+            return result;
+        } finally {
+            sp = base;
+            argumentCycles = outerArgumentCycles;
+        }
+    }
+
+    private long invoke(Function function, Program source, int base) {
+        if (depth >= MAX_DEPTH) {
+            throw new CallDepthExceededException(
+                    "Function call depth exceeded " + MAX_DEPTH + " while calling '" + function.getName() + "'");
+        }
+        FunctionMemo memo = (memoEnabled && FunctionMemo.isEnabled()) ? memoOf(source) : null;
+        if (memo != null) {
+            FunctionMemo.Entry hit = memo.lookup(function.getName(), operands, base, sp);
+            if (hit != null) {
+                lastCallCycles = hit.getCycles();
+                return hit.getResult();
+            }
+        }
+        LinkedProgram image = function.getLinkedProgram();
+        RegisterFile frame = frameAt(depth, image.getLayout());
+        depth++;
+        try {
+            for (int i = base; i < sp; i++) {
+                frame.setInput(i - base + 1, operands[i]); // x(i+1) = val
+            }
+            frame.set(0, 0L); // y = 0
+
+            int cycles = 0;
+            int pc = 0;
+            while (pc >= 0 && pc < image.size()) {
+                Instruction current = image.instructionAt(pc);
+                Label next = ProgramExecutorImpl.executeInstruction(current, frame, source);
+                cycles += current.cycles() + takeCallCharge();
+                pc = (next == FixedLabel.EMPTY) ? pc + 1 : image.jumpTargetAt(pc);
+                if (Thread.currentThread().isInterrupted()) throw new CancellationException("Canceled");
+            }
+            lastCallCycles = cycles;
+            long result = frame.get(0);
+            if (memo != null) {
+                memo.store(function.getName(), operands, base, sp, result, cycles);
+            }
+            return result;
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Records what the QUOTE / JUMP_EQUAL_FUNCTION executing now costs on top of its own cycles.
+     * Kept here rather than on the instruction, so one instruction object can run on many threads at once.
+     */
+    public void chargeCall(int cycles) {
+        callCharge = cycles;
+    }
+
+    /** The charge recorded by {@link #chargeCall(int)} for the instruction that just ran, then 0. */
+    public int takeCallCharge() {
+        int charge = callCharge;
+        callCharge = 0;
+        return charge;
+    }
+
+    /** Cycles of the call that returned last on this thread. */
+    public int getLastCallCycles() {
+        return lastCallCycles;
+    }
+
+    /** Cycles of the nested argument calls evaluated for the last {@link #call(Function, Program, FunctionArguments, ExecutionContext)}. */
+    public int getLastArgumentCycles() {
+        return lastArgumentCycles;
+    }
+
+    /** Charges nested-call cycles to the argument list currently being evaluated. */
+    public void addArgumentCycles(int cycles) {
+        argumentCycles += cycles;
+    }
+
+    /**
+     * Turns memoization of function calls on or off for this thread and returns the previous setting.
+     * Only plain runs turn it on; debug sessions step through calls and never do.
+     */
+    public boolean setMemoEnabled(boolean enabled) {
+        boolean previous = memoEnabled;
+        memoEnabled = enabled;
+        return previous;
+    }
+
+    public boolean isMemoEnabled() {
+        return memoEnabled;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    private static FunctionMemo memoOf(Program source) {
+        return (source instanceof ProgramImpl impl) ? impl.getFunctionMemo() : null;
+    }
+
+    private void push(long value) {
+        if (sp == operands.length) {
+            operands = Arrays.copyOf(operands, sp * 2);
+        }
+        operands[sp++] = value;
+    }
+
+    private RegisterFile frameAt(int index, RegisterLayout layout) {
+        if (index == frames.size()) {
+            frames.add(new RegisterFile(layout));
+            return frames.get(index);
+        }
+        RegisterFile frame = frames.get(index);
+        frame.reset(layout);
+        return frame;
+    }
+}
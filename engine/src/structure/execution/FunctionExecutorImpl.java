@@ -1,36 +1,18 @@
 package structure.execution;
 
 import structure.function.Function;
-import structure.instruction.Instruction;
 import structure.program.Program;
-import structure.program.ProgramImpl;
-import structure.variable.Variable;
-
-import java.util.HashMap;
-import java.util.Map;
 
+/** Runs a single function call on the current thread's {@link CallStack}. */
 public class FunctionExecutorImpl implements FunctionExecutor {
 
     private int lastRunCycles = 0;
-    private Map<Variable, Long> finals = new HashMap<>();
 
     @Override
     public long run(Function function, Program sourceProgram, Long... inputs) {
-        ProgramImpl temp = new ProgramImpl("Function" + function.getName());
-        for (Instruction ins : function.getInstructions()) {
-            temp.addInstruction(ins);
-        }
-
-        if (sourceProgram != null) {
-            for (Function fn : sourceProgram.getFunctions()) {
-                temp.addFunction(fn);
-            }
-        }
-
-        ProgramExecutorImpl exec = new ProgramExecutorImpl(temp, temp);
-        long result = exec.run(inputs);
-        this.lastRunCycles = exec.getCycles();
-        this.finals = exec.variableState();
+        CallStack stack = CallStack.current();
+        long result = stack.call(function, sourceProgram, inputs);
+        this.lastRunCycles = stack.getLastCallCycles();
         return result;
     }
 
@@ -0,0 +1,187 @@
+package structure.execution;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memo of S function calls: (function name, inputs) -> (y, cycles).
+ * S functions only see their inputs, so a hit can stand in for running the body;
+ * the recorded cycles are still charged, so billing is identical with or without the memo.
+ * One memo belongs to one source program (function names are unique there); it is
+ * least-recently-used evicting and safe to share between threads: entries are spread over
+ * independently locked stripes, so concurrent runs of the same program rarely wait for each other.
+ * {@code -Dexecution.functionMemo=false} turns memoization off, {@code -Dexecution.functionMemoSize=N}
+ * sets the entries kept per program.
+ */
+public final class FunctionMemo {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int CAPACITY = Integer.getInteger("execution.functionMemoSize", DEFAULT_CAPACITY);
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("execution.functionMemo", "true")) && CAPACITY > 0;
+    private static final int STRIPES = 16;
+
+    // hits / misses / evictions of all memos, keyed by function name
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final Stripe[] stripes;
+
+    public FunctionMemo() {
+        this(CAPACITY);
+    }
+
+    public FunctionMemo(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        int n = Math.min(STRIPES, this.capacity);
+        int perStripe = (this.capacity + n - 1) / n;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /** False when memoization was turned off for this JVM. */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /** Cached call, or null (counted as a miss). */
+    public Entry lookup(String function, long[] inputs, int from, int to) {
+        Key probe = new Key(function, inputs, from, to); // no copy: only stored keys own their inputs
+        Stripe stripe = stripeOf(probe);
+        Entry hit;
+        synchronized (stripe) {
+            hit = stripe.get(probe);
+        }
+        Stats s = statsOf(function);
+        if (hit != null) s.hits.increment();
+        else s.misses.increment();
+        return hit;
+    }
+
+    public void store(String function, long[] inputs, int from, int to, long result, int cycles) {
+        Key key = new Key(function, Arrays.copyOfRange(inputs, from, to), 0, to - from);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, new Entry(result, cycles));
+        }
+    }
+
+    /** Drops every entry (e.g. when a function of the owning program is replaced); counters are kept. */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity() { return capacity; }
+
+    /** Counters of every memo in this JVM, keyed by function name. */
+    public static Map<String, Stats> getStats() {
+        return Collections.unmodifiableMap(STATS);
+    }
+
+    private Stripe stripeOf(Key key) {
+        int h = key.hash ^ (key.hash >>> 16);
+        return stripes[Math.floorMod(h, stripes.length)];
+    }
+
+    private static Stats statsOf(String function) {
+        Stats s = STATS.get(function);
+        return (s != null) ? s : STATS.computeIfAbsent(function, f -> new Stats());
+    }
+
+    /** One least-recently-used slice of the memo; guarded by its own monitor. */
+    private static final class Stripe extends LinkedHashMap<Key, Entry> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                statsOf(eldest.getKey().function).evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Result and cycles of one memoized call. */
+    public static final class Entry {
+        private final long result;
+        private final int cycles;
+
+        Entry(long result, int cycles) {
+            this.result = result;
+            this.cycles = cycles;
+        }
+
+        public long getResult() { return result; }
+        public int getCycles() { return cycles; }
+    }
+
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() { return hits.sum(); }
+        public long getMisses() { return misses.sum(); }
+        public long getEvictions() { return evictions.sum(); }
+    }
+
+    /** Function name plus the inputs in {@code inputs[from, to)}. */
+    private static final class Key {
+        private final String function;
+        private final long[] inputs;
+        private final int from;
+        private final int to;
+        private final int hash;
+
+        Key(String function, long[] inputs, int from, int to) {
+            this.function = function;
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            int h = function.hashCode();
+            for (int i = from; i < to; i++) {
+                h = 31 * h + Long.hashCode(inputs[i]);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return hash == other.hash && function.equals(other.function)
+                    && Arrays.equals(inputs, from, to, other.inputs, other.from, other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package structure.execution;
+
+import structure.instruction.Instruction;
+import structure.instruction.basic.JumpNotZeroInstruction;
+import structure.instruction.synthetic.*;
+import structure.label.FixedLabel;
+import structure.label.Label;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruction stream with every jump target already resolved to a pc.
+ * Built once per (expanded) program; the executor never looks labels up at run time.
+ */
+public final class LinkedProgram {
+
+    /** Target pc meaning "stop the program" (EXIT or an unknown label). */
+    public static final int EXIT = -1;
+
+    private final Instruction[] code;
+    private final int[] jumpTargets;
+    private final RegisterLayout layout;
+
+    private LinkedProgram(Instruction[] code, int[] jumpTargets, RegisterLayout layout) {
+        this.code = code;
+        this.jumpTargets = jumpTargets;
+        this.layout = layout;
+    }
+
+    public static LinkedProgram link(List<Instruction> instructions, RegisterLayout layout) {
+        Map<String, Integer> labelToIndex = new HashMap<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            Label lab = instructions.get(i).getMyLabel();
+            if (lab != null && lab != FixedLabel.EMPTY) {
+                String rep = lab.getLabelRepresentation();
+                if (rep != null && !rep.isBlank()) {
+                    labelToIndex.putIfAbsent(rep.trim(), i);
+                }
+            }
+        }
+
+        Instruction[] code = instructions.toArray(new Instruction[0]);
+        int[] targets = new int[code.length];
+        for (int pc = 0; pc < code.length; pc++) {
+            targets[pc] = resolve(targetLabelOf(code[pc]), labelToIndex, pc);
+        }
+        return new LinkedProgram(code, targets, layout);
+    }
+
+    private static int resolve(Label target, Map<String, Integer> labelToIndex, int pc) {
+        if (target == FixedLabel.EXIT) {
+            return EXIT;
+        }
+        if (target == null || target == FixedLabel.EMPTY) {
+            return pc + 1;
+        }
+        String rep = target.getLabelRepresentation();
+        if (rep == null || rep.isBlank()) {
+            return pc + 1;
+        }
+        Integer jumpTo = labelToIndex.get(rep.trim());
+        return (jumpTo == null) ? EXIT : jumpTo;
+    }
+
+    public static Label targetLabelOf(Instruction instr) {
+        return switch (instr.getName()) {
+            case "JUMP_NOT_ZERO" -> ((JumpNotZeroInstruction) instr).getTargetLabel();
+            case "JUMP_ZERO" -> ((JumpZeroInstruction) instr).getTargetLabel();
+            case "JUMP_EQUAL_CONSTANT" -> ((JumpEqualConstantInstruction) instr).getTargetLabel();
+            case "JUMP_EQUAL_VARIABLE" -> ((JumpEqualVariableInstruction) instr).getTargetLabel();
+            case "GOTO_LABEL" -> ((GoToInstruction) instr).getTarget();
+            case "JUMP_EQUAL_FUNCTION" -> ((JumpEqualFunctionInstruction) instr).getTargetLabel();
+            default -> null;
+        };
+    }
+
+    public int size() { return code.length; }
+
+    public Instruction instructionAt(int pc) { return code[pc]; }
+
+    /** Resolved pc of the jump taken by the instruction at {@code pc}. */
+    public int jumpTargetAt(int pc) { return jumpTargets[pc]; }
+
+    public RegisterLayout getLayout() { return layout; }
+}
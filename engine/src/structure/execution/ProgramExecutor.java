@@ -1,17 +1,13 @@
 package structure.execution;
 
-import structure.instruction.Instruction;
 import structure.variable.Variable;
 
-import java.util.List;
 import java.util.Map;
 
 public interface ProgramExecutor {
 
     long run(Long... input);
-    int singleExecute(List<Instruction> instructions,
-                      Map<String, Integer> labelToIndex,
-                      ExecutionContext context,
-                      int pc);
+    int singleExecute(LinkedProgram linked, ExecutionContext context, int pc);
     Map<Variable, Long> variableState();
+    int getCycles();
 }
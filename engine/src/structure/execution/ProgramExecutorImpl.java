@@ -18,108 +18,73 @@ import java.util.concurrent.CancellationException;
 public class ProgramExecutorImpl implements ProgramExecutor{
 
     private final Program program;
-    private final Program originalProgram;
     private Map<Variable, Long> lastState = new HashMap<>();
     private int cycles = 0;
 
 
-    public ProgramExecutorImpl(Program program, Program originalProgram) {
+    public ProgramExecutorImpl(Program program) {
         this.program = program;
-        this.originalProgram = originalProgram;
     }
 
     public long run(Long... input) {
-        List<Instruction> instructions = program.getInstructions();
-        Map<String, Integer> labelToIndex = new HashMap<>();
-        for (int i = 0; i < instructions.size(); i++) {
-            Label lab = instructions.get(i).getMyLabel();
-            if (lab != null && lab != FixedLabel.EMPTY) {
-                String rep = lab.getLabelRepresentation();
-                if (rep != null && !rep.isBlank()) {
-                    labelToIndex.putIfAbsent(rep.trim(), i);
-                }
-            }
-        }
+        LinkedProgram linked = linkedOf(program);
 
-        ExecutionContextImpl context = new ExecutionContextImpl();
-        List<Long> inputsList = new ArrayList<>(input.length);
+        RegisterFile context = new RegisterFile(linked.getLayout());
 
         for (int i = 0; i < input.length; i++) {
             long val = (input[i] == null ? 0L : input[i]);
-            inputsList.add(val);
             context.updateVariable(new VariableImpl(VariableType.INPUT, i + 1), val); // x(i+1) = val
         }
         context.updateVariable(Variable.RESULT, 0L);
 
+        CallStack stack = CallStack.current();
+        boolean memoWasEnabled = stack.setMemoEnabled(true);
         int pc = 0;
-        while (pc >= 0 && pc < instructions.size()) {
-            pc = singleExecute(instructions, labelToIndex, context, pc);
-            if (Thread.currentThread().isInterrupted()) throw new CancellationException("Canceled");
-        }
-        long y = context.getVariableValue(Variable.RESULT);
-
-        Map<String, Long> snap = context.snapshot();
-        Map<Variable, Long> state = new HashMap<>();
-        for (Map.Entry<String, Long> e : snap.entrySet()) {
-            String name = e.getKey();
-            long val = e.getValue();
-
-            if ("y".equals(name)) {
-                state.put(Variable.RESULT, val);
-            } else if (name.startsWith("x")) {
-                try {
-                    int idx = Integer.parseInt(name.substring(1));
-                    state.put(new VariableImpl(VariableType.INPUT, idx), val);
-                } catch (NumberFormatException ignore) {}
-            } else if (name.startsWith("z")) {
-                try {
-                    int idx = Integer.parseInt(name.substring(1));
-                    state.put(new VariableImpl(VariableType.WORK, idx), val);
-                } catch (NumberFormatException ignore) {}
+        try {
+            while (pc >= 0 && pc < linked.size()) {
+                pc = singleExecute(linked, context, pc);
+                if (Thread.currentThread().isInterrupted()) throw new CancellationException("Canceled");
             }
+        } finally {
+            stack.setMemoEnabled(memoWasEnabled);
         }
-        this.lastState = state;
-
-        ((ProgramImpl) originalProgram).addRunHistory(inputsList, y, cycles);
+        long y = context.getVariableValue(Variable.RESULT);
+        this.lastState = context.variableState();
 
         return y;
     }
 
     @Override
-    public int singleExecute(List<Instruction> instructions,
-                              Map<String, Integer> labelToIndex,
-                              ExecutionContext context,
-                              int pc) {
+    public int singleExecute(LinkedProgram linked, ExecutionContext context, int pc) {
 
-        Instruction current = instructions.get(pc);
-        Label next;
+        Instruction current = linked.instructionAt(pc);
+        Label next = executeInstruction(current, context, program);
+        cycles += current.cycles();
+        if (current instanceof QuotationInstruction || current instanceof JumpEqualFunctionInstruction) {
+            cycles += CallStack.current().takeCallCharge();
+        }
+        // an instruction either falls through or takes its own (pre-resolved) jump
+        return (next == FixedLabel.EMPTY) ? pc + 1 : linked.jumpTargetAt(pc);
+    }
+
+    /** Executes one instruction; QUOTE / JUMP_EQUAL_FUNCTION resolve their functions against {@code program}. */
+    static Label executeInstruction(Instruction current, ExecutionContext context, Program program) {
         if (current instanceof QuotationInstruction quotationInstruction) {
-            next = quotationInstruction.execute(context, program);
+            return quotationInstruction.execute(context, program);
         }
         else if(current instanceof JumpEqualFunctionInstruction jumpEqualFunctionInstruction) {
-            next = jumpEqualFunctionInstruction.execute(context, program);
-        }
-        else {
-            next = current.execute(context);
-        }
-        cycles += current.cycles();
-        if (next == FixedLabel.EXIT) {
-            return -1;
-        } else if (next == FixedLabel.EMPTY) {
-            return pc + 1;
-        } else {
-            String rep = next.getLabelRepresentation();
-            if (rep == null || rep.isBlank()) {
-                return pc + 1;
-            }
-            Integer jumpTo = labelToIndex.get(rep.trim());
-            if (jumpTo == null) {
-                return -1;
-            }
-            return jumpTo;
+            return jumpEqualFunctionInstruction.execute(context, program);
         }
+        return current.execute(context);
+    }
+
+    public static LinkedProgram linkedOf(Program program) {
+        return (program instanceof ProgramImpl impl)
+                ? impl.getLinkedProgram()
+                : LinkedProgram.link(program.getInstructions(), RegisterLayout.of(program));
     }
 
+    @Override
     public int getCycles() {
         return cycles;
     }
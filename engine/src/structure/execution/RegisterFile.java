@@ -0,0 +1,130 @@
+package structure.execution;
+
+import structure.variable.Variable;
+import structure.variable.VariableImpl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ExecutionContext backed by a flat long[] indexed by the slots of a {@link RegisterLayout}.
+ * Only variables that were written show up in snapshot()/variableState(), same as the map-based context.
+ */
+public class RegisterFile implements ExecutionContext {
+
+    private RegisterLayout layout;
+    private long[] values;
+    private boolean[] written;
+
+    public RegisterFile(RegisterLayout layout) {
+        this.layout = layout;
+        this.values = new long[layout.size()];
+        this.written = new boolean[layout.size()];
+    }
+
+    public RegisterLayout getLayout() { return layout; }
+
+    /** Backing arrays (not copies); only stable once the inputs have been written. */
+    public long[] rawValues() { return values; }
+
+    public boolean[] rawWritten() { return written; }
+
+    public long get(int slot) {
+        return values[slot];
+    }
+
+    public void set(int slot, long value) {
+        values[slot] = value;
+        written[slot] = true;
+    }
+
+    /** Clears every register and switches to {@code layout}, keeping the arrays when they are big enough. */
+    public void reset(RegisterLayout layout) {
+        this.layout = layout;
+        if (layout.size() > values.length) {
+            this.values = new long[layout.size()];
+            this.written = new boolean[layout.size()];
+        } else {
+            Arrays.fill(values, 0L);
+            Arrays.fill(written, false);
+        }
+    }
+
+    /** x{@code number} = value, widening the layout when needed. */
+    public void setInput(int number, long value) {
+        if (number > layout.getMaxInput()) {
+            widen(new RegisterLayout(number, layout.getMaxWork()));
+        }
+        set(1 + 2 * number, value);
+    }
+
+    /** Whether {@code v} has been written since the registers were cleared. */
+    public boolean isWritten(Variable v) {
+        int slot = layout.slotOf(v);
+        return slot >= 0 && written[slot];
+    }
+
+    /** Puts {@code v} back to an earlier value and written flag, undoing the one instruction that wrote it. */
+    public void rewind(Variable v, long value, boolean wasWritten) {
+        int slot = layout.slotOf(v);
+        if (slot >= 0) {
+            values[slot] = value;
+            written[slot] = wasWritten;
+        }
+    }
+
+    @Override
+    public long getVariableValue(Variable v) {
+        int slot = layout.slotOf(v);
+        return slot < 0 ? 0L : values[slot];
+    }
+
+    @Override
+    public void updateVariable(Variable v, long value) {
+        int slot = layout.slotOf(v);
+        if (slot < 0) {
+            widen(layout.widenFor(v));
+            slot = layout.slotOf(v);
+        }
+        values[slot] = value;
+        written[slot] = true;
+    }
+
+    @Override
+    public Map<String, Long> snapshot() {
+        Map<String, Long> out = new HashMap<>();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (written[slot]) {
+                out.put(layout.typeOf(slot).getVariableRepresentation(layout.numberOf(slot)), values[slot]);
+            }
+        }
+        return out;
+    }
+
+    /** Written variables in display order: y, then x ascending, then z ascending. */
+    public Map<Variable, Long> variableState() {
+        Map<Variable, Long> out = new LinkedHashMap<>();
+        if (written[0]) {
+            out.put(Variable.RESULT, values[0]);
+        }
+        for (int first = 1; first <= 2; first++) {
+            for (int slot = first; slot < values.length; slot += 2) {
+                if (written[slot]) {
+                    out.put(new VariableImpl(layout.typeOf(slot), layout.numberOf(slot)), values[slot]);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Slots never move when widening, so the arrays only have to grow. */
+    private void widen(RegisterLayout wider) {
+        this.layout = wider;
+        if (wider.size() > values.length) {
+            this.values = Arrays.copyOf(values, wider.size());
+            this.written = Arrays.copyOf(written, wider.size());
+        }
+    }
+}
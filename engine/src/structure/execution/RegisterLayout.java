@@ -0,0 +1,92 @@
+package structure.execution;
+
+import structure.instruction.Instruction;
+import structure.instruction.synthetic.AssignmentInstruction;
+import structure.instruction.synthetic.JumpEqualVariableInstruction;
+import structure.program.Program;
+import structure.variable.Variable;
+import structure.variable.VariableType;
+
+import java.util.List;
+
+/**
+ * Dense slot assignment for the variables of one program:
+ * slot 0 is y, x_i sits at 1 + 2i and z_j at 2 + 2j.
+ * Interleaving keeps every slot stable when the layout is widened (e.g. for extra inputs).
+ */
+public final class RegisterLayout {
+
+    private final int maxInput;
+    private final int maxWork;
+
+    public RegisterLayout(int maxInput, int maxWork) {
+        this.maxInput = Math.max(0, maxInput);
+        this.maxWork = Math.max(0, maxWork);
+    }
+
+    public static RegisterLayout of(Program program) {
+        return of(program.getInstructions());
+    }
+
+    public static RegisterLayout of(List<Instruction> instructions) {
+        int maxX = 0;
+        int maxZ = 0;
+        for (Instruction ins : instructions) {
+            Variable v = ins.getVariable();
+            Variable other = switch (ins.getName()) {
+                case "ASSIGNMENT" -> ((AssignmentInstruction) ins).getToAssign();
+                case "JUMP_EQUAL_VARIABLE" -> ((JumpEqualVariableInstruction) ins).getToCompare();
+                default -> null;
+            };
+            for (Variable var : new Variable[]{v, other}) {
+                if (var == null) continue;
+                if (var.getType() == VariableType.INPUT) maxX = Math.max(maxX, var.getNumber());
+                else if (var.getType() == VariableType.WORK) maxZ = Math.max(maxZ, var.getNumber());
+            }
+        }
+        return new RegisterLayout(maxX, maxZ);
+    }
+
+    public int getMaxInput() { return maxInput; }
+
+    public int getMaxWork() { return maxWork; }
+
+    public int size() {
+        return 3 + 2 * Math.max(maxInput, maxWork);
+    }
+
+    /** Returns the slot of the given variable, or -1 when it lies outside this layout. */
+    public int slotOf(Variable v) {
+        int n = v.getNumber();
+        switch (v.getType()) {
+            case RESULT:
+                return 0;
+            case INPUT:
+                return (n >= 0 && n <= maxInput) ? 1 + 2 * n : -1;
+            case WORK:
+                return (n >= 0 && n <= maxWork) ? 2 + 2 * n : -1;
+            default:
+                return -1;
+        }
+    }
+
+    public VariableType typeOf(int slot) {
+        if (slot == 0) return VariableType.RESULT;
+        return (slot % 2 == 1) ? VariableType.INPUT : VariableType.WORK;
+    }
+
+    public int numberOf(int slot) {
+        if (slot == 0) return 0;
+        return (slot - 1) / 2;
+    }
+
+    /** A layout wide enough to hold both this layout and the given variable. */
+    public RegisterLayout widenFor(Variable v) {
+        int n = Math.max(0, v.getNumber());
+        return switch (v.getType()) {
+            case INPUT -> new RegisterLayout(Math.max(maxInput, n), maxWork);
+            case WORK -> new RegisterLayout(maxInput, Math.max(maxWork, n));
+            default -> this;
+        };
+    }
+}
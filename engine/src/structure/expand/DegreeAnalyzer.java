@@ -0,0 +1,119 @@
+package structure.expand;
+
+import exceptions.InvalidDegreeException;
+import structure.function.Function;
+import structure.instruction.Instruction;
+import structure.instruction.synthetic.ArgExpr;
+import structure.instruction.synthetic.AssignmentInstruction;
+import structure.instruction.synthetic.ConstantAssignmentInstruction;
+import structure.instruction.synthetic.FunctionArguments;
+import structure.instruction.synthetic.JumpEqualFunctionInstruction;
+import structure.instruction.synthetic.QuotationInstruction;
+import structure.program.Program;
+import structure.variable.Variable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Max expansion degree without expanding the program level by level.
+ * The degree of a program is the largest degree of one of its instructions, where a basic
+ * instruction has degree 0 and a synthetic one has 1 + the largest degree of its children.
+ * QUOTE / JUMP_EQUAL_FUNCTION children are derived from the called function's body
+ * (computed once per function) instead of being cloned, so the cost is linear in the code size.
+ */
+public final class DegreeAnalyzer {
+
+    private final Program program;
+    private final ExpansionManager scratch = new ExpansionManagerImpl(1, 1);
+    private final Map<String, Integer> bodyDegrees = new HashMap<>();
+    private final Set<String> inProgress = new HashSet<>();
+
+    private DegreeAnalyzer(Program program) {
+        this.program = program;
+    }
+
+    /**
+     * Same value ProgramExpander would reach by expanding until no synthetic instruction is left.
+     * @throws InvalidDegreeException when a function (indirectly) quotes itself: such a program never flattens
+     */
+    public static int maxDegree(Program program) {
+        DegreeAnalyzer analyzer = new DegreeAnalyzer(program);
+        int max = 0;
+        for (Instruction ins : program.getInstructions()) {
+            max = Math.max(max, analyzer.degreeOf(ins));
+        }
+        return max;
+    }
+
+    private int degreeOf(Instruction ins) {
+        if (Character.toUpperCase(ins.kind()) != 'S') {
+            return 0;
+        }
+        if (ins instanceof QuotationInstruction qi) {
+            return quoteDegree(qi.getFunctionName(), qi.getArguments());
+        }
+        if (ins instanceof JumpEqualFunctionInstruction jef) {
+            // JEF -> QUOTE into a fresh z + JUMP_EQUAL_VARIABLE; the JEV part does not depend on the call
+            int quote = quoteDegree(jef.getFunctionName(), jef.getArguments());
+            int compare = 0;
+            for (Instruction child : jef.expand(scratch, program)) {
+                if (!(child instanceof QuotationInstruction)) {
+                    compare = Math.max(compare, degreeOf(child));
+                }
+            }
+            return 1 + Math.max(quote, compare);
+        }
+        int max = 0;
+        for (Instruction child : ins.expand(scratch)) {
+            max = Math.max(max, degreeOf(child));
+        }
+        return 1 + max;
+    }
+
+    /** Mirrors QuotationInstruction.expand: prolog per argument, the cloned body, then the result copy. */
+    private int quoteDegree(String functionName, FunctionArguments arguments) {
+        int max = bodyDegree(functionName);
+
+        Variable tmp = scratch.newWorkVar();
+        max = Math.max(max, degreeOf(new AssignmentInstruction(tmp, scratch.newWorkVar())));
+
+        for (int i = 0; i < arguments.size(); i++) {
+            ArgExpr arg = arguments.get(i);
+            switch (arg.getKind()) {
+                case CONSTANT:
+                    max = Math.max(max, degreeOf(
+                            new ConstantAssignmentInstruction(tmp, Math.toIntExact(arg.getConstant()))));
+                    break;
+                case CALL:
+                    max = Math.max(max, quoteDegree(arg.getFunctionName(), arg.getArguments()));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return 1 + max;
+    }
+
+    /** Largest degree in the function body; the clone keeps every instruction's kind and call. */
+    private int bodyDegree(String functionName) {
+        Integer known = bodyDegrees.get(functionName);
+        if (known != null) {
+            return known;
+        }
+        Function function = program.getFunction(functionName);
+        if (!inProgress.add(functionName)) {
+            throw new InvalidDegreeException(
+                    "Function '" + function.getUserString() + "' is recursive, its expansion degree is unbounded");
+        }
+        int max = 0;
+        for (Instruction ins : function.getInstructions()) {
+            max = Math.max(max, degreeOf(ins));
+        }
+        inProgress.remove(functionName);
+        bodyDegrees.put(functionName, max);
+        return max;
+    }
+}
@@ -0,0 +1,111 @@
+package structure.expand;
+
+import structure.function.Function;
+import structure.instruction.Instruction;
+import structure.program.ProgramImpl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every expansion level of one program computed so far, together with the ExpansionManager that produced them.
+ * Degree d+1 is derived from level d with the same manager, so labels and work variables are numbered exactly
+ * like a from-scratch expansion. Requests are serialized: concurrent callers asking for the same degree wait
+ * for one computation and then share its levels.
+ * Levels are kept as InstructionTables, every level but the deepest one compacted. The ProgramImpl of a degree
+ * is rebuilt from the tables when asked for and only weakly remembered, so it lives as long as someone
+ * (an execution image, a rendering) still uses it.
+ */
+public final class ExpansionCache {
+
+    private final ProgramImpl base;
+    private final List<InstructionTable> levels = new ArrayList<>();
+    private final List<WeakReference<ProgramImpl>> programs = new ArrayList<>();
+    private ExpansionManager mgr;
+
+    public ExpansionCache(ProgramImpl base) {
+        this.base = base;
+        levels.add(InstructionTable.of(base.getInstructions()));
+        programs.add(new WeakReference<>(base));
+    }
+
+    public synchronized ExpandResult expandTo(int degree) {
+        ensureLevels(degree);
+        return new ExpandResult(programAt(degree), levels.subList(0, degree + 1));
+    }
+
+    /** Levels 0..degree; unlike {@link #expandTo} this does not build the instruction objects of {@code degree}. */
+    public synchronized List<InstructionTable> levelsTo(int degree) {
+        ensureLevels(degree);
+        return List.copyOf(levels.subList(0, degree + 1));
+    }
+
+    /** Rows from (inclusive) .. to (exclusive) of the expansion to {@code degree}; only those rows are decoded. */
+    public synchronized List<Instruction> instructions(int degree, int from, int to) {
+        ensureLevels(degree);
+        if (degree == 0) {
+            return List.copyOf(base.getInstructions().subList(from, to));
+        }
+        List<Instruction> out = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            out.add(rowAt(degree, i));
+        }
+        return out;
+    }
+
+    /** Number of levels kept, level 0 included. */
+    public synchronized int size() {
+        return levels.size();
+    }
+
+    // caller holds the lock
+    private void ensureLevels(int degree) {
+        if (degree > 0 && mgr == null) {
+            mgr = new ExpansionManagerImpl(base.findMaxLabelIndex() + 1, base.findMaxWorkIndex() + 1);
+        }
+        while (levels.size() <= degree) {
+            int last = levels.size() - 1;
+            InstructionTable next = ProgramExpander.expandLevel(programAt(last), mgr);
+            levels.set(last, levels.get(last).compact());
+            levels.add(next);
+            programs.add(new WeakReference<>(null));
+        }
+    }
+
+    // caller holds the lock
+    private ProgramImpl programAt(int degree) {
+        if (degree == 0) {
+            return base;
+        }
+        ProgramImpl program = programs.get(degree).get();
+        if (program == null) {
+            program = new ProgramImpl(base.getName());
+            InstructionTable level = levels.get(degree);
+            if (degree == levels.size() - 1) {
+                for (Instruction ins : level.instructions()) {
+                    program.addInstruction(ins);
+                }
+            } else {
+                for (int i = 0; i < level.size(); i++) {
+                    program.addInstruction(rowAt(degree, i));
+                }
+            }
+            for (Function function : base.getFunctions()) {
+                program.addFunction(function);
+            }
+            programs.set(degree, new WeakReference<>(program));
+        }
+        return program;
+    }
+
+    // a compacted basic row is the same instruction as its only child one level deeper
+    private Instruction rowAt(int degree, int index) {
+        InstructionTable level = levels.get(degree);
+        while (!level.hasInstructionAt(index)) {
+            level = levels.get(++degree);
+            index = level.firstChildOf(index);
+        }
+        return level.instructionAt(index);
+    }
+}
@@ -0,0 +1,333 @@
+package structure.expand;
+
+import structure.instruction.Instruction;
+import structure.instruction.InstructionType;
+import structure.instruction.basic.DecreaseInstruction;
+import structure.instruction.basic.IncreaseInstruction;
+import structure.instruction.basic.JumpNotZeroInstruction;
+import structure.instruction.basic.NeutralInstruction;
+import structure.instruction.synthetic.*;
+import structure.label.Label;
+import structure.label.LabelImpl;
+import structure.variable.Variable;
+import structure.variable.VariableImpl;
+import structure.variable.VariableType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One expansion level stored column-wise: an opcode, a variable slot, a label, a jump target
+ * and a second operand (source / compared variable or constant) per instruction, plus the index
+ * of the instruction it came from in the previous level.
+ * Variables use the RegisterLayout numbering (y = 0, x_i = 1 + 2i, z_j = 2 + 2j); a label L<n> is stored
+ * as n, any other label (EXIT, EMPTY, names from the XML) as an index into a small pool.
+ * QUOTE / JUMP_EQUAL_FUNCTION (and anything the columns can't express) are kept as the original object.
+ * Instruction objects are rebuilt on demand; a level never needs them to be stored.
+ * Once the next level exists a table can be {@link #compact() compacted}: a basic instruction is carried
+ * unchanged into the next level, so only the synthetic rows keep their columns (the parent indexes stay).
+ */
+public final class InstructionTable {
+
+    private static final byte OBJECT = -1;
+    private static final int NONE = -1;
+    private static final InstructionType[] TYPES = InstructionType.values();
+    private static final Pattern GENERATED_LABEL = Pattern.compile("^L(0|[1-9]\\d*)$");
+
+    private final byte[] opcodes;
+    private final int[] variables;
+    private final int[] labels;
+    private final int[] targets;
+    private final int[] operands;
+    private final int[] parents;
+    private final int[] rows;            // row of each column entry once compacted, null while every row has one
+    private final Label[] labelPool;
+    private final Instruction[] objects; // null when every instruction fits the columns
+
+    private InstructionTable(byte[] opcodes, int[] variables, int[] labels, int[] targets, int[] operands,
+                             int[] parents, int[] rows, Label[] labelPool, Instruction[] objects) {
+        this.opcodes = opcodes;
+        this.variables = variables;
+        this.labels = labels;
+        this.targets = targets;
+        this.operands = operands;
+        this.parents = parents;
+        this.rows = rows;
+        this.labelPool = labelPool;
+        this.objects = objects;
+    }
+
+    /** Level 0: the program's own instructions, which came from nowhere. */
+    public static InstructionTable of(List<Instruction> instructions) {
+        int[] parents = new int[instructions.size()];
+        Arrays.fill(parents, NONE);
+        return encode(instructions, parents);
+    }
+
+    /** {@code parents[i]} is the index, in the previous level, of the instruction {@code instructions[i]} came from. */
+    public static InstructionTable encode(List<Instruction> instructions, int[] parents) {
+        int n = instructions.size();
+        byte[] opcodes = new byte[n];
+        int[] variables = new int[n];
+        int[] labels = new int[n];
+        int[] targets = new int[n];
+        int[] operands = new int[n];
+        Instruction[] objects = null;
+        Map<Label, Integer> poolIndex = new HashMap<>();
+        List<Label> pool = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            Instruction ins = instructions.get(i);
+            if (!encodeInto(ins, i, opcodes, variables, labels, targets, operands, poolIndex, pool)) {
+                if (objects == null) objects = new Instruction[n];
+                objects[i] = ins;
+                opcodes[i] = OBJECT;
+            }
+        }
+        return new InstructionTable(opcodes, variables, labels, targets, operands,
+                parents, null, pool.toArray(new Label[0]), objects);
+    }
+
+    /** This level with columns kept only for its synthetic rows (and rows kept as objects). */
+    public InstructionTable compact() {
+        if (rows != null) return this;
+        int kept = 0;
+        for (int c = 0; c < opcodes.length; c++) {
+            if (opcodes[c] == OBJECT || isSyntheticColumn(c)) kept++;
+        }
+        int[] keptRows = new int[kept];
+        byte[] op = new byte[kept];
+        int[] var = new int[kept];
+        int[] lab = new int[kept];
+        int[] tgt = new int[kept];
+        int[] opnd = new int[kept];
+        Instruction[] obj = (objects == null) ? null : new Instruction[kept];
+        int k = 0;
+        for (int c = 0; c < opcodes.length; c++) {
+            if (opcodes[c] != OBJECT && !isSyntheticColumn(c)) continue;
+            keptRows[k] = c;
+            op[k] = opcodes[c];
+            var[k] = variables[c];
+            lab[k] = labels[c];
+            tgt[k] = targets[c];
+            opnd[k] = operands[c];
+            if (obj != null) obj[k] = objects[c];
+            k++;
+        }
+        return new InstructionTable(op, var, lab, tgt, opnd, parents, keptRows, labelPool, obj);
+    }
+
+    private static boolean encodeInto(Instruction ins, int i, byte[] opcodes, int[] variables, int[] labels,
+                                      int[] targets, int[] operands, Map<Label, Integer> poolIndex, List<Label> pool) {
+        InstructionType type = InstructionType.valueOf(ins.getName());
+        Label target = null;
+        int operand = 0;
+        switch (type) {
+            case INCREASE:
+            case DECREASE:
+            case NEUTRAL:
+            case ZERO_VARIABLE:
+                break;
+            case JUMP_NOT_ZERO:
+                target = ((JumpNotZeroInstruction) ins).getTargetLabel();
+                break;
+            case JUMP_ZERO:
+                target = ((JumpZeroInstruction) ins).getTargetLabel();
+                break;
+            case GOTO_LABEL:
+                target = ((GoToInstruction) ins).getTarget();
+                break;
+            case CONSTANT_ASSIGNMENT:
+                operand = ((ConstantAssignmentInstruction) ins).getConstant();
+                break;
+            case JUMP_EQUAL_CONSTANT: {
+                JumpEqualConstantInstruction jec = (JumpEqualConstantInstruction) ins;
+                target = jec.getTargetLabel();
+                operand = jec.getConstant();
+                break;
+            }
+            case ASSIGNMENT:
+                operand = slotOf(((AssignmentInstruction) ins).getToAssign());
+                if (operand == NONE) return false;
+                break;
+            case JUMP_EQUAL_VARIABLE: {
+                JumpEqualVariableInstruction jev = (JumpEqualVariableInstruction) ins;
+                target = jev.getTargetLabel();
+                operand = slotOf(jev.getToCompare());
+                if (operand == NONE) return false;
+                break;
+            }
+            default:
+                return false;
+        }
+
+        Variable v = ins.getVariable();
+        int slot = slotOf(v);
+        if (slot == NONE && v != null) return false;
+
+        opcodes[i] = (byte) type.ordinal();
+        variables[i] = slot;
+        labels[i] = labelIndex(ins.getMyLabel(), poolIndex, pool);
+        targets[i] = labelIndex(target, poolIndex, pool);
+        operands[i] = operand;
+        return true;
+    }
+
+    private static int slotOf(Variable v) {
+        if (!(v instanceof VariableImpl) || v.getNumber() < 0) return NONE;
+        return switch (v.getType()) {
+            case RESULT -> v.getNumber() == 0 ? 0 : NONE;
+            case INPUT -> 1 + 2 * v.getNumber();
+            case WORK -> 2 + 2 * v.getNumber();
+        };
+    }
+
+    // n for L<n>, -2 - (pool index) otherwise
+    private static int labelIndex(Label label, Map<Label, Integer> poolIndex, List<Label> pool) {
+        if (label == null) return NONE;
+        int number = numberOf(label);
+        if (number >= 0) return number;
+        Integer known = poolIndex.get(label);
+        if (known == null) {
+            known = pool.size();
+            poolIndex.put(label, known);
+            pool.add(label);
+        }
+        return -2 - known;
+    }
+
+    private static int numberOf(Label label) {
+        if (!(label instanceof LabelImpl)) return NONE;
+        String rep = label.getLabelRepresentation();
+        Matcher m = (rep == null) ? null : GENERATED_LABEL.matcher(rep);
+        if (m == null || !m.matches()) return NONE;
+        try {
+            return Integer.parseInt(m.group(1));
+        } catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    public int size() {
+        return parents.length;
+    }
+
+    /** Index, in the previous level, of the instruction the one at {@code index} came from; -1 on level 0. */
+    public int parentOf(int index) {
+        return parents[index];
+    }
+
+    /** First index whose parent is {@code parentIndex} (parents never decrease along a level), -1 if none. */
+    public int firstChildOf(int parentIndex) {
+        int lo = 0;
+        int hi = parents.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (parents[mid] < parentIndex) lo = mid + 1;
+            else hi = mid;
+        }
+        return (lo < parents.length && parents[lo] == parentIndex) ? lo : NONE;
+    }
+
+    /** False for a compacted basic row: ask the next level, at {@link #firstChildOf}, for that instruction. */
+    public boolean hasInstructionAt(int index) {
+        return columnOf(index) != NONE;
+    }
+
+    public boolean isSynthetic(int index) {
+        int c = columnOf(index);
+        return c != NONE && isSyntheticColumn(c);
+    }
+
+    /** A fresh object for the instruction at {@code index}; see {@link #hasInstructionAt}. */
+    public Instruction instructionAt(int index) {
+        int c = columnOf(index);
+        if (c == NONE) {
+            throw new IllegalStateException("Row " + index + " was compacted away");
+        }
+        return decode(c, new Variable[0]);
+    }
+
+    /** Fresh objects for the whole level, which must not be compacted; equal variables share one object. */
+    public List<Instruction> instructions() {
+        if (rows != null) {
+            throw new IllegalStateException("Compacted level");
+        }
+        int maxSlot = 0;
+        for (int i = 0; i < size(); i++) {
+            maxSlot = Math.max(maxSlot, variables[i]);
+            if (opcodes[i] == InstructionType.ASSIGNMENT.ordinal()
+                    || opcodes[i] == InstructionType.JUMP_EQUAL_VARIABLE.ordinal()) {
+                maxSlot = Math.max(maxSlot, operands[i]);
+            }
+        }
+        Variable[] shared = new Variable[maxSlot + 1];
+        List<Instruction> out = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            out.add(decode(i, shared));
+        }
+        return out;
+    }
+
+    private int columnOf(int index) {
+        if (rows == null) return index;
+        int c = Arrays.binarySearch(rows, index);
+        return (c < 0) ? NONE : c;
+    }
+
+    private boolean isSyntheticColumn(int c) {
+        if (opcodes[c] == OBJECT) {
+            return Character.toUpperCase(objects[c].kind()) == 'S';
+        }
+        return switch (TYPES[opcodes[c]]) {
+            case INCREASE, DECREASE, NEUTRAL, JUMP_NOT_ZERO -> false;
+            default -> true;
+        };
+    }
+
+    private Instruction decode(int i, Variable[] shared) {
+        if (opcodes[i] == OBJECT) {
+            return objects[i];
+        }
+        Variable v = variable(variables[i], shared);
+        Label label = label(labels[i]);
+        Label target = label(targets[i]);
+        int operand = operands[i];
+
+        return switch (TYPES[opcodes[i]]) {
+            case INCREASE -> new IncreaseInstruction(v, label);
+            case DECREASE -> new DecreaseInstruction(v, label);
+            case NEUTRAL -> new NeutralInstruction(v, label);
+            case JUMP_NOT_ZERO -> new JumpNotZeroInstruction(v, target, label);
+            case ZERO_VARIABLE -> new ZeroVariableInstruction(v, label);
+            case GOTO_LABEL -> new GoToInstruction(v, target, label);
+            case ASSIGNMENT -> new AssignmentInstruction(v, variable(operand, shared), label);
+            case CONSTANT_ASSIGNMENT -> new ConstantAssignmentInstruction(v, operand, label);
+            case JUMP_EQUAL_CONSTANT -> new JumpEqualConstantInstruction(v, target, operand, label);
+            case JUMP_EQUAL_VARIABLE -> new JumpEqualVariableInstruction(v, target, variable(operand, shared), label);
+            case JUMP_ZERO -> new JumpZeroInstruction(v, target, label);
+            default -> throw new IllegalStateException("Unexpected opcode " + opcodes[i]);
+        };
+    }
+
+    private Label label(int code) {
+        if (code == NONE) return null;
+        return (code >= 0) ? new LabelImpl("L" + code) : labelPool[-2 - code];
+    }
+
+    private static Variable variable(int slot, Variable[] shared) {
+        if (slot == NONE) return null;
+        if (slot < shared.length && shared[slot] != null) return shared[slot];
+        Variable v;
+        if (slot == 0) v = Variable.RESULT;
+        else if (slot % 2 == 1) v = new VariableImpl(VariableType.INPUT, (slot - 1) / 2);
+        else v = new VariableImpl(VariableType.WORK, (slot - 2) / 2);
+        if (slot < shared.length) shared[slot] = v;
+        return v;
+    }
+}
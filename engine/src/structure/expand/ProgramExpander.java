@@ -1,75 +1,65 @@
 package structure.expand;
 
-import structure.function.Function;
 import structure.instruction.Instruction;
-import structure.instruction.AbstractInstruction;
 import structure.instruction.synthetic.JumpEqualFunctionInstruction;
 import structure.instruction.synthetic.QuotationInstruction;
 import structure.program.Program;
 import structure.program.ProgramImpl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public final class ProgramExpander {
 
     private ProgramExpander() {}
 
+    /** Levels 0..degree of {@code baseProgram}; levels are computed once per program and reused. */
     public static ExpandResult expandTo(Program baseProgram, int degree) {
-        if (degree == 0) {
-            List<List<Instruction>> levels0 = new ArrayList<>();
-            levels0.add(new ArrayList<>(baseProgram.getInstructions())); // level 0
-            return new ExpandResult(baseProgram, levels0);
-        }
-        ProgramImpl current = (ProgramImpl) baseProgram;
-        int nextLabel = current.findMaxLabelIndex() + 1;
-        int nextWork  = current.findMaxWorkIndex() + 1;
-        ExpansionManager mgr = new ExpansionManagerImpl(nextLabel, nextWork);
+        return ((ProgramImpl) baseProgram).getExpansionCache().expandTo(degree);
+    }
 
-        List<List<Instruction>> levels = new ArrayList<>();
-        levels.add(new ArrayList<>(current.getInstructions())); // level 0
+    /** Levels 0..degree of {@code baseProgram} without building the expanded program itself. */
+    public static List<InstructionTable> levelsTo(Program baseProgram, int degree) {
+        return ((ProgramImpl) baseProgram).getExpansionCache().levelsTo(degree);
+    }
 
-        for (int d = 0; d < degree; d++) {
-            List<Instruction> nextInstructions = new ArrayList<>();
+    /** Rows from (inclusive) .. to (exclusive), 0-based, of {@code baseProgram} expanded to {@code degree}. */
+    public static List<Instruction> instructions(Program baseProgram, int degree, int from, int to) {
+        return ((ProgramImpl) baseProgram).getExpansionCache().instructions(degree, from, to);
+    }
 
-            for (Instruction ins : current.getInstructions()) {
-                List<Instruction> children;
-                if (ins instanceof QuotationInstruction qi)
-                {
-                    children = qi.expand(mgr, current);
-                }
-                else if( ins instanceof JumpEqualFunctionInstruction jef){
-                    children = jef.expand(mgr, current);
-                }
-                else {
-                    children = ins.expand(mgr);
+    /** Expands every instruction of {@code current} once, recording for each child the index it came from. */
+    static InstructionTable expandLevel(ProgramImpl current, ExpansionManager mgr) {
+        List<Instruction> currentInstructions = current.getInstructions();
+        List<Instruction> nextInstructions = new ArrayList<>();
+        int[] parents = new int[Math.max(16, 2 * currentInstructions.size())];
 
-                }
-                final List<Instruction> parentChain = ((AbstractInstruction) ins).getFamilyTree();
-
-                for (Instruction child : children) {
-                    if (child == ins) {
-                        continue;
-                    }
-                    AbstractInstruction currentInstruction = (AbstractInstruction) child;
-                    List<Instruction> chain = new ArrayList<>(1 + parentChain.size());
-                    chain.add(ins);
-                    chain.addAll(parentChain);
-                    currentInstruction.setFamilyTree(chain);
-                }
-                nextInstructions.addAll(children);
+        for (int i = 0; i < currentInstructions.size(); i++) {
+            Instruction ins = currentInstructions.get(i);
+            List<Instruction> children;
+            if (ins instanceof QuotationInstruction qi)
+            {
+                children = qi.expand(mgr, current);
+            }
+            else if( ins instanceof JumpEqualFunctionInstruction jef){
+                children = jef.expand(mgr, current);
             }
+            else {
+                children = ins.expand(mgr);
 
-            ProgramImpl nextProgram = new ProgramImpl(current.getName());
-            for (Instruction inputInstruction : nextInstructions) {
-                nextProgram.addInstruction(inputInstruction);
             }
-            for (Function function : current.getFunctions()) {
-                nextProgram.addFunction(function);
+
+            // an instruction that does not expand points at its own copy in the previous level
+            for (Instruction child : children) {
+                if (nextInstructions.size() == parents.length) {
+                    parents = Arrays.copyOf(parents, 2 * parents.length);
+                }
+                parents[nextInstructions.size()] = i;
+                nextInstructions.add(child);
             }
-            current = nextProgram;
-            levels.add(new ArrayList<>(current.getInstructions()));
         }
-        return new ExpandResult(current, levels);
+
+        return InstructionTable.encode(nextInstructions, Arrays.copyOf(parents, nextInstructions.size()));
     }
 }
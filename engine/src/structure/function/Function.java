@@ -1,5 +1,6 @@
 package structure.function;
 
+import structure.execution.LinkedProgram;
 import structure.instruction.Instruction;
 
 import java.util.List;
@@ -9,4 +10,5 @@ public interface Function {
     String getUserString();
     void addInstruction(Instruction instruction);
     List<Instruction> getInstructions();
+    LinkedProgram getLinkedProgram();
 }
@@ -1,5 +1,7 @@
 package structure.function;
 
+import structure.execution.LinkedProgram;
+import structure.execution.RegisterLayout;
 import structure.instruction.Instruction;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -10,6 +12,7 @@ public class FunctionImpl implements Function {
     private final String name;
     private String userString;
     private final List<Instruction> instructions;
+    private transient volatile LinkedProgram linkedProgram;
 
     public FunctionImpl(String name, String userString) {
         this.name = name;
@@ -27,6 +30,7 @@ public class FunctionImpl implements Function {
     public void addInstruction(Instruction instruction) {
         if (instruction == null) return;
         instructions.add(instruction);
+        linkedProgram = null;
     }
 
     @Override
@@ -34,6 +38,17 @@ public class FunctionImpl implements Function {
         return Collections.unmodifiableList(instructions);
     }
 
+    /** Pre-linked image of the body, shared by every call of this function. */
+    @Override
+    public LinkedProgram getLinkedProgram() {
+        LinkedProgram linked = linkedProgram;
+        if (linked == null) {
+            linked = LinkedProgram.link(instructions, RegisterLayout.of(instructions));
+            linkedProgram = linked;
+        }
+        return linked;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
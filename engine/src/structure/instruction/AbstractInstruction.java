@@ -15,7 +15,6 @@ public abstract class AbstractInstruction implements Instruction, Serializable {
     private final InstructionType instType;
     private final Label myLabel;
     private final Variable variable;
-    private List<Instruction> familyTree = Collections.emptyList();
     private static final long serialVersionUID = 1L;
 
     public AbstractInstruction(InstructionKind instKind ,InstructionType type, Variable variable) {
@@ -56,12 +55,4 @@ public abstract class AbstractInstruction implements Instruction, Serializable {
     public List<Instruction> expand(ExpansionManager prog) {
         return Collections.singletonList(this);
     }
-
-    public List<Instruction> getFamilyTree() {
-        return familyTree;
-    }
-
-    public void setFamilyTree(List<Instruction> familyTree) {
-        this.familyTree = familyTree;
-    }
 }
@@ -0,0 +1,149 @@
+package structure.instruction.synthetic;
+
+import exceptions.CallDepthExceededException;
+import structure.execution.CallStack;
+import structure.execution.ExecutionContext;
+import structure.function.Function;
+import structure.program.Program;
+import structure.variable.Variable;
+import structure.variable.VariableImpl;
+import structure.variable.VariableType;
+
+import java.util.Map;
+
+/**
+ * One argument of a QUOTE / JUMP_EQUAL_FUNCTION, parsed once:
+ * a constant, a variable, a nested call {@code (f,args...)} or NONE (anything else, evaluates to 0).
+ * Immutable, so instances are shared freely between a program and its expansions.
+ */
+public final class ArgExpr {
+
+    private static final ArgExpr NONE_EMPTY = new ArgExpr(ArgKind.NONE, 0L, null, null, null, "");
+
+    private final ArgKind kind;
+    private final long constant;
+    private final Variable variable;
+    private final String functionName;
+    private final FunctionArguments arguments;
+    private final String text;
+
+    private ArgExpr(ArgKind kind, long constant, Variable variable,
+                    String functionName, FunctionArguments arguments, String text) {
+        this.kind = kind;
+        this.constant = constant;
+        this.variable = variable;
+        this.functionName = functionName;
+        this.arguments = arguments;
+        this.text = text;
+    }
+
+    public static ArgExpr ofConstant(long value) {
+        return new ArgExpr(ArgKind.CONSTANT, value, null, null, null, Long.toString(value));
+    }
+
+    public static ArgExpr ofVariable(Variable v) {
+        return new ArgExpr(ArgKind.VARIABLE, 0L, v, null, null, v.getRepresentation());
+    }
+
+    public static ArgExpr ofCall(String functionName, FunctionArguments arguments) {
+        String args = arguments.toString();
+        String text = (args == null || args.isEmpty())
+                ? "(" + functionName + ")"
+                : "(" + functionName + "," + args + ")";
+        return new ArgExpr(ArgKind.CALL, 0L, null, functionName, arguments, text);
+    }
+
+    /** Parses one (already split) top-level argument; never throws. */
+    static ArgExpr parse(String raw) {
+        String t = (raw == null) ? "" : raw.trim();
+        if (t.isEmpty()) return NONE_EMPTY;
+
+        if (t.startsWith("(") && t.endsWith(")")) {
+            String[] fa = FunctionArguments.splitFuncNameAndArgs(t);
+            return new ArgExpr(ArgKind.CALL, 0L, null, fa[0], FunctionArguments.parse(fa[1]), t);
+        }
+        if (isSignedNumber(t, 0)) {
+            try {
+                return new ArgExpr(ArgKind.CONSTANT, Long.parseLong(t), null, null, null, t);
+            } catch (NumberFormatException overflow) {
+                return new ArgExpr(ArgKind.NONE, 0L, null, null, null, t);
+            }
+        }
+        if ("y".equals(t)) {
+            return new ArgExpr(ArgKind.VARIABLE, 0L, Variable.RESULT, null, null, t);
+        }
+        char c = t.charAt(0);
+        if ((c == 'x' || c == 'z') && isSignedNumber(t, 1)) {
+            try {
+                VariableType vt = (c == 'x') ? VariableType.INPUT : VariableType.WORK;
+                Variable v = new VariableImpl(vt, Integer.parseInt(t.substring(1)));
+                return new ArgExpr(ArgKind.VARIABLE, 0L, v, null, null, t);
+            } catch (NumberFormatException overflow) {
+                return new ArgExpr(ArgKind.NONE, 0L, null, null, null, t);
+            }
+        }
+        return new ArgExpr(ArgKind.NONE, 0L, null, null, null, t);
+    }
+
+    private static boolean isSignedNumber(String s, int from) {
+        int i = from;
+        if (i < s.length() && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+        if (i >= s.length()) return false;
+        for (; i < s.length(); i++) {
+            char d = s.charAt(i);
+            if (d < '0' || d > '9') return false;
+        }
+        return true;
+    }
+
+    public ArgKind getKind() { return kind; }
+    public long getConstant() { return constant; }
+    public Variable getVariable() { return variable; }
+    public String getFunctionName() { return functionName; }
+    public FunctionArguments getArguments() { return arguments; }
+
+    /**
+     * Value of this argument in {@code ctx}. Nested calls run on {@code stack}; a nested call that fails
+     * (unknown function, ...) evaluates to 0, except when the call depth limit is hit.
+     */
+    public long evaluate(ExecutionContext ctx, Program program, CallStack stack) {
+        switch (kind) {
+            case CONSTANT:
+                return constant;
+            case VARIABLE:
+                return ctx.getVariableValue(variable);
+            case CALL:
+                try {
+                    Function f = program.getFunction(functionName);
+                    long val = stack.call(f, program, arguments, ctx);
+                    stack.addArgumentCycles(stack.getLastCallCycles() + stack.getLastArgumentCycles());
+                    return val;
+                } catch (CallDepthExceededException e) {
+                    throw e;
+                } catch (Exception ignore) {
+                    return 0L;
+                }
+            default:
+                return 0L;
+        }
+    }
+
+    /** Same expression with every variable replaced through {@code map} (unmapped ones are kept). */
+    public ArgExpr remap(Map<Variable, Variable> map) {
+        switch (kind) {
+            case VARIABLE: {
+                Variable mapped = map.get(variable);
+                return (mapped == null) ? this : ofVariable(mapped);
+            }
+            case CALL:
+                return ofCall(functionName, arguments.remap(map));
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
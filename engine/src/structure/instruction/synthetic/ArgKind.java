@@ -1,4 +1,3 @@
 package structure.instruction.synthetic;
 
-public enum ArgKind { STRING, LONG }
-
+public enum ArgKind { CONSTANT, VARIABLE, CALL, NONE }
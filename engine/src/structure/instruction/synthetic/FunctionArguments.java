@@ -0,0 +1,84 @@
+package structure.instruction.synthetic;
+
+import structure.variable.Variable;
+import utils.InstructionsHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsed {@code functionArguments} of a QUOTE / JUMP_EQUAL_FUNCTION, e.g. {@code z1,(Plus,x2,(Id,x1))}.
+ * Parsed once when the instruction is built; execution and expansion walk the tree, never the string.
+ */
+public final class FunctionArguments {
+
+    private static final InstructionsHelpers helper = new InstructionsHelpers();
+
+    private final ArgExpr[] items;
+    private final String text;
+
+    private FunctionArguments(ArgExpr[] items, String text) {
+        this.items = items;
+        this.text = text;
+    }
+
+    public static FunctionArguments parse(String functionArguments) {
+        if (functionArguments == null) {
+            return new FunctionArguments(new ArgExpr[0], null);
+        }
+        List<String> tokens = helper.splitTopArguments(functionArguments);
+        ArgExpr[] items = new ArgExpr[tokens.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = ArgExpr.parse(tokens.get(i));
+        }
+        return new FunctionArguments(items, functionArguments);
+    }
+
+    static String[] splitFuncNameAndArgs(String call) {
+        return helper.splitFuncNameAndArgs(call);
+    }
+
+    public int size() { return items.length; }
+
+    public ArgExpr get(int index) { return items[index]; }
+
+    /** Same arguments with every variable (at any nesting depth) replaced through {@code map}. */
+    public FunctionArguments remap(Map<Variable, Variable> map) {
+        if (items.length == 0) return this;
+        ArgExpr[] out = new ArgExpr[items.length];
+        for (int i = 0; i < items.length; i++) {
+            out[i] = items[i].remap(map);
+        }
+        return new FunctionArguments(out, render(out));
+    }
+
+    /** Every variable referenced at any nesting depth, in order of appearance. */
+    public List<Variable> variables() {
+        List<Variable> out = new ArrayList<>();
+        collectVariables(out);
+        return out;
+    }
+
+    private void collectVariables(List<Variable> out) {
+        for (ArgExpr a : items) {
+            if (a.getKind() == ArgKind.VARIABLE) out.add(a.getVariable());
+            else if (a.getKind() == ArgKind.CALL) a.getArguments().collectVariables(out);
+        }
+    }
+
+    private static String render(ArgExpr[] items) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < items.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(items[i]);
+        }
+        return sb.toString();
+    }
+
+    /** The source text (or a canonical rendering for arguments built by expansion). */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
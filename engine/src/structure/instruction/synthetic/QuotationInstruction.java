@@ -1,8 +1,7 @@
 package structure.instruction.synthetic;
 
 import structure.execution.ExecutionContext;
-import structure.execution.FunctionExecutor;
-import structure.execution.FunctionExecutorImpl;
+import structure.execution.CallStack;
 import structure.expand.ExpansionManager;
 import structure.function.Function;
 import structure.instruction.AbstractInstruction;
@@ -20,39 +19,29 @@ import structure.program.Program;
 import structure.variable.Variable;
 import structure.variable.VariableImpl;
 import structure.variable.VariableType;
-import utils.InstructionsHelpers;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class QuotationInstruction extends AbstractInstruction {
 
     private final String functionName;
     private final String userString;
-    private final String functionArguments;
-    private int lastFunctionCycles = 0;
-    private static InstructionsHelpers helper = new InstructionsHelpers();
+    private final FunctionArguments functionArguments;
 
     public QuotationInstruction(Variable dest,
                                 String functionName,
                                 String userString,
-                                String functionArguments) {
+                                FunctionArguments functionArguments) {
         super(InstructionKind.SYNTHETIC, InstructionType.QUOTE, dest);
         this.functionName = functionName;
         this.userString = userString;
-        if(functionArguments.startsWith("(") && functionArguments.endsWith(")"))
-        {
-
-        }
-
         this.functionArguments = functionArguments;
     }
 
     public QuotationInstruction(Variable dest,
                                 String functionName,
                                 String userString,
-                                String functionArguments,
+                                FunctionArguments functionArguments,
                                 Label myLabel) {
         super(InstructionKind.SYNTHETIC, InstructionType.QUOTE, dest, myLabel);
         this.functionName = functionName;
@@ -60,16 +49,15 @@ public class QuotationInstruction extends AbstractInstruction {
         this.functionArguments = functionArguments;
     }
 
-    @Override
-    public int cycles() {
-        return InstructionType.QUOTE.getCycles() + lastFunctionCycles;
-    }
-
     public String getFunctionName() {
         return functionName;
     }
 
     public String getFunctionArguments() {
+        return functionArguments.toString();
+    }
+
+    public FunctionArguments getArguments() {
         return functionArguments;
     }
 
@@ -80,19 +68,12 @@ public class QuotationInstruction extends AbstractInstruction {
     public Label execute(ExecutionContext context, Program program) {
         Function function;
         function = program.getFunction(functionName);
-        final int[] nestedCycles = new int[]{0};
-
-        List<ArgVal> inputsList = helper.parseFunctionInputs(functionArguments, context);
-        Long[] inputs = new Long[inputsList.size()];
-        for (int i = 0; i < inputsList.size(); i++) {
-            inputs[i] = evalArgVal(inputsList.get(i), context, program);
-        }
 
-        FunctionExecutor functionRunner = new FunctionExecutorImpl();
-        long result = functionRunner.run(function, program, inputs);
-        nestedCycles[0] += functionRunner.getLastRunCycles();
+        CallStack stack = CallStack.current();
+        long result = stack.call(function, program, functionArguments, context);
         context.updateVariable(getVariable(), result);
-        lastFunctionCycles = nestedCycles[0] + functionRunner.getLastRunCycles();
+        // QUOTE charges its call twice and ignores nested argument calls (unchanged accounting)
+        stack.chargeCall(stack.getLastCallCycles() + stack.getLastCallCycles());
         return FixedLabel.EMPTY;
     }
 
@@ -112,7 +93,7 @@ public class QuotationInstruction extends AbstractInstruction {
         Set<Label> labelSet = new LinkedHashSet<>();
         Variable y = Variable.RESULT;
 
-        Map<String, Variable> argToX = buildArgToXMap(functionArguments);
+        Map<ArgExpr, Variable> argToX = buildArgToXMap(functionArguments);
         Map<Variable, Variable> convertToZ = new LinkedHashMap<>();
         Map<Label, Label> newLabelMap = new LinkedHashMap<>();
 
@@ -195,12 +176,12 @@ public class QuotationInstruction extends AbstractInstruction {
             switch (ins.getName()) {
                 case "QUOTE": {
                     QuotationInstruction q = (QuotationInstruction) ins;
-                    addVarsFromArgs(q.getFunctionArguments(), xs, zs);
+                    addVarsFromArgs(q.getArguments(), xs, zs);
                     break;
                 }
                 case "JUMP_EQUAL_FUNCTION": {
                     JumpEqualFunctionInstruction jef = (JumpEqualFunctionInstruction) ins;
-                    addVarsFromArgs(jef.getFunctionArguments(), xs, zs);
+                    addVarsFromArgs(jef.getArguments(), xs, zs);
                     break;
                 }
             }
@@ -237,28 +218,27 @@ public class QuotationInstruction extends AbstractInstruction {
         newInstructions.add(new NeutralInstruction(getVariable(), getMyLabel()));
 
         // PROLOG: evaluate each QUOTE argument into its x#-dest zTmp
-        for (Map.Entry<String, Variable> e : argToX.entrySet()) {
-            String t = e.getKey().trim();
+        for (Map.Entry<ArgExpr, Variable> e : argToX.entrySet()) {
+            ArgExpr arg = e.getKey();
             Variable xVar = e.getValue();
             Variable dest = convertToZ.get(xVar);
 
-            Integer constant = tryParseInt(t);
-            if (constant != null) {
-                newInstructions.add(new ConstantAssignmentInstruction(dest, constant));
-                continue;
-            }
-
-            Variable src = parseVariableToken(t); // y / x# / z#
-            if (src != null) {
-                newInstructions.add(new AssignmentInstruction(dest, src));
-                continue;
+            switch (arg.getKind()) {
+                case CONSTANT:
+                    newInstructions.add(new ConstantAssignmentInstruction(dest, Math.toIntExact(arg.getConstant())));
+                    break;
+                case VARIABLE: // y / x# / z#
+                    newInstructions.add(new AssignmentInstruction(dest, arg.getVariable()));
+                    break;
+                case CALL: {
+                    String funcName = arg.getFunctionName();
+                    String funcUserString = program.getFunction(funcName).getUserString();
+                    newInstructions.add(new QuotationInstruction(dest, funcName, funcUserString, arg.getArguments()));
+                    break;
+                }
+                default:
+                    break;
             }
-
-            String[] fa = helper.splitFuncNameAndArgs(t);
-            String funcName = fa[0];
-            String funcArgs = fa[1];
-            String funcUserString = program.getFunction(funcName).getUserString();
-            newInstructions.add(new QuotationInstruction(dest, funcName, funcUserString, funcArgs));
         }
 
         // ensure mapping for function result 'y'
@@ -361,7 +341,7 @@ public class QuotationInstruction extends AbstractInstruction {
                     Label target = mapTarget.apply(jef.getTargetLabel());
                     String fname = jef.getFunctionName();
                     String ustr  = jef.getUserString();
-                    String fargs = remapFunctionArguments(jef.getFunctionArguments(), convertToZ);
+                    FunctionArguments fargs = jef.getArguments().remap(convertToZ);
                     newInstructions.add(new JumpEqualFunctionInstruction(v, target, fname, ustr, fargs, myLabel));
                     break;
                 }
@@ -370,7 +350,7 @@ public class QuotationInstruction extends AbstractInstruction {
                     Variable dest = convertToZ.get(q.getVariable());
                     String fname = q.getFunctionName();
                     String ustr  = q.getUserString();
-                    String fargs = remapFunctionArguments(q.getFunctionArguments(), convertToZ);
+                    FunctionArguments fargs = q.getArguments().remap(convertToZ);
                     newInstructions.add(new QuotationInstruction(dest, fname, ustr, fargs, myLabel));
                     break;
                 }
@@ -390,102 +370,13 @@ public class QuotationInstruction extends AbstractInstruction {
 
     /* ===== helpers ===== */
 
-    private static final Pattern X_IN_ARGS = Pattern.compile("\\bx(\\d+)\\b");
-    private static final Pattern Z_IN_ARGS = Pattern.compile("\\bz(\\d+)\\b");
-
-    private static void addVarsFromArgs(String args, SortedSet<Integer> xs, SortedSet<Integer> zs) {
-        if (args == null || args.isBlank()) return;
-        Matcher mx = X_IN_ARGS.matcher(args);
-        while (mx.find()) {
-            try { xs.add(Integer.parseInt(mx.group(1))); } catch (Exception ignore) {}
-        }
-        Matcher mz = Z_IN_ARGS.matcher(args);
-        while (mz.find()) {
-            try { zs.add(Integer.parseInt(mz.group(1))); } catch (Exception ignore) {}
+    private static void addVarsFromArgs(FunctionArguments args, SortedSet<Integer> xs, SortedSet<Integer> zs) {
+        for (Variable v : args.variables()) {
+            if (v.getType() == VariableType.INPUT) xs.add(v.getNumber());
+            else if (v.getType() == VariableType.WORK) zs.add(v.getNumber());
         }
     }
 
-    private String remapFunctionArguments(String args, Map<Variable, Variable> map) {
-        if (args == null || args.isBlank()) return args;
-        StringBuilder out = new StringBuilder(args.length());
-        int i = 0, n = args.length();
-        while (i < n) {
-            char c = args.charAt(i);
-            if (Character.isLetterOrDigit(c) || c == '_') {
-                int j = i + 1;
-                while (j < n) {
-                    char cj = args.charAt(j);
-                    if (Character.isLetterOrDigit(cj) || cj == '_') j++; else break;
-                }
-                String tok = args.substring(i, j);
-                out.append(remapToken(tok, map));
-                i = j;
-            } else {
-                out.append(c);
-                i++;
-            }
-        }
-        return out.toString();
-    }
-
-    private String remapToken(String tok, Map<Variable, Variable> map) {
-        if ("y".equals(tok)) {
-            Variable v = map.get(Variable.RESULT);
-            if (v instanceof VariableImpl) return v.getRepresentation();
-            return tok;
-        }
-        if (tok.length() >= 2 && tok.charAt(0) == 'x') {
-            try {
-                int idx = Integer.parseInt(tok.substring(1));
-                Variable v = map.get(new VariableImpl(VariableType.INPUT, idx));
-                if (v instanceof VariableImpl) return v.getRepresentation();
-                return tok;
-            } catch (NumberFormatException ignore) { return tok; }
-        }
-        if (tok.length() >= 2 && tok.charAt(0) == 'z') {
-            try {
-                int idx = Integer.parseInt(tok.substring(1));
-                Variable v = map.get(new VariableImpl(VariableType.WORK, idx));
-                if (v instanceof VariableImpl) return v.getRepresentation();
-                return tok;
-            } catch (NumberFormatException ignore) { return tok; }
-        }
-        return tok; // function names / CONST0 / NOT / etc.
-    }
-
-
-    private Long evalArgVal(ArgVal a, ExecutionContext ctx, Program program) {
-        if (a.getKind() == ArgKind.LONG) {
-            return a.getLongValue();
-        }
-        String t = a.getText();
-
-        if (t.startsWith("(") && t.endsWith(")")) {
-            String[] fa = helper.splitFuncNameAndArgs(t);
-            String fname = fa[0];
-            String fargs = fa[1];
-
-            try {
-                Function f = program.getFunction(fname);
-                List<ArgVal> nested = helper.parseFunctionInputs(fargs, ctx);
-
-                Long[] nestedInputs = new Long[nested.size()];
-                for (int i = 0; i < nested.size(); i++) {
-                    nestedInputs[i] = evalArgVal(nested.get(i), ctx, program);
-                }
-
-                FunctionExecutor runner = new FunctionExecutorImpl();
-                long val = runner.run(f, program, nestedInputs);
-                lastFunctionCycles += runner.getLastRunCycles();
-
-                return val;
-            } catch (Exception ignore) {
-                return 0L;
-            }
-        }
-        return 0L;
-    }
-
     private void addVar(Variable v, SortedSet<Integer> xs, SortedSet<Integer> zs) {
         if (v == null || v == Variable.RESULT) return;
         VariableType t = v.getType();
@@ -502,37 +393,13 @@ public class QuotationInstruction extends AbstractInstruction {
         labels.add(lbl);
     }
 
-    private Map<String, Variable> buildArgToXMap(String functionArguments) {
-        Map<String, Variable> map = new LinkedHashMap<>();
-        if (functionArguments == null || functionArguments.isBlank()) return map;
-
-        List<String> items = helper.splitTopArguments(functionArguments);
-        int idx = 1;
-        for (String key : items) {
-            String k = (key == null) ? "" : key.trim();
-            if (!k.isEmpty()) map.putIfAbsent(k, new VariableImpl(VariableType.INPUT, idx));
-            idx++;
+    private Map<ArgExpr, Variable> buildArgToXMap(FunctionArguments functionArguments) {
+        Map<ArgExpr, Variable> map = new LinkedHashMap<>();
+        for (int i = 0; i < functionArguments.size(); i++) {
+            ArgExpr arg = functionArguments.get(i);
+            if (arg.getKind() != ArgKind.NONE) map.put(arg, new VariableImpl(VariableType.INPUT, i + 1));
         }
         return map;
     }
 
-    private Integer tryParseInt(String s) {
-        try { return Integer.valueOf(s); }
-        catch (NumberFormatException ignore) { return null; }
-    }
-
-    private Variable parseVariableToken(String t) {
-        if ("y".equals(t)) return Variable.RESULT;
-        if (t.length() >= 2) {
-            char kind = t.charAt(0);
-            if (kind == 'x' || kind == 'z') {
-                int idx = Integer.parseInt(t.substring(1));
-                return (kind == 'x')
-                        ? new VariableImpl(VariableType.INPUT, idx)
-                        : new VariableImpl(VariableType.WORK, idx);
-            }
-        }
-        return null;
-    }
-
 }
@@ -2,18 +2,21 @@ package structure.program;
 
 import exceptions.UndefinedFunctionException;
 import exceptions.UndefinedLabelException;
-import structure.expand.ExpandResult;
-import structure.expand.ProgramExpander;
+import structure.compiler.CompiledProgram;
+import structure.compiler.ProgramCompiler;
+import structure.execution.FunctionMemo;
+import structure.execution.LinkedProgram;
+import structure.execution.RegisterLayout;
+import structure.expand.DegreeAnalyzer;
+import structure.expand.ExpansionCache;
 import structure.function.Function;
 import structure.instruction.Instruction;
-import structure.instruction.basic.JumpNotZeroInstruction;
 import structure.instruction.synthetic.*;
 import structure.label.FixedLabel;
 import structure.label.Label;
 import structure.variable.Variable;
 import structure.variable.VariableType;
 import utils.InstructionsHelpers;
-import utils.RunHistory;
 
 import java.io.Serializable;
 import java.util.*;
@@ -24,12 +27,17 @@ public class ProgramImpl implements Program, Serializable {
 
     private final String name;
     private final List<Instruction> instructions;
-    private final List<RunHistory> runHistory = new ArrayList<>();
     private final List<Function> functions;
     private final Map<String, Function> stringFunctionMap = new LinkedHashMap<>();
-    private int currentRunDegree = 0;
     private static final Pattern LBL_PATTERN = Pattern.compile("^L(\\d+)$");
     private final InstructionsHelpers helper = new InstructionsHelpers();
+    private transient volatile RegisterLayout registerLayout;
+    private transient volatile LinkedProgram linkedProgram;
+    private transient volatile Optional<CompiledProgram> compiledProgram;
+    private transient volatile FunctionMemo functionMemo;
+    private transient volatile Integer maxDegree;
+    private transient volatile ExpansionCache expansionCache;
+    private transient volatile int version;
     private static final long serialVersionUID = 1L;
 
     public ProgramImpl(String name) {
@@ -46,6 +54,12 @@ public class ProgramImpl implements Program, Serializable {
     @Override
     public void addInstruction(Instruction instruction) {
         instructions.add(instruction);
+        registerLayout = null;
+        linkedProgram = null;
+        compiledProgram = null;
+        maxDegree = null;
+        expansionCache = null;
+        version++;
     }
 
     @Override
@@ -73,6 +87,11 @@ public class ProgramImpl implements Program, Serializable {
         String name = function.getName();
         functions.add(function);
         stringFunctionMap.put(name, function);
+        maxDegree = null;
+        expansionCache = null;
+        version++;
+        FunctionMemo memo = functionMemo;
+        if (memo != null) memo.clear();
     }
 
     @Override
@@ -94,15 +113,7 @@ public class ProgramImpl implements Program, Serializable {
         for (int i = 0; i < instructions.size(); i++) {
             Instruction instr = instructions.get(i);
 
-            Label targetLabel = switch (instr.getName()) {
-                case "JUMP_NOT_ZERO" -> ((JumpNotZeroInstruction) instr).getTargetLabel();
-                case "JUMP_ZERO" -> ((JumpZeroInstruction) instr).getTargetLabel();
-                case "JUMP_EQUAL_CONSTANT" -> ((JumpEqualConstantInstruction) instr).getTargetLabel();
-                case "JUMP_EQUAL_VARIABLE" -> ((JumpEqualVariableInstruction) instr).getTargetLabel();
-                case "GOTO_LABEL" -> ((GoToInstruction) instr).getTarget();
-                case "JUMP_EQUAL_FUNCTION" -> ((JumpEqualFunctionInstruction) instr).getTargetLabel();
-                default -> null;
-            };
+            Label targetLabel = LinkedProgram.targetLabelOf(instr);
 
             if (targetLabel != null &&
                     targetLabel != FixedLabel.EMPTY &&
@@ -168,15 +179,67 @@ public class ProgramImpl implements Program, Serializable {
         return "instruction #" + oneBasedIndex;
     }
 
-    public void setCurrentRunDegree(int degree) { this.currentRunDegree = Math.max(0, degree); }
+    public RegisterLayout getRegisterLayout() {
+        RegisterLayout layout = registerLayout;
+        if (layout == null) {
+            layout = RegisterLayout.of(instructions);
+            registerLayout = layout;
+        }
+        return layout;
+    }
+
+    public LinkedProgram getLinkedProgram() {
+        LinkedProgram linked = linkedProgram;
+        if (linked == null) {
+            linked = LinkedProgram.link(instructions, getRegisterLayout());
+            linkedProgram = linked;
+        }
+        return linked;
+    }
+
+    /** The generated JVM class for this program, or null when it can't be compiled. */
+    public CompiledProgram getCompiledProgram() {
+        Optional<CompiledProgram> compiled = compiledProgram;
+        if (compiled == null) {
+            compiled = Optional.ofNullable(ProgramCompiler.compile(getLinkedProgram()));
+            compiledProgram = compiled;
+        }
+        return compiled.orElse(null);
+    }
+
+    /** Memoized function calls of runs over this program (see {@link structure.execution.CallStack}). */
+    public FunctionMemo getFunctionMemo() {
+        FunctionMemo memo = functionMemo;
+        if (memo == null) {
+            synchronized (this) {
+                memo = functionMemo;
+                if (memo == null) {
+                    memo = new FunctionMemo();
+                    functionMemo = memo;
+                }
+            }
+        }
+        return memo;
+    }
 
-    public void addRunHistory(List<Long> inputs, long yValue, int cycles) {
-        int runNumber = runHistory.size() + 1;
-        runHistory.add(new RunHistory(runNumber, currentRunDegree, inputs, yValue, cycles));
+    /** Bumped whenever an instruction or function is added; images prepared for an older version are stale. */
+    public int getVersion() {
+        return version;
     }
 
-    public List<RunHistory> getRunHistory() {
-        return Collections.unmodifiableList(runHistory);
+    /** Expansion levels of this program, kept until an instruction or function is added. */
+    public ExpansionCache getExpansionCache() {
+        ExpansionCache cache = expansionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = expansionCache;
+                if (cache == null) {
+                    cache = new ExpansionCache(this);
+                    expansionCache = cache;
+                }
+            }
+        }
+        return cache;
     }
 
     public int findMaxLabelIndex() {
@@ -231,27 +294,14 @@ public class ProgramImpl implements Program, Serializable {
         }
     }
 
+    /** Cached until an instruction or function is added (e.g. when an upload attaches functions). */
     @Override
     public int calculateMaxDegree() {
-        int degree = 0;
-        while (true) {
-            ExpandResult res = ProgramExpander.expandTo(this, degree);
-            List<List<Instruction>> levels = res.getLevels();
-            List<Instruction> lastLevel = levels.isEmpty()
-                    ? List.of()
-                    : levels.getLast();
-
-            boolean hasSynthetic = false;
-            for (Instruction ins : lastLevel) {
-                if (Character.toUpperCase(ins.kind()) == 'S') {
-                    hasSynthetic = true;
-                    break;
-                }
-            }
-            if (!hasSynthetic) {
-                return degree;
-            }
-            degree++;
+        Integer cached = maxDegree;
+        if (cached == null) {
+            cached = DegreeAnalyzer.maxDegree(this);
+            maxDegree = cached;
         }
+        return cached;
     }
 }
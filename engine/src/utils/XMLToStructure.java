@@ -138,7 +138,7 @@ public class XMLToStructure {
 
             case QUOTE: {
                 String fName = getArgumentValue(sInstruction, "functionName");
-                String fArgs = getArgumentValue(sInstruction, "functionArguments");
+                FunctionArguments fArgs = FunctionArguments.parse(getArgumentValue(sInstruction, "functionArguments"));
                 String userString=functionDisplayMap.get(fName);
                 return label != null
                         ? new QuotationInstruction(variable, fName, userString, fArgs, label)
@@ -147,7 +147,7 @@ public class XMLToStructure {
 
             case JUMP_EQUAL_FUNCTION: {
                 String fName = getArgumentValue(sInstruction, "functionName");
-                String fArgs = getArgumentValue(sInstruction, "functionArguments");
+                FunctionArguments fArgs = FunctionArguments.parse(getArgumentValue(sInstruction, "functionArguments"));
                 String userString=functionDisplayMap.get(fName);
                 String jefText = getArgumentValue(sInstruction, "JEFunctionLabel");
                 Label jefLabel = jefText != null ? new LabelImpl(jefText) : null;
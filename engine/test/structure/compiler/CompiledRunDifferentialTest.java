@@ -0,0 +1,187 @@
+package structure.compiler;
+
+import api.DebugAPI;
+import api.DisplayAPI;
+import api.RunSession;
+import exceptions.InvalidDegreeException;
+import execution.ExecutionDTO;
+import execution.ExecutionRequestDTO;
+import execution.VarValueDTO;
+import execution.debug.DebugStopDTO;
+import exportToDTO.DisplayAPIImpl;
+import exportToDTO.LoadAPIImpl;
+import exportToDTO.RunSessionImpl;
+import structure.expand.ProgramExpander;
+import structure.program.ProgramImpl;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Differential test of the generated classes (ProgramCompiler / ClassFileBuilder) against the interpreter.
+ * For every program, degree and input below it compares
+ * <ul>
+ *   <li>a whole run: y, every variable and the cycles;</li>
+ *   <li>a run cut by a credit budget, for budgets on both sides of every cycle count the program passes
+ *       through: where the generated code stops (pc, cycles, variables, budget flag) against the
+ *       interpreted RunSession and the debugger's runUntil, then the rest of the run after resuming;</li>
+ *   <li>a run advanced in small chunks against the same run in one go.</li>
+ * </ul>
+ * The programs (test-resources/programs) cover every instruction kind, QUOTE and JUMP_EQUAL_FUNCTION
+ * with nested calls, and recursive functions.
+ * No test framework: run the class; it prints each mismatch and exits with status 1 if there was any.
+ */
+public final class CompiledRunDifferentialTest {
+
+    private static final String[] PROGRAMS = { "mul.xml", "func.xml", "two.xml", "rec.xml" };
+    private static final List<List<Long>> INPUTS = List.of(
+            List.of(3L, 4L, 2L),
+            List.of(0L, 0L),
+            List.of(5L, 1L, 7L),
+            List.of());
+    private static final int MAX_DEGREE_TESTED = 3;
+    private static final int[] CHUNKS = { 1, 3, 7 };
+
+    private final List<String> failures = new ArrayList<>();
+    private int checks = 0;
+
+    public static void main(String[] args) throws Exception {
+        CompiledRunDifferentialTest test = new CompiledRunDifferentialTest();
+        for (String name : PROGRAMS) {
+            test.checkProgram(name);
+        }
+        test.failures.forEach(System.out::println);
+        System.out.println(test.checks + " checks, " + test.failures.size() + " failed");
+        if (!test.failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private void checkProgram(String name) throws Exception {
+        DisplayAPI display;
+        try (InputStream xml = CompiledRunDifferentialTest.class.getResourceAsStream("/programs/" + name)) {
+            if (xml == null) throw new IllegalStateException("missing test program " + name);
+            display = new LoadAPIImpl().loadFromXml(xml);
+        }
+        ProgramImpl program = (ProgramImpl) ((DisplayAPIImpl) display).getProgram();
+
+        int maxDegree;
+        try {
+            maxDegree = program.calculateMaxDegree();
+        } catch (InvalidDegreeException recursive) {
+            maxDegree = 0; // recursive functions are only run unexpanded
+        }
+        for (int degree = 0; degree <= Math.min(maxDegree, MAX_DEGREE_TESTED); degree++) {
+            ProgramImpl expanded = (degree == 0)
+                    ? program
+                    : (ProgramImpl) ProgramExpander.expandTo(program, degree).getExpandedProgram();
+            check(expanded.getCompiledProgram() != null, name + " degree " + degree + ": did not compile");
+
+            for (List<Long> inputs : INPUTS) {
+                String where = name + " degree " + degree + " inputs " + inputs;
+                ExecutionRequestDTO request = new ExecutionRequestDTO(degree, inputs, "I");
+
+                ExecutionDTO interpreted = display.executionForDegree(degree).execute(request);
+                ExecutionDTO compiled = display.compiledExecutionForDegree(degree).execute(request);
+                checkSame(where + " execute", interpreted, compiled);
+
+                // sessions report the variables a run has written (like the debugger), execute() the ones the
+                // program mentions, so sessions are held against an interpreted session run in one go
+                RunSession reference = display.executionForDegree(degree).startRun(request);
+                reference.advance(Long.MAX_VALUE, Long.MAX_VALUE);
+                ExecutionDTO whole = reference.result();
+                checkEqual(where + " session y", interpreted.getyValue(), whole.getyValue());
+                checkEqual(where + " session cycles", interpreted.getTotalCycles(), whole.getTotalCycles());
+
+                checkBudgets(display, request, whole, where);
+                checkChunks(display, request, whole, where);
+            }
+        }
+    }
+
+    /** Stops the run at every budget around the cycle counts it passes through, then lets it finish. */
+    private void checkBudgets(DisplayAPI display, ExecutionRequestDTO request, ExecutionDTO full, String where) {
+        int degree = request.getDegree();
+        for (long budget : budgetsAround(display, request)) {
+            String at = where + " budget " + budget;
+
+            RunSessionImpl compiled = (RunSessionImpl) display.compiledExecutionForDegree(degree).startRun(request);
+            RunSessionImpl interpreted = (RunSessionImpl) display.executionForDegree(degree).startRun(request);
+            compiled.advance(Long.MAX_VALUE, budget);
+            interpreted.advance(Long.MAX_VALUE, budget);
+
+            DebugAPI debugger = display.debugForDegree(degree);
+            debugger.init(request);
+            DebugStopDTO stop = debugger.runUntil(Set.of(), List.of(), budget);
+
+            check(compiled.getCyclesSoFar() <= budget, at + ": spent " + compiled.getCyclesSoFar());
+            checkEqual(at + " cycles", interpreted.getCyclesSoFar(), compiled.getCyclesSoFar());
+            checkEqual(at + " cycles (debugger)", stop.getState().getCyclesSoFar(), compiled.getCyclesSoFar());
+            checkEqual(at + " pc", interpreted.getPc(), compiled.getPc());
+            checkEqual(at + " finished", interpreted.isFinished(), compiled.isFinished());
+            checkEqual(at + " budget exhausted", interpreted.isBudgetExhausted(), compiled.isBudgetExhausted());
+            checkEqual(at + " budget exhausted (debugger)",
+                    stop.getReason() == DebugStopDTO.Reason.BUDGET, compiled.isBudgetExhausted());
+            if (!compiled.isFinished()) {
+                checkEqual(at + " pc (debugger)", stop.getState().getPc(), compiled.getPc());
+            }
+            checkEqual(at + " variables", vars(interpreted.result().getFinals()), vars(compiled.result().getFinals()));
+            checkEqual(at + " variables (debugger)", vars(stop.getState().getVars()), vars(compiled.result().getFinals()));
+
+            compiled.advance(Long.MAX_VALUE, Long.MAX_VALUE);
+            check(compiled.isFinished(), at + ": not finished after resuming");
+            checkSame(at + " resumed", full, compiled.result());
+        }
+    }
+
+    /** Every cycle count the run passes through (from the debugger), with the budgets one below and above. */
+    private static Set<Long> budgetsAround(DisplayAPI display, ExecutionRequestDTO request) {
+        Set<Long> budgets = new TreeSet<>();
+        budgets.add(0L);
+        DebugAPI debugger = display.debugForDegree(request.getDegree());
+        debugger.init(request);
+        while (!debugger.isTerminated()) {
+            long cycles = debugger.step().getNewState().getCyclesSoFar();
+            if (cycles > 0) budgets.add(cycles - 1);
+            budgets.add(cycles);
+            budgets.add(cycles + 1);
+        }
+        return budgets;
+    }
+
+    private void checkChunks(DisplayAPI display, ExecutionRequestDTO request, ExecutionDTO full, String where) {
+        for (int chunk : CHUNKS) {
+            RunSession run = display.compiledExecutionForDegree(request.getDegree()).startRun(request);
+            while (!run.isFinished()) {
+                run.advance(chunk, Long.MAX_VALUE);
+            }
+            checkSame(where + " chunks of " + chunk, full, run.result());
+        }
+    }
+
+    private void checkSame(String where, ExecutionDTO expected, ExecutionDTO actual) {
+        checkEqual(where + " y", expected.getyValue(), actual.getyValue());
+        checkEqual(where + " cycles", expected.getTotalCycles(), actual.getTotalCycles());
+        checkEqual(where + " variables", vars(expected.getFinals()), vars(actual.getFinals()));
+    }
+
+    private void checkEqual(String what, Object expected, Object actual) {
+        check(expected.equals(actual), what + ": expected " + expected + " but was " + actual);
+    }
+
+    private void check(boolean ok, String failure) {
+        checks++;
+        if (!ok) failures.add(failure);
+    }
+
+    private static String vars(List<VarValueDTO> values) {
+        StringBuilder out = new StringBuilder();
+        for (VarValueDTO v : values) {
+            out.append(v.getVar().getVariable()).append(v.getVar().getIndex()).append('=').append(v.getValue()).append(' ');
+        }
+        return out.toString().trim();
+    }
+}
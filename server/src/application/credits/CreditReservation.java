@@ -0,0 +1,116 @@
+package application.credits;
+
+import users.UserManager;
+import users.UserTableRow;
+
+/**
+ * Credits held by one running job.
+ * The job reserves a small block of the user's credits up front and a block twice as big (up to a cap)
+ * each time it runs low, so a short run holds little. It draws the blocks down locally (no shared
+ * atomics in the hot loop) and on close refunds what is left and records everything it spent as used
+ * in a single settlement. Reserved credits are out of the user's balance, so parallel jobs of the same
+ * user can never spend more than the user has; the user's displayed credits still count what is
+ * reserved and not spent yet.
+ * Not thread-safe: one reservation belongs to one job (only {@link #unspent()} is read by others).
+ */
+public final class CreditReservation implements AutoCloseable, UserTableRow.CreditHold {
+
+    private final UserTableRow row;
+    private final int maxBlock;
+    private int block;
+    private volatile long balance; // volatile for unspent(); written by the owning job only
+    private long spent;
+    private boolean closed;
+
+    private CreditReservation(UserTableRow row, int firstBlock, int maxBlock) {
+        this.row = row;
+        this.maxBlock = Math.max(1, maxBlock);
+        this.block = Math.min(Math.max(1, firstBlock), this.maxBlock);
+    }
+
+    /**
+     * Opens a reservation for {@code username} and reserves {@code firstBlock}; later blocks double up to
+     * {@code maxBlock}. Without a user (anonymous runs) the reservation is unlimited and settles nothing.
+     */
+    public static CreditReservation open(UserManager users, String username, int firstBlock, int maxBlock) {
+        if (username == null) {
+            CreditReservation unlimited = new CreditReservation(null, firstBlock, maxBlock);
+            unlimited.balance = Long.MAX_VALUE;
+            return unlimited;
+        }
+        UserTableRow row = users.addIfAbsent(username);
+        CreditReservation reservation = new CreditReservation(row, firstBlock, maxBlock);
+        row.addHold(reservation);
+        reservation.topUp();
+        return reservation;
+    }
+
+    /**
+     * Takes {@code amount} credits from {@code username}'s balance at once (e.g. a generation's upfront cost
+     * or a debug step), through the same reservation as a running job; false, and nothing taken, when the
+     * balance does not cover it. Anonymous users are not charged.
+     */
+    public static boolean charge(UserManager users, String username, int amount) {
+        if (amount <= 0) return true;
+        try (CreditReservation reservation = open(users, username, amount, amount)) {
+            if (reservation.balance() < amount) return false;
+            reservation.spend(amount);
+            return true;
+        }
+    }
+
+    public boolean isUnlimited() {
+        return row == null;
+    }
+
+    /** Credits this job may still spend without reserving more. */
+    public long balance() {
+        return balance;
+    }
+
+    public long getSpent() {
+        return spent;
+    }
+
+    /** Draws {@code amount} from the local balance; callers check {@link #balance()} first. */
+    public void spend(long amount) {
+        if (amount <= 0) return;
+        if (amount > balance) {
+            throw new IllegalStateException("spend " + amount + " exceeds reserved balance " + balance);
+        }
+        balance -= amount;
+        if (!isUnlimited()) spent += amount;
+    }
+
+    /** Reserves another block from the user's balance; false when nothing more could be reserved. */
+    public boolean topUp() {
+        if (isUnlimited() || closed) return false;
+        int granted = row.reserveCredits(block);
+        balance += granted;
+        block = Math.min(maxBlock, block * 2);
+        return granted > 0;
+    }
+
+    /** Makes sure at least {@code amount} credits are held, reserving more as needed. */
+    public boolean ensure(long amount) {
+        while (balance < amount) {
+            if (!topUp()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long unspent() {
+        return balance;
+    }
+
+    /** Refunds the unused balance and records the spent credits as used. Idempotent. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (isUnlimited()) return;
+        row.settleReservation(this, (int) spent, (int) balance);
+        balance = 0;
+    }
+}
@@ -1,6 +1,6 @@
 package application.debug;
 
-import execution.debug.DebugStateDTO;
+import execution.debug.DebugStateTracker;
 import execution.debug.DebugStepDTO;
 
 import java.util.ArrayDeque;
@@ -22,7 +22,7 @@ public final class DebugSession {
     public volatile String errorMsg = null;
     public volatile long updatedAt = System.currentTimeMillis();
 
-    public DebugStateDTO lastSnapshot = null;
+    public DebugStateTracker lastSnapshot = null;
     public final Deque<DebugStepDTO> history = new ArrayDeque<>();
 
     public DebugSession(String id, String userId, String targetKind, String targetName, int degree, List<Long> inputs) {
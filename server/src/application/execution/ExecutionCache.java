@@ -1,41 +1,216 @@
 package application.execution;
 
+import api.DebugAPI;
 import api.DisplayAPI;
 import api.ExecutionAPI;
+import exportToDTO.DisplayAPIImpl;
+import exportToDTO.ExecutionAPIImpl;
+import structure.program.Program;
+import structure.program.ProgramImpl;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Supplier;
 
+import static utils.Constants.EXECUTION_CACHE_MAX_WEIGHT;
+
 /**
  * Caches the heavy, input-independent "executionForDegree" result
- * per (target display, function user-string, degree).
+ * per (target display, program version, degree).
  *
  * We DO NOT cache outputs. Each execute(...) still computes fresh results from inputs.
  * This assumes ExecutionAPI is safe to reuse concurrently (it creates a fresh runner per call).
+ * The expanded program behind a cached entry also keeps its linked image
+ * (resolved jump targets + register layout), so a cache hit skips re-linking as well.
+ *
+ * Entries are weighted by the instruction count of their expanded program and evicted
+ * least-recently-used once the total passes {@code EXECUTION_CACHE_MAX_WEIGHT}.
+ * Concurrent misses on the same key wait for a single load.
  */
 public final class ExecutionCache {
     private ExecutionCache() {}
 
-    private static final ConcurrentHashMap<String, ExecutionAPI> CACHE = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+    private static final LinkedHashMap<Key, Entry> CACHE = new LinkedHashMap<>(64, 0.75f, true);
+    private static long weight = 0;
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
 
     /** Clear all cached entries (e.g., after repository changes). */
     public static void clearAll() {
-        CACHE.clear();
+        synchronized (LOCK) {
+            CACHE.clear();
+            weight = 0;
+        }
+    }
+
+    /** Drops every image of {@code target}, e.g. after functions were attached to its program. */
+    public static void invalidate(DisplayAPI target) {
+        synchronized (LOCK) {
+            Iterator<Map.Entry<Key, Entry>> it = CACHE.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> e = it.next();
+                if (e.getKey().target == target) {
+                    weight -= e.getValue().weight;
+                    it.remove();
+                }
+            }
+        }
     }
 
-    /** Get cached ExecutionAPI or build and cache it atomically. */
+    /** Get cached ExecutionAPI or build and cache it; concurrent callers of one key share one build. */
     public static ExecutionAPI getOrCompute(
             DisplayAPI target,
             int degree,
             Supplier<ExecutionAPI> builder
     ) {
-        final String key = buildKey(target, degree);
-        return CACHE.computeIfAbsent(key, k -> builder.get());
+        final Key key = new Key(target, versionOf(target), degree);
+        final Entry entry;
+        final boolean loader;
+        synchronized (LOCK) {
+            Entry existing = CACHE.get(key);
+            if (existing != null) {
+                hits++;
+                entry = existing;
+                loader = false;
+            } else {
+                misses++;
+                entry = new Entry();
+                CACHE.put(key, entry);
+                loader = true;
+            }
+        }
+
+        if (loader) {
+            try {
+                ExecutionAPI api = builder.get();
+                long w = weightOf(api);
+                synchronized (LOCK) {
+                    if (CACHE.get(key) == entry) {
+                        entry.weight = w;
+                        weight += w;
+                        evictOverBudget();
+                    }
+                }
+                entry.image.complete(api);
+            } catch (Throwable t) {
+                // Errors too (deep expansion, a generated class that fails to link): an entry left
+                // loading would make every later caller of this key wait forever
+                synchronized (LOCK) {
+                    CACHE.remove(key, entry);
+                }
+                entry.image.completeExceptionally(t);
+                throw t;
+            }
+        }
+
+        try {
+            return entry.image.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /**
+     * ExecutionAPI backed by the generated JVM class of the expanded program (see ProgramCompiler).
+     * The class is generated on the first run and then reused by every later run of this (target, degree).
+     */
+    public static ExecutionAPI compiled(DisplayAPI target, int degree) {
+        return getOrCompute(target, degree, () -> target.compiledExecutionForDegree(degree));
+    }
+
+    /** A fresh debug session over the cached image of (target, degree). */
+    public static DebugAPI debug(DisplayAPI target, int degree) {
+        return compiled(target, degree).startDebug();
+    }
+
+    public static Stats stats() {
+        synchronized (LOCK) {
+            return new Stats(hits, misses, evictions, CACHE.size(), weight);
+        }
+    }
+
+    // caller holds LOCK; entries still loading weigh 0 and are skipped
+    private static void evictOverBudget() {
+        Iterator<Entry> it = CACHE.values().iterator();
+        while (weight > EXECUTION_CACHE_MAX_WEIGHT && it.hasNext()) {
+            Entry e = it.next();
+            if (e.weight == 0) continue;
+            weight -= e.weight;
+            evictions++;
+            it.remove();
+        }
+    }
+
+    private static int versionOf(DisplayAPI target) {
+        if (target instanceof DisplayAPIImpl impl) {
+            Program p = impl.getProgram();
+            if (p instanceof ProgramImpl programImpl) {
+                return programImpl.getVersion();
+            }
+        }
+        return 0;
     }
 
-    private static String buildKey(DisplayAPI target, int degree) {
-             int id = System.identityHashCode(target);
-             return id + "|" + degree;
+    private static long weightOf(ExecutionAPI api) {
+        return (api instanceof ExecutionAPIImpl impl) ? Math.max(1, impl.getInstructionCount()) : 1;
+    }
+
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int entries;
+        private final long weight;
+
+        Stats(long hits, long misses, long evictions, int entries, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.weight = weight;
         }
 
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getEntries() { return entries; }
+        public long getWeight() { return weight; }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<ExecutionAPI> image = new CompletableFuture<>();
+        private long weight; // 0 while loading
+    }
+
+    /** Identity of the target display (not its hash), its program version and the degree. */
+    private static final class Key {
+        private final DisplayAPI target;
+        private final int version;
+        private final int degree;
+
+        Key(DisplayAPI target, int version, int degree) {
+            this.target = target;
+            this.version = version;
+            this.degree = degree;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return target == other.target && version == other.version && degree == other.degree;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(target) + version) + degree;
+        }
+    }
 }
@@ -1,50 +1,207 @@
 package application.execution;
 
+import application.credits.Generation;
 import execution.ExecutionDTO;
 import execution.ExecutionRequestDTO;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
- * Manages async execution jobs with bounded queue and admission control.
+ * Manages async execution jobs with bounded per-user queues and admission control.
+ * Workers are shared fairly between users (see FairShareScheduler); debug init has its own fast lane.
  * Use trySubmit(...) for back-pressure (returns BUSY without throwing).
  */
 public final class ExecutionTaskManager {
 
-    public enum Status { PENDING, RUNNING, DONE, ERROR, CANCELED, TIMED_OUT }
+    public enum Status {
+        PENDING, RUNNING, DONE, ERROR, CANCELED, TIMED_OUT;
+
+        public boolean isTerminal() {
+            return this != PENDING && this != RUNNING;
+        }
+    }
+
+    /**
+     * A job that runs in slices: the object is the continuation (for a run: the RunSession's pc, registers
+     * and cycles, plus its credit reservation), so between slices it holds no thread and the next slice
+     * may run on any worker. Exactly one of {@link #finish()} / {@link #abandon()} is called, once.
+     */
+    public interface SlicedTask {
+        /** Runs about one quantum of work; true once there is nothing left to run. */
+        boolean runSlice();
+
+        /** The job's result from the state reached: after the last slice, or where the time limit paused it. */
+        ExecutionDTO finish();
+
+        /** The job was canceled or failed before finishing: release what it holds. */
+        default void abandon() {}
+    }
+
+    /**
+     * Told about every status transition of a job and about the progress its task reports, in order, on an
+     * event thread and never under the job's lock (a slow listener delays later events, not the job or its
+     * cancel). Progress not delivered yet is merged into the next report.
+     */
+    public interface JobListener {
+        void onStatus(Job job, Status status);
+
+        default void onProgress(Job job, long cycles) {}
+    }
 
     /** A single execution job state stored in registry. */
     public static final class Job {
         public final String id;
-        public volatile Status status = Status.PENDING;
+        public volatile Status status = Status.PENDING; // written through moveTo(...) only
         public volatile Object result;
         public volatile String error;
         private volatile Future<?> future; // attached running task
         public final long createdAt = System.currentTimeMillis();
         private volatile long finishedAt = 0L;
         private volatile ScheduledFuture<?> timeoutHandle;
+        private volatile String owner = ANONYMOUS; // lane it was queued in; its compute slices use the same
+        private volatile int weight = 1;
+        private volatile boolean timeUp = false;   // sliced jobs: stop at the next slice boundary
+        private Thread runner;                     // sliced jobs: thread running a slice now (guarded by this)
+        private final List<JobListener> listeners = new CopyOnWriteArrayList<>();
+        private final Deque<Event> outbox = new ArrayDeque<>(); // events not delivered yet (guarded by this)
+        private boolean delivering;                             // outbox is being drained (guarded by this)
 
         public Job(String id) { this.id = id; }
 
         public void attach(Future<?> f) { this.future = f; }
 
         public void timeout() {
-            status = Status.TIMED_OUT;
-            finishedAt = System.currentTimeMillis();
+            moveTo(Status.TIMED_OUT);
         }
 
-        public synchronized void cancel() {
-            if (future != null) future.cancel(true);
-            status = Status.CANCELED;
-            finishedAt = System.currentTimeMillis();
-            if (timeoutHandle != null) timeoutHandle.cancel(false);
+        public void cancel() {
+            synchronized (this) {
+                transition(Status.CANCELED); // before interrupting, so the worker sees it was canceled, not failing
+                if (future != null) future.cancel(true);
+                if (runner != null) runner.interrupt();
+                if (timeoutHandle != null) timeoutHandle.cancel(false);
+            }
+            deliver();
+        }
+
+        /** Interrupts the slice running now, unless the job already ended. */
+        synchronized void interruptRunner() {
+            if (runner != null && !status.isTerminal()) runner.interrupt();
+        }
+
+        synchronized void detachRunner() {
+            runner = null;
+        }
+
+        /**
+         * Adds {@code l} and tells it the current status right away. That event is queued together with the
+         * transitions, so {@code l} never hears a status older than one it was already told.
+         */
+        public void subscribe(JobListener l) {
+            synchronized (this) {
+                listeners.add(l);
+                outbox.add(new Event(List.of(l), status, 0L));
+            }
+            deliver();
+        }
+
+        public void unsubscribe(JobListener l) {
+            listeners.remove(l);
+        }
+
+        void moveTo(Status next) {
+            synchronized (this) {
+                transition(next);
+            }
+            deliver();
+        }
+
+        /** The first terminal status sticks: a worker noticing its cancel or timeout does not overwrite it. */
+        private void transition(Status next) {
+            if (status == next || status.isTerminal()) return;
+            status = next;
+            if (next.isTerminal()) {
+                finishedAt = System.currentTimeMillis();
+            }
+            outbox.add(new Event(List.copyOf(listeners), next, 0L));
+        }
+
+        /** Progress not delivered yet is replaced by newer progress, so the outbox stays small. */
+        void progress(long cycles) {
+            synchronized (this) {
+                if (listeners.isEmpty()) return;
+                Event last = outbox.peekLast();
+                if (last != null && last.status == null) {
+                    outbox.pollLast();
+                }
+                outbox.add(new Event(List.copyOf(listeners), null, cycles));
+            }
+            deliver();
+        }
+
+        /**
+         * Hands queued events to the event threads: outside the lock, never on the job's own worker
+         * (a slow client must not stall the job), one batch at a time and in the order they were queued.
+         */
+        private void deliver() {
+            synchronized (this) {
+                if (delivering || outbox.isEmpty()) return;
+                delivering = true;
+            }
+            try {
+                EVENTS.execute(this::drain);
+            } catch (RejectedExecutionException shuttingDown) {
+                synchronized (this) {
+                    delivering = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = outbox.poll();
+                    if (event == null) {
+                        delivering = false;
+                        return;
+                    }
+                }
+                for (JobListener l : event.told) {
+                    try {
+                        if (event.status != null) l.onStatus(this, event.status);
+                        else l.onProgress(this, event.cycles);
+                    } catch (RuntimeException ignore) {
+                        // a failing listener must not stop the others
+                    }
+                }
+            }
+        }
+    }
+
+    /** A status change (status != null) or a progress report, with the listeners it goes to. */
+    private static final class Event {
+        private final List<JobListener> told;
+        private final Status status;
+        private final long cycles;
+
+        Event(List<JobListener> told, Status status, long cycles) {
+            this.told = told;
+            this.status = status;
+            this.cycles = cycles;
         }
     }
     private static final long TIMEOUT_MS = 60_000; // 1 minute
     private static final long TTL_MS     = 15 * 60_000; // 15 minutes
+    private static final long SLICE_STOP_GRACE_MS = 5_000; // sliced jobs: past the limit before interrupting
     private static final ScheduledExecutorService SCHED =
             Executors.newSingleThreadScheduledExecutor(r -> {
                 Thread t = new Thread(r, "exec-timeouts");
@@ -53,29 +210,69 @@ public final class ExecutionTaskManager {
             });
     // Number of workers (parallel executions)
     private static final int N_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
-    // Max queued jobs waiting in the executor queue
+    // Max queued jobs waiting for a worker, over all users
     private static final int QUEUE_CAPACITY = 256;
-    // Admission gate: total in-system = running + queued <= permits
-    private static final Semaphore ADMISSION = new Semaphore(N_THREADS + QUEUE_CAPACITY);
+    // One user never holds every worker, and never queues more than this many jobs
+    private static final int PER_USER_RUNNING = Math.max(1, N_THREADS - 1);
+    private static final int PER_USER_QUEUE = 32;
+    // Fast lane: short debug jobs (init) get their own workers, so they never wait behind long runs
+    private static final int FAST_THREADS = 2;
+    private static final int FAST_QUEUE_CAPACITY = 64;
+    // owner of jobs submitted without a user
+    private static final String ANONYMOUS = "";
+    // -Dexecution.virtualThreads=true: every job runs on its own virtual thread and only its compute(...)
+    // slices take one of the N_THREADS platform workers, so mostly-idle jobs cost no pool thread
+    private static final boolean VIRTUAL = Boolean.getBoolean("execution.virtualThreads");
+    private static final int VIRTUAL_MAX_JOBS = 10_000;
+    private static final int VIRTUAL_PER_USER_JOBS = 256;
+
     // Named worker threads for easier debugging
-    private static final ThreadFactory EXEC_THREAD_FACTORY = new ThreadFactory() {
-        private long idx = 0L;
-        @Override public synchronized Thread newThread(Runnable r) {
-            Thread t = new Thread(r);
-            t.setName("execute-worker-" + (++idx));
-            t.setDaemon(false);
-            return t;
-        }
-    };
-    // Bounded queue + AbortPolicy (never run heavy work on the caller / servlet thread)
-    private static final ThreadPoolExecutor EXEC = new ThreadPoolExecutor(
-            N_THREADS, N_THREADS,
-            0L, TimeUnit.SECONDS,
-            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
-            EXEC_THREAD_FACTORY,
-            new ThreadPoolExecutor.AbortPolicy()
-    );
+    private static ThreadFactory workerThreads(String prefix) {
+        return new ThreadFactory() {
+            private long idx = 0L;
+            @Override public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName(prefix + (++idx));
+                t.setDaemon(false);
+                return t;
+            }
+        };
+    }
+    // The schedulers hand their pool at most one job per thread, so the pool queues stay empty;
+    // waiting jobs sit in the per-user lanes instead of one shared FIFO
+    private static final FairShareScheduler RUNS = VIRTUAL
+            ? new FairShareScheduler(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("execute-job-", 1).factory()),
+                    VIRTUAL_MAX_JOBS, VIRTUAL_PER_USER_JOBS, PER_USER_QUEUE, QUEUE_CAPACITY)
+            : new FairShareScheduler(
+                    Executors.newFixedThreadPool(N_THREADS, workerThreads("execute-worker-")),
+                    N_THREADS, PER_USER_RUNNING, PER_USER_QUEUE, QUEUE_CAPACITY);
+    private static final FairShareScheduler FAST = VIRTUAL
+            ? new FairShareScheduler(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("execute-fast-", 1).factory()),
+                    VIRTUAL_MAX_JOBS, VIRTUAL_PER_USER_JOBS, PER_USER_QUEUE, FAST_QUEUE_CAPACITY)
+            : new FairShareScheduler(
+                    Executors.newFixedThreadPool(FAST_THREADS, workerThreads("execute-fast-")),
+                    FAST_THREADS, FAST_THREADS, PER_USER_QUEUE, FAST_QUEUE_CAPACITY);
+    // virtual mode only: the bounded platform pool compute(...) slices run on, shared fairly like RUNS
+    private static final FairShareScheduler CPU = VIRTUAL
+            ? new FairShareScheduler(
+                    Executors.newFixedThreadPool(N_THREADS, workerThreads("execute-cpu-")),
+                    N_THREADS, PER_USER_RUNNING, Integer.MAX_VALUE, Integer.MAX_VALUE)
+            : null;
+    // job status / progress events are written to listening clients on these threads
+    private static final ExecutorService EVENTS = VIRTUAL
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-events-", 1).factory())
+            : Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "job-events");
+                t.setDaemon(true);
+                return t;
+            });
     private static final Map<String, Job> JOBS = new ConcurrentHashMap<>();
+    // the job a worker thread is running, for progress reports from inside its task
+    private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+    // compute(...) slice states
+    private static final int SLICE_QUEUED = 0, SLICE_RUNNING = 1, SLICE_ABANDONED = 2;
 
     private ExecutionTaskManager() {}
 
@@ -84,10 +281,7 @@ public final class ExecutionTaskManager {
             long now = System.currentTimeMillis();
             JOBS.entrySet().removeIf(e -> {
                 Job j = e.getValue();
-                boolean terminal = j.status == Status.DONE
-                        || j.status == Status.ERROR
-                        || j.status == Status.CANCELED
-                        || j.status == Status.TIMED_OUT;
+                boolean terminal = j.status.isTerminal();
                 return terminal && j.finishedAt > 0 && (now - j.finishedAt) > TTL_MS;
             });
         }, 60, 60, TimeUnit.SECONDS);
@@ -96,65 +290,174 @@ public final class ExecutionTaskManager {
     /**
      * Submits a job if capacity allows. Returns ACCEPTED(jobId) or BUSY(retryAfterMs).
      * The supplied task should do the heavy execute() work (no repository locks here).
+     * Jobs without an owner share one lane; prefer the owner-aware overload.
      */
     public static JobSubmitResult trySubmit(Supplier<ExecutionDTO> task) {
-        // 1) Admission control: if system is full, respond BUSY immediately (no blocking, no exceptions)
-        if (!ADMISSION.tryAcquire()) {
-            return JobSubmitResult.busy(1500); // suggest UI to retry in ~1.5s
-        }
+        return trySubmit(ANONYMOUS, null, task);
+    }
 
+    /**
+     * Queues {@code task} in {@code username}'s lane. Lanes share the workers fairly; a job of a higher
+     * generation {@code tier} counts as a smaller share of its lane's turn (null = lowest tier).
+     */
+    public static JobSubmitResult trySubmit(String username, Generation tier, Supplier<ExecutionDTO> task) {
+        return submitTo(RUNS, username, weightOf(tier), task);
+    }
+
+    /** Fast lane for short jobs (debug init) that should not wait behind long runs. */
+    public static JobSubmitResult trySubmitFast(String username, Supplier<ExecutionDTO> task) {
+        return submitTo(FAST, username, 1, task);
+    }
+
+    /**
+     * Like {@link #trySubmit(String, Generation, Supplier)}, but the worker is given back after every slice
+     * and the job re-queued behind the other lanes, so short jobs interleave with long ones.
+     * When the time limit passes the job is not killed: it stops at the next slice boundary and ends
+     * TIMED_OUT with the result of what it ran (and paid for) so far.
+     */
+    public static JobSubmitResult trySubmitSliced(String username, Generation tier, SlicedTask task) {
         final String id = UUID.randomUUID().toString();
         final Job job = new Job(id);
+        job.owner = ownerOf(username);
+        job.weight = weightOf(tier);
         JOBS.put(id, job);
 
-        boolean submitted = false;
-        try {
-            Future<?> f = EXEC.submit(() -> {
-                job.status = Status.RUNNING;
+        Runnable slice = new Runnable() {
+            private boolean started; // a slice has run, so there is a state to finish from
+
+            @Override
+            public void run() {
+                if (job.status.isTerminal()) {
+                    task.abandon(); // canceled while queued
+                    return;
+                }
+                job.moveTo(Status.RUNNING);
+                synchronized (job) {
+                    job.runner = Thread.currentThread();
+                }
+                CURRENT.set(job);
+                boolean again = false;
+                boolean settled = false;
                 try {
-                    ExecutionDTO dto = task.get(); // heavy compute
-                    if (job.status != Status.CANCELED) {
-                        job.result = dto;
-                        job.status = Status.DONE;
+                    boolean done = false;
+                    if (!job.timeUp) { // the limit may have passed while this slice was queued
+                        started = true;
+                        done = task.runSlice();
+                    }
+                    job.detachRunner(); // settling is not interrupted by a cancel or the hard stop
+                    if (job.status != Status.RUNNING) {
+                        settled = true;
+                        task.abandon();
+                    } else if (!done && !job.timeUp) {
+                        again = true;
+                    } else if (!started) {
+                        settled = true;
+                        task.abandon(); // timed out before it ever ran: nothing to report
+                        job.moveTo(Status.TIMED_OUT);
+                    } else {
+                        settled = true;
+                        job.result = task.finish();
+                        job.moveTo(done ? Status.DONE : Status.TIMED_OUT);
                     }
                 } catch (Throwable t) {
-                    boolean canceled = Thread.currentThread().isInterrupted()
+                    job.detachRunner();
+                    boolean interrupted = Thread.currentThread().isInterrupted()
                             || (t instanceof CancellationException);
-                    if (canceled) {
-                        job.status = Status.CANCELED;
-                    } else if (job.status != Status.CANCELED) {
+                    if (!settled) {
+                        try {
+                            task.abandon();
+                        } catch (Throwable ignore) {
+                        }
+                    }
+                    if (interrupted && job.timeUp && job.status == Status.RUNNING) {
+                        // hard stop inside an instruction: no consistent state to report, credits are settled
+                        job.moveTo(Status.TIMED_OUT);
+                    } else if (interrupted) {
+                        job.moveTo(Status.CANCELED);
+                    } else {
                         job.error = t.getClass().getSimpleName() + ": " + (t.getMessage() == null ? "" : t.getMessage());
-                        job.status = Status.ERROR;
+                        job.moveTo(Status.ERROR);
                     }
                 } finally {
+                    CURRENT.remove();
+                    Thread.interrupted(); // a cancel aimed at this slice must not hit the worker's next job
+                }
+                if (again) {
+                    RUNS.requeue(job.owner, job.weight, this);
+                } else {
                     job.finishedAt = System.currentTimeMillis();
                     if (job.timeoutHandle != null) job.timeoutHandle.cancel(false);
-                    // Always release system capacity when job is finished for any reason
-                    ADMISSION.release();
-                }
-            });
-            job.attach(f);
-            job.timeoutHandle = SCHED.schedule(() -> {
-                if (job.status == Status.PENDING || job.status == Status.RUNNING) {
-                    job.timeout();                 // status=TIMED_OUT + finishedAt
-                    Future<?> ff = job.future;
-                    if (ff != null) ff.cancel(true);
                 }
-                }, TIMEOUT_MS, TimeUnit.MILLISECONDS);
-            submitted = true;
-            return JobSubmitResult.accepted(job.id);
+            }
+        };
 
-        } catch (RejectedExecutionException rex) {
-            // (Double safety) executor queue overflow — translate to BUSY
+        // Admission control: if the user's lane or the queue is full, respond BUSY immediately
+        if (!RUNS.offer(job.owner, job.weight, slice)) {
             JOBS.remove(id);
-            return JobSubmitResult.busy(1500);
+            return JobSubmitResult.busy(1500); // suggest UI to retry in ~1.5s
+        }
+
+        // pause and bill instead of kill: the running slice finishes, then the job ends with what it has.
+        // A slice stuck in one instruction (a function call that never returns) never reaches its boundary,
+        // so it is interrupted once the grace period is over too.
+        job.timeoutHandle = SCHED.schedule(() -> {
+            if (job.status.isTerminal()) return;
+            job.timeUp = true;
+            job.timeoutHandle = SCHED.schedule(job::interruptRunner, SLICE_STOP_GRACE_MS, TimeUnit.MILLISECONDS);
+        }, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return JobSubmitResult.accepted(job.id);
+    }
+
+    private static JobSubmitResult submitTo(FairShareScheduler scheduler, String username, int weight,
+                                            Supplier<ExecutionDTO> task) {
+        final String id = UUID.randomUUID().toString();
+        final Job job = new Job(id);
+        JOBS.put(id, job);
 
-        } finally {
-            if (!submitted) {
-                // If submission failed after acquire, free the slot
-                ADMISSION.release();
+        FutureTask<Void> f = new FutureTask<>(() -> {
+            job.moveTo(Status.RUNNING);
+            CURRENT.set(job);
+            try {
+                ExecutionDTO dto = task.get(); // heavy compute
+                if (job.status != Status.CANCELED) {
+                    job.result = dto;
+                    job.moveTo(Status.DONE);
+                }
+            } catch (Throwable t) {
+                boolean canceled = Thread.currentThread().isInterrupted()
+                        || (t instanceof CancellationException);
+                if (canceled) {
+                    job.moveTo(Status.CANCELED);
+                } else if (job.status != Status.CANCELED) {
+                    job.error = t.getClass().getSimpleName() + ": " + (t.getMessage() == null ? "" : t.getMessage());
+                    job.moveTo(Status.ERROR);
+                }
+            } finally {
+                CURRENT.remove();
+                job.finishedAt = System.currentTimeMillis();
+                if (job.timeoutHandle != null) job.timeoutHandle.cancel(false);
             }
+            return null;
+        });
+        job.attach(f);
+        job.owner = ownerOf(username);
+        job.weight = weight;
+
+        // Admission control: if the user's lane or the queue is full, respond BUSY immediately
+        if (!scheduler.offer(job.owner, weight, f)) {
+            JOBS.remove(id);
+            return JobSubmitResult.busy(1500); // suggest UI to retry in ~1.5s
         }
+
+        // the timeout counts from submission, time spent queued included
+        job.timeoutHandle = SCHED.schedule(() -> {
+            if (job.status == Status.PENDING || job.status == Status.RUNNING) {
+                job.timeout();                 // status=TIMED_OUT + finishedAt
+                Future<?> ff = job.future;
+                if (ff != null) ff.cancel(true);
+            }
+        }, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return JobSubmitResult.accepted(job.id);
     }
 
     // ---------- Legacy API (kept for compatibility) ----------
@@ -168,27 +471,35 @@ public final class ExecutionTaskManager {
         Job job = new Job(id);
         JOBS.put(id, job);
 
-        Future<?> f = EXEC.submit(() -> {
-            job.status = Status.RUNNING;
+        FutureTask<Void> f = new FutureTask<>(() -> {
+            job.moveTo(Status.RUNNING);
+            CURRENT.set(job);
             try {
                 ExecutionDTO dto = task.get();    // may throw if canceled
                 if (job.status != Status.CANCELED) {
                     job.result = dto;
-                    job.status = Status.DONE;
+                    job.moveTo(Status.DONE);
                 }
             } catch (Throwable t) {
                 boolean canceled = Thread.currentThread().isInterrupted()
                         || (t.getMessage() != null && t.getMessage().equals("Canceled"))
                         || (t instanceof CancellationException);
                 if (canceled) {
-                    job.status = Status.CANCELED;
+                    job.moveTo(Status.CANCELED);
                 } else if (job.status != Status.CANCELED) {
                     job.error = t.getClass().getSimpleName() + ": " + (t.getMessage() == null ? "" : t.getMessage());
-                    job.status = Status.ERROR;
+                    job.moveTo(Status.ERROR);
                 }
+            } finally {
+                CURRENT.remove();
             }
+            return null;
         });
         job.attach(f);
+        if (!RUNS.offer(ANONYMOUS, 1, f)) {
+            JOBS.remove(id);
+            throw new RejectedExecutionException("execution queue is full");
+        }
         return job;
     }
 
@@ -196,22 +507,96 @@ public final class ExecutionTaskManager {
 
     public static Job get(String id) { return JOBS.get(id); }
 
-    public static int activeCount()   { return EXEC.getActiveCount(); }
-    public static int queueSize()     { return EXEC.getQueue().size(); }
-    public static int queueCapacity() { return QUEUE_CAPACITY; }
-
-    // ---------- Lifecycle ----------
+    /** Called from inside a running task: tells the listeners of its job how many cycles it has run so far. */
+    public static void reportProgress(long cycles) {
+        Job job = CURRENT.get();
+        if (job != null) job.progress(cycles);
+    }
 
-    public static void shutdown() {
-        EXEC.shutdown(); // graceful
+    /**
+     * Runs one CPU-heavy engine slice (a run chunk, a debug resume, building an image) for the current job.
+     * With virtual threads the slice goes to the bounded CPU pool and the job's virtual thread waits for it;
+     * the slice never outlives its job: cancelling or timing out the job interrupts the wait, cancels the
+     * slice and waits for it to stop before returning, so nothing the slice touches (a debug session, a
+     * run's state) is still in use when the job releases it. Otherwise (or outside a job) the slice simply
+     * runs on the calling thread.
+     */
+    public static <T> T compute(Supplier<T> slice) {
+        Job job = CURRENT.get();
+        if (CPU == null || job == null) {
+            return slice.get();
+        }
+        AtomicInteger state = new AtomicInteger(SLICE_QUEUED);
+        CountDownLatch exited = new CountDownLatch(1);
+        FutureTask<T> f = new FutureTask<>(() -> {
+            if (!state.compareAndSet(SLICE_QUEUED, SLICE_RUNNING)) return null; // abandoned before it started
+            try {
+                return slice.get();
+            } finally {
+                exited.countDown();
+            }
+        });
+        CPU.offer(job.owner, job.weight, f); // unbounded: the job itself was admitted already
         try {
-            if (!EXEC.awaitTermination(15, TimeUnit.SECONDS)) {
-                EXEC.shutdownNow(); // force if needed
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            if (!state.compareAndSet(SLICE_QUEUED, SLICE_ABANDONED)) {
+                awaitUninterruptibly(exited); // running: it sees the interrupt at its next check
             }
-        } catch (InterruptedException ie) {
-            EXEC.shutdownNow();
             Thread.currentThread().interrupt();
+            throw new CancellationException("Canceled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException again) {
+                interrupted = true;
+            }
         }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    public static int activeCount()   { return RUNS.running() + FAST.running(); }
+    public static int queueSize()     { return RUNS.queued() + FAST.queued(); }
+    public static int queueCapacity() { return QUEUE_CAPACITY; }
+
+    /** Per user: {queued, running} jobs, fast lane included. */
+    public static Map<String, int[]> queueDepths() {
+        Map<String, int[]> out = new TreeMap<>();
+        for (FairShareScheduler scheduler : List.of(RUNS, FAST)) {
+            scheduler.depths().forEach((owner, d) -> out.merge(owner, d.clone(),
+                    (a, b) -> new int[] { a[0] + b[0], a[1] + b[1] }));
+        }
+        return out;
+    }
+
+    private static String ownerOf(String username) {
+        return (username == null || username.isBlank()) ? ANONYMOUS : username;
+    }
+
+    // I counts 1, II 2, ...
+    private static int weightOf(Generation tier) {
+        return (tier == null) ? 1 : tier.ordinal() + 1;
+    }
+
+    // ---------- Lifecycle ----------
+
+    public static void shutdown() {
+        RUNS.shutdown(); // graceful, forced after 15 s
+        FAST.shutdown();
+        if (CPU != null) CPU.shutdown();
+        EVENTS.shutdown();
         JOBS.clear(); // best-effort cleanup
         SCHED.shutdownNow();
     }
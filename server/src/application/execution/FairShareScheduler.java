@@ -0,0 +1,172 @@
+package application.execution;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which queued job a free worker of {@code workers} runs next.
+ * Every owner (user) has its own FIFO lane and lanes are served by stride scheduling: starting a job
+ * advances its lane's pass by STRIDE / weight and the lane with the lowest pass goes next, so someone with
+ * fifty queued runs gets the same share of workers as someone with one (heavier weights get more).
+ * An owner never holds more than {@code perOwnerRunning} workers, nor queues more than {@code perOwnerQueued} jobs.
+ */
+final class FairShareScheduler {
+
+    private static final long STRIDE = 1L << 20;
+
+    private final ExecutorService workers;
+    private final int slots;
+    private final int perOwnerRunning;
+    private final int perOwnerQueued;
+    private final int capacity;
+
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private int running = 0;
+    private int queued = 0;
+    private long virtualTime = 0; // pass of the lane started last; idle owners come back at this pass
+
+    /**
+     * @param workers  runs the jobs; never handed more than {@code slots} at once
+     * @param capacity jobs queued over all owners
+     */
+    FairShareScheduler(ExecutorService workers, int slots, int perOwnerRunning, int perOwnerQueued, int capacity) {
+        this.workers = workers;
+        this.slots = slots;
+        this.perOwnerRunning = perOwnerRunning;
+        this.perOwnerQueued = perOwnerQueued;
+        this.capacity = capacity;
+    }
+
+    /** Queues {@code task} for {@code owner}; false (nothing queued) when the owner's lane or the scheduler is full. */
+    synchronized boolean offer(String owner, int weight, Runnable task) {
+        Lane lane = lanes.get(owner);
+        if (lane == null) {
+            lane = new Lane(virtualTime);
+            lanes.put(owner, lane);
+        }
+        if (queued >= capacity || lane.pending.size() >= perOwnerQueued) {
+            dropIfIdle(owner, lane);
+            return false;
+        }
+        lane.pending.add(new Entry(task, Math.max(1, weight)));
+        queued++;
+        dispatch();
+        return true;
+    }
+
+    /** Puts the next slice of an already admitted job at the back of its owner's lane; never refused. */
+    synchronized void requeue(String owner, int weight, Runnable task) {
+        Lane lane = lanes.get(owner);
+        if (lane == null) {
+            lane = new Lane(virtualTime);
+            lanes.put(owner, lane);
+        }
+        lane.pending.add(new Entry(task, Math.max(1, weight)));
+        queued++;
+        dispatch();
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    synchronized int queued() {
+        return queued;
+    }
+
+    /** Queued and running jobs per owner, for owners that have any. */
+    synchronized Map<String, int[]> depths() {
+        Map<String, int[]> out = new TreeMap<>();
+        for (Map.Entry<String, Lane> e : lanes.entrySet()) {
+            out.put(e.getKey(), new int[] { e.getValue().pending.size(), e.getValue().running });
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(15, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // caller holds the lock
+    private void dispatch() {
+        while (running < slots) {
+            String owner = null;
+            Lane next = null;
+            for (Map.Entry<String, Lane> e : lanes.entrySet()) {
+                Lane lane = e.getValue();
+                if (lane.pending.isEmpty() || lane.running >= perOwnerRunning) continue;
+                if (next == null || lane.pass < next.pass) {
+                    owner = e.getKey();
+                    next = lane;
+                }
+            }
+            if (next == null) return;
+            start(owner, next);
+        }
+    }
+
+    // caller holds the lock
+    private void start(String owner, Lane lane) {
+        Entry entry = lane.pending.poll();
+        queued--;
+        running++;
+        lane.running++;
+        virtualTime = lane.pass;
+        lane.pass += STRIDE / entry.weight;
+        workers.execute(() -> {
+            try {
+                entry.task.run();
+            } finally {
+                finished(owner, lane);
+            }
+        });
+    }
+
+    private synchronized void finished(String owner, Lane lane) {
+        running--;
+        lane.running--;
+        dropIfIdle(owner, lane);
+        dispatch();
+    }
+
+    // caller holds the lock
+    private void dropIfIdle(String owner, Lane lane) {
+        if (lane.pending.isEmpty() && lane.running == 0) {
+            lanes.remove(owner, lane);
+        }
+    }
+
+    private static final class Lane {
+        private final Deque<Entry> pending = new ArrayDeque<>();
+        private int running = 0;
+        private long pass;
+
+        Lane(long pass) {
+            this.pass = pass;
+        }
+    }
+
+    private static final class Entry {
+        private final Runnable task;
+        private final int weight;
+
+        Entry(Runnable task, int weight) {
+            this.task = task;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package application.functions;
+
+import structure.function.Function;
+import structure.instruction.Instruction;
+import structure.instruction.synthetic.ArgExpr;
+import structure.instruction.synthetic.ArgKind;
+import structure.instruction.synthetic.FunctionArguments;
+import structure.instruction.synthetic.JumpEqualFunctionInstruction;
+import structure.instruction.synthetic.QuotationInstruction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Every uploaded function (by userString) with the userStrings it calls directly.
+ * Edges are resolved once, when the function is registered, so resolving the dependencies
+ * of a new upload is one traversal instead of re-rendering DTOs until nothing changes.
+ */
+public class FunctionCallGraph {
+
+    private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code function}; its calls are mapped to userStrings through {@code nameToUserString}
+     * (internal name -> userString of the program it was uploaded with), unknown names are kept as-is.
+     */
+    public void register(Function function, Map<String, String> nameToUserString) {
+        if (function == null || function.getUserString() == null) return;
+        String key = function.getUserString().trim();
+        if (key.isEmpty()) return;
+
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> userStrings = new LinkedHashSet<>();
+        collectCalls(function.getInstructions(), names, userStrings);
+
+        Set<String> callees = new LinkedHashSet<>(userStrings);
+        for (String name : names) {
+            String alias = nameToUserString.get(name);
+            callees.add(alias != null ? alias : name);
+        }
+        nodes.put(key, new Node(function, Collections.unmodifiableSet(callees)));
+    }
+
+    public Function getFunction(String userString) {
+        Node node = (userString == null) ? null : nodes.get(userString.trim());
+        return (node == null) ? null : node.function;
+    }
+
+    public Set<String> getCallees(String userString) {
+        Node node = (userString == null) ? null : nodes.get(userString.trim());
+        return (node == null) ? Collections.emptySet() : node.callees;
+    }
+
+    /**
+     * Everything reachable from {@code roots} that is not in {@code have}, in discovery order.
+     * Unknown userStrings end up in {@link Closure#getMissing()}.
+     */
+    public Closure closure(Collection<String> roots, Set<String> have) {
+        Set<String> seen = new LinkedHashSet<>(have);
+        List<Function> functions = new ArrayList<>();
+        Set<String> missing = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(roots);
+
+        while (!pending.isEmpty()) {
+            String alias = pending.poll().trim();
+            if (alias.isEmpty() || !seen.add(alias)) continue;
+
+            Node node = nodes.get(alias);
+            if (node == null) {
+                missing.add(alias);
+                continue;
+            }
+            functions.add(node.function);
+            pending.addAll(node.callees);
+        }
+        return new Closure(functions, missing);
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+    /**
+     * Function names (QUOTE / JUMP_EQUAL_FUNCTION targets and calls nested in their arguments)
+     * and explicit userStrings referenced by {@code instructions}.
+     */
+    public static void collectCalls(List<Instruction> instructions, Set<String> namesOut, Set<String> userStringsOut) {
+        for (Instruction ins : instructions) {
+            if (ins instanceof QuotationInstruction q) {
+                addCall(q.getFunctionName(), q.getUserString(), q.getArguments(), namesOut, userStringsOut);
+            } else if (ins instanceof JumpEqualFunctionInstruction jef) {
+                addCall(jef.getFunctionName(), jef.getUserString(), jef.getArguments(), namesOut, userStringsOut);
+            }
+        }
+    }
+
+    private static void addCall(String name, String userString, FunctionArguments args,
+                                Set<String> namesOut, Set<String> userStringsOut) {
+        if (name != null && !name.isBlank()) {
+            namesOut.add(name.trim());
+        }
+        if (userString != null && !userString.isBlank()) {
+            userStringsOut.add(userString.trim());
+        }
+        collectNested(args, namesOut);
+    }
+
+    private static void collectNested(FunctionArguments args, Set<String> namesOut) {
+        for (int i = 0; i < args.size(); i++) {
+            ArgExpr arg = args.get(i);
+            if (arg.getKind() != ArgKind.CALL) continue;
+            String name = arg.getFunctionName();
+            if (name != null && !name.isBlank()) {
+                namesOut.add(name.trim());
+            }
+            collectNested(arg.getArguments(), namesOut);
+        }
+    }
+
+    /** Functions to attach for one upload, plus the userStrings nobody uploaded. */
+    public static final class Closure {
+        private final List<Function> functions;
+        private final Set<String> missing;
+
+        Closure(List<Function> functions, Set<String> missing) {
+            this.functions = functions;
+            this.missing = missing;
+        }
+
+        public List<Function> getFunctions() { return functions; }
+        public Set<String> getMissing() { return missing; }
+    }
+
+    private static final class Node {
+        private final Function function;
+        private final Set<String> callees;
+
+        Node(Function function, Set<String> callees) {
+            this.function = function;
+            this.callees = callees;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package application.listeners;
 
 import application.execution.ExecutionTaskManager;
+import application.functions.FunctionCallGraph;
 import application.functions.FunctionManager;
 import application.history.HistoryManager;
 import application.programs.ProgramManager;
@@ -18,6 +19,7 @@ public class AppContextListener implements ServletContextListener {
     public static final String ATTR_USERS     = "userManager";
     public static final String ATTR_PROGRAMS  = "programsRegistry";
     public static final String ATTR_FUNCTIONS = "functionsRegistry";
+    public static final String ATTR_CALL_GRAPH = "functionCallGraph";
     public static final String ATTR_HISTORY   = "historyManager";
     public static final String ATTR_FUNCTION_NAMES = "functionNameToUserString";
     public static final String ATTR_USER_OUT_OF_CREDITS = "userOutOfCreditsMap";
@@ -28,6 +30,7 @@ public class AppContextListener implements ServletContextListener {
         ctx.setAttribute(ATTR_USERS,     new UserManager());
         ctx.setAttribute(ATTR_PROGRAMS,  new ProgramManager());
         ctx.setAttribute(ATTR_FUNCTIONS, new FunctionManager());
+        ctx.setAttribute(ATTR_CALL_GRAPH, new FunctionCallGraph());
         ctx.setAttribute(ATTR_HISTORY,   new HistoryManager());
         ctx.setAttribute(ATTR_FUNCTION_NAMES, new ConcurrentHashMap<String, String>());
         ctx.setAttribute(ATTR_USER_OUT_OF_CREDITS, new ConcurrentHashMap<String, Boolean>());
@@ -45,6 +48,10 @@ public class AppContextListener implements ServletContextListener {
         return (FunctionManager) ctx.getAttribute(ATTR_FUNCTIONS);
     }
 
+    public static FunctionCallGraph getCallGraph(ServletContext ctx) {
+        return (FunctionCallGraph) ctx.getAttribute(ATTR_CALL_GRAPH);
+    }
+
     public static HistoryManager getHistory(ServletContext ctx) {
         return (HistoryManager) ctx.getAttribute(ATTR_HISTORY);
     }
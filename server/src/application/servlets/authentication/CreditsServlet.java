@@ -60,7 +60,7 @@ public class CreditsServlet extends HttpServlet {
 
         // 4) Snapshot after update
         UserTableRow row = um.get(username);
-        int current = (row != null) ? row.getCreditsCurrent() : 0;
+        int current = (row != null) ? row.getCreditsAvailable() : 0;
         int used    = (row != null) ? row.getCreditsUsed()    : 0;
 
         // 5) Reply a small JSON payload
@@ -28,7 +28,7 @@ public class UsersServlet extends HttpServlet {
                         row.getName(),
                         row.getMainPrograms(),
                         row.getFunctions(),
-                        row.getCreditsCurrent(),
+                        row.getCreditsAvailable(),
                         row.getCreditsUsed(),
                         row.getRuns()
                 ));
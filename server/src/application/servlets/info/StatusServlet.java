@@ -1,5 +1,6 @@
 package application.servlets.info;
 
+import application.execution.ExecutionTaskManager;
 import application.listeners.AppContextListener;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -11,6 +12,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import api.DisplayAPI;
+import structure.execution.FunctionMemo;
 import users.UserManager;
 import users.UserTableRow;
 
@@ -83,6 +85,31 @@ public class StatusServlet extends HttpServlet {
         json.addProperty("debugBusy",   db);
         json.addProperty("mode", db ? "DEBUG" : (eb ? "EXECUTE" : MODE_IDLE));
 
+        // job scheduler: queued / running jobs per user
+        JsonObject queues = new JsonObject();
+        for (Map.Entry<String, int[]> e : ExecutionTaskManager.queueDepths().entrySet()) {
+            JsonObject q = new JsonObject();
+            q.addProperty("queued", e.getValue()[0]);
+            q.addProperty("running", e.getValue()[1]);
+            queues.add(e.getKey(), q);
+        }
+        json.add("jobQueues", queues);
+
+        // function-call memo of runs: hits / misses / evictions per function
+        JsonObject memo = new JsonObject();
+        memo.addProperty("enabled", FunctionMemo.isEnabled());
+        memo.addProperty("capacity", FunctionMemo.CAPACITY);
+        JsonObject memoFunctions = new JsonObject();
+        for (Map.Entry<String, FunctionMemo.Stats> e : FunctionMemo.getStats().entrySet()) {
+            JsonObject f = new JsonObject();
+            f.addProperty("hits", e.getValue().getHits());
+            f.addProperty("misses", e.getValue().getMisses());
+            f.addProperty("evictions", e.getValue().getEvictions());
+            memoFunctions.add(e.getKey(), f);
+        }
+        memo.add("functions", memoFunctions);
+        json.add("functionMemo", memo);
+
         // --- User & credits snapshot for the current session ---
         String username = (String) req.getSession(true).getAttribute(SESSION_USERNAME);
         json.addProperty("username", username);
@@ -95,7 +122,7 @@ public class StatusServlet extends HttpServlet {
             if (um != null) {
                 UserTableRow row = um.get(username);
                 if (row != null) {
-                    creditsCurrent = row.getCreditsCurrent();
+                    creditsCurrent = row.getCreditsAvailable();
                     creditsUsed    = row.getCreditsUsed();
                 }
             }
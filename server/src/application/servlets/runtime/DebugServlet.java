@@ -2,27 +2,34 @@ package application.servlets.runtime;
 
 import api.DebugAPI;
 import api.DisplayAPI;
+import application.credits.CreditReservation;
 import application.credits.Generation;
 import application.history.HistoryManager;
 import application.listeners.AppContextListener;
 import application.programs.ProgramManager;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import display.DisplayDTO;
 import execution.ExecutionRequestDTO;
 import execution.VarValueDTO;
 import execution.debug.DebugStateDTO;
+import execution.debug.DebugStateTracker;
 import execution.debug.DebugStepDTO;
+import execution.debug.DebugStopDTO;
+import execution.debug.DebugWatchDTO;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import utils.EventStream;
 import types.VarOptionsDTO;
 import types.VarRefDTO;
 import users.UserManager;
 import users.UserTableRow;
+import application.execution.ExecutionCache;
 import application.execution.ExecutionTaskManager;
 import application.execution.JobSubmitResult;
 
@@ -31,12 +38,13 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 import static utils.Constants.*;
 import static utils.ServletUtils.writeJson;
 import static utils.ServletUtils.writeJsonError;
 
-@WebServlet(name = "DebugServlet", urlPatterns = { API_DEBUG_INIT, API_DEBUG_STEP, API_DEBUG_RESUME, API_DEBUG_STOP, API_DEBUG_TERMINATED, API_DEBUG_HISTORY, API_DEBUG_STATE})
+@WebServlet(name = "DebugServlet", urlPatterns = { API_DEBUG_INIT, API_DEBUG_STEP, API_DEBUG_RESUME, API_DEBUG_STOP, API_DEBUG_TERMINATED, API_DEBUG_HISTORY, API_DEBUG_STATE, API_DEBUG_EVENTS}, asyncSupported = true)
 public class DebugServlet extends HttpServlet {
     private final Gson gson = new Gson();
     private Generation architecture;
@@ -63,6 +71,10 @@ public class DebugServlet extends HttpServlet {
             handleState(req, resp);
             return;
         }
+        if (API_DEBUG_EVENTS.equals(route)) {
+            handleEvents(req, resp);
+            return;
+        }
         writeJsonError(resp, HttpServletResponse.SC_NOT_FOUND,
                 "Unknown debug GET route: " + route);
     }
@@ -126,13 +138,14 @@ public class DebugServlet extends HttpServlet {
                 UserTableRow rowBefore = um.get(username);
                 int haveBefore = 0;
                 if (rowBefore != null) {
-                    haveBefore = rowBefore.getCreditsCurrent();
+                    haveBefore = rowBefore.getCreditsAvailable();
                 }
 
                 int cost = gen.getCredits();
 
-                // Guard: user must be able to afford the chosen generation up-front.
-                if (haveBefore < cost) {
+                // Guard: user must be able to afford the chosen generation up-front; it is deducted
+                // immediately, atomically with the check.
+                if (!CreditReservation.charge(um, username, cost)) {
                     JsonObject outNoCredits = new JsonObject();
                     outNoCredits.addProperty("error", "insufficient_credits");
                     outNoCredits.addProperty("needed", cost);
@@ -141,12 +154,9 @@ public class DebugServlet extends HttpServlet {
                     return;
                 }
 
-                // Deduct the generation cost immediately.
-                um.adjustCredits(username, -cost);
-
                 UserTableRow rowAfter = um.get(username);
                 if (rowAfter != null) {
-                    creditsNowAfterInit = rowAfter.getCreditsCurrent();
+                    creditsNowAfterInit = rowAfter.getCreditsAvailable();
                 }
             }
         } catch (Exception ignore) {
@@ -161,14 +171,14 @@ public class DebugServlet extends HttpServlet {
         final String functionKeyRef = functionKey;
         final DisplayAPI targetRef = target;
 
-        JobSubmitResult res = ExecutionTaskManager.trySubmit(() -> {
+        JobSubmitResult res = ExecutionTaskManager.trySubmitFast(usernameRef, () -> {
             try {
-                DebugAPI dbg = targetRef.debugForDegree(degreeRef);
-                DebugStateDTO state = dbg.init(execReqRef);
+                DebugAPI dbg = ExecutionTaskManager.compute(() -> ExecutionCache.debug(targetRef, degreeRef));
+                DebugStateDTO state = ExecutionTaskManager.compute(() -> dbg.init(execReqRef));
 
                 getSessions().put(id, dbg);
                 getLocks().computeIfAbsent(id, k -> new Semaphore(1));
-                getSnapshots().put(id, state);
+                getSnapshots().put(id, new DebugStateTracker(state));
 
                 getServletContext().setAttribute(ATTR_DBG_BUSY, Boolean.TRUE);
 
@@ -267,10 +277,10 @@ public class DebugServlet extends HttpServlet {
         }
 
         try {
-            DebugStateDTO beforeSnap = getSnapshots().get(debugId);
+            DebugStateTracker snapshot = getSnapshots().get(debugId);
             long prevCycles = 0L;
-            if (beforeSnap != null) {
-                prevCycles = beforeSnap.getCyclesSoFar();
+            if (snapshot != null) {
+                prevCycles = snapshot.getCyclesSoFar();
             }
 
             int creditsCurrentBefore = 0;
@@ -278,7 +288,7 @@ public class DebugServlet extends HttpServlet {
             if (username != null) {
                 UserTableRow rowBefore = um.get(username);
                 if (rowBefore != null) {
-                    creditsCurrentBefore = rowBefore.getCreditsCurrent();
+                    creditsCurrentBefore = rowBefore.getCreditsAvailable();
                     creditsUsedBefore = rowBefore.getCreditsUsed();
                 }
             }
@@ -289,7 +299,7 @@ public class DebugServlet extends HttpServlet {
                 afterSnap = step.getNewState();
             }
 
-            DebugStateDTO effectiveSnap = beforeSnap;
+            boolean paid = false;
             int creditsCurrentAfter = creditsCurrentBefore;
             int creditsUsedAfter = creditsUsedBefore;
             boolean localOutOfCredits = false;
@@ -302,37 +312,31 @@ public class DebugServlet extends HttpServlet {
                 }
 
                 if (delta > 0L) {
-                    UserTableRow rowNow = um.get(username);
-                    int haveNow = 0;
-                    if (rowNow != null) {
-                        haveNow = rowNow.getCreditsCurrent();
-                    }
-
-                    if (haveNow < delta) {
+                    if (!CreditReservation.charge(um, username, (int) delta)) {
                         localOutOfCredits = true;
                     } else {
-                        um.adjustCredits(username, (int)(-delta));
-                        effectiveSnap = afterSnap;
+                        paid = true;
                         UserTableRow rowAfter = um.get(username);
                         if (rowAfter != null) {
-                            creditsCurrentAfter = rowAfter.getCreditsCurrent();
+                            creditsCurrentAfter = rowAfter.getCreditsAvailable();
                             creditsUsedAfter = rowAfter.getCreditsUsed();
                         }
                     }
                 } else {
-                    effectiveSnap = afterSnap;
+                    paid = true;
                 }
             } else if (afterSnap != null && username == null) {
-                effectiveSnap = afterSnap;
+                paid = true;
             }
 
-            if (effectiveSnap != null) {
-                getSnapshots().put(debugId, effectiveSnap);
+            // only a paid step moves the snapshot; it applies just the variables the step changed
+            if (paid && snapshot != null) {
+                snapshot.apply(step);
             }
 
             if (localOutOfCredits) {
                 AppContextListener.markUserOutOfCredits(getServletContext(), username);
-                saveHistoryForDebugSession(debugId, effectiveSnap);
+                saveHistoryForDebugSession(debugId, snapshot);
             }
 
             boolean term = false;
@@ -341,7 +345,7 @@ public class DebugServlet extends HttpServlet {
             } catch (Throwable ignore) { }
 
             if (term) {
-                saveHistoryForDebugSession(debugId, effectiveSnap);
+                saveHistoryForDebugSession(debugId, snapshot);
             }
 
             JsonObject root = new JsonObject();
@@ -370,13 +374,15 @@ public class DebugServlet extends HttpServlet {
 
     /**
      * POST /api/debug/resume
-     * Body or param: debugId
-     * Runs steps in a loop until program terminates or the worker thread is interrupted.
-     * Charges credits once for the full resume window.
-     * After finishing, persists debug history.
+     * Body or param: debugId; body may add breakpoints: number[] (pcs) and watches: [{var, equals?}]
+     * Runs the engine until program terminates, a breakpoint or watch is hit, the user runs out of credits
+     * or the worker thread is interrupted. Credits come from a reservation that is settled once at the end;
+     * the engine runs one reserved block at a time without a DTO per step.
+     * The reason it stopped is reported by /api/debug/terminated. After finishing, persists debug history.
      */
     private void handleResume(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        String debugId = readDebugId(req);
+        JsonObject in = readJson(req);
+        String debugId = readDebugId(req, in);
         if (debugId == null) {
             writeJsonError(resp, HttpServletResponse.SC_BAD_REQUEST, "Missing debugId");
             return;
@@ -399,8 +405,10 @@ public class DebugServlet extends HttpServlet {
 
         UserManager um = AppContextListener.getUsers(getServletContext());
 
-        DebugStateDTO startSnap = getSnapshots().get(debugId);
-        final long resumeStartCycles = (startSnap != null) ? startSnap.getCyclesSoFar() : 0L;
+        final DebugStateTracker snapshot = getSnapshots().get(debugId);
+        final Set<Integer> breakpoints = readBreakpoints(in);
+        final List<DebugWatchDTO> watches = readWatches(in);
+        final DebugSessionMeta meta = getDebugMetas().get(debugId);
 
         final String usernameCaptured = username;
         final UserManager umCaptured = um;
@@ -411,60 +419,75 @@ public class DebugServlet extends HttpServlet {
             writeJsonError(resp, HttpServletResponse.SC_CONFLICT, "busy");
             return;
         }
+        // only the resume that holds the lock starts a new run; a rejected one keeps the last stop reason
+        final DebugStopDTO.Reason lastReason = (meta != null) ? meta.getStopReason() : null;
+        if (meta != null) {
+            meta.setStopReason(null);
+        }
         final ServletContext ctxRef = getServletContext();
 
-        JobSubmitResult submitResult = ExecutionTaskManager.trySubmit(() -> {
+        JobSubmitResult submitResult = ExecutionTaskManager.trySubmit(usernameCaptured, tierOf(meta), () -> {
             try {
-                DebugStepDTO last;
-
-                while (true) {
-                    boolean alreadyDone = false;
-                    try {
-                        alreadyDone = dbg.isTerminated();
-                    } catch (Throwable ignore) { }
-                    if (alreadyDone) {
-                        break;
-                    }
+                DebugStopDTO.Reason reason = DebugStopDTO.Reason.INTERRUPTED; // unless the loop ends otherwise
 
-                    if (Thread.currentThread().isInterrupted()) {
-                        break;
-                    }
-
-                    last = dbg.step();
+                try {
+                    // the engine runs on what is reserved and undoes the step it could not pay for,
+                    // so resume stops exactly at the last paid state
+                    try (CreditReservation credits =
+                                 CreditReservation.open(umCaptured, usernameCaptured,
+                                         CREDIT_RESERVATION_FIRST, CREDIT_RESERVATION_BLOCK)) {
+                        long paidCycles = (snapshot != null) ? snapshot.getCyclesSoFar() : 0L;
+                        while (true) {
+                            boolean alreadyDone = false;
+                            try {
+                                alreadyDone = dbg.isTerminated();
+                            } catch (Throwable ignore) { }
+                            if (alreadyDone) {
+                                reason = DebugStopDTO.Reason.EXIT;
+                                break;
+                            }
 
-                    try {
-                        if (last != null && last.getNewState() != null) {
-                            getSnapshots().put(debugIdRef, last.getNewState());
-                        }
-                    } catch (Throwable ignore) { }
-                }
+                            if (Thread.currentThread().isInterrupted()) {
+                                reason = DebugStopDTO.Reason.INTERRUPTED;
+                                break;
+                            }
 
-                // aggregated billing for resume
-                try {
-                    DebugStateDTO endSnap = getSnapshots().get(debugIdRef);
-                    long endCycles = (endSnap != null) ? endSnap.getCyclesSoFar() : resumeStartCycles;
-                    long totalDelta = endCycles - resumeStartCycles;
-                    if (totalDelta < 0L) {
-                        totalDelta = 0L;
-                    }
+                            if (credits.balance() <= 0 && !credits.topUp()) {
+                                reason = DebugStopDTO.Reason.BUDGET;
+                                AppContextListener.markUserOutOfCredits(ctxRef, usernameCaptured);
+                                break;
+                            }
 
-                    if (usernameCaptured != null && totalDelta > 0L) {
-                        UserTableRow rowNow = umCaptured.get(usernameCaptured);
-                        if (rowNow != null) {
-                            int haveNow = rowNow.getCreditsCurrent();
+                            long budget = credits.balance();
+                            DebugStopDTO stop = ExecutionTaskManager.compute(() -> dbg.runUntil(breakpoints, watches, budget));
+                            DebugStateDTO reached = stop.getState();
+                            credits.spend(Math.max(0L, reached.getCyclesSoFar() - paidCycles));
+                            paidCycles = reached.getCyclesSoFar();
+                            if (snapshot != null) {
+                                snapshot.reset(reached);
+                            }
 
-                            if (haveNow < totalDelta) {
-                                // User cannot afford the full remaining cycles.
-                                // Do not drive balance negative.
+                            reason = stop.getReason();
+                            if (reason != DebugStopDTO.Reason.BUDGET) {
+                                break;
+                            }
+                            if (!credits.topUp()) {
                                 AppContextListener.markUserOutOfCredits(ctxRef, usernameCaptured);
-                                // We still persist what we have so far.
-                            } else {
-                                // User can afford the resume burst; charge it.
-                                umCaptured.adjustCredits(usernameCaptured, (int)(-totalDelta));
+                                break;
                             }
                         }
                     }
-                    saveHistoryForDebugSession(debugIdRef, endSnap);
+                    // the reservation is settled here, before the stop is announced, so the stop event
+                    // and /terminated report the user's credits after this resume
+                } finally {
+                    // stop listeners hear about every resume, also one that was canceled or failed
+                    if (meta != null) {
+                        meta.setStopReason(reason);
+                    }
+                }
+
+                try {
+                    saveHistoryForDebugSession(debugIdRef, snapshot);
                 } catch (Throwable ignore) {
                 }
 
@@ -487,6 +510,9 @@ public class DebugServlet extends HttpServlet {
                 lock.release();
             } catch (Throwable ignore) { }
             getLocks().remove(debugIdRef);
+            if (meta != null && lastReason != null) {
+                meta.setStopReason(lastReason);
+            }
 
             JsonObject out = new JsonObject();
             out.addProperty("error", "busy");
@@ -523,7 +549,7 @@ public class DebugServlet extends HttpServlet {
             return;
         }
 
-        DebugStateDTO snap = getSnapshots().get(debugId);
+        DebugStateTracker snap = getSnapshots().get(debugId);
 
         // write history before tearing down
         saveHistoryForDebugSession(debugId, snap);
@@ -531,7 +557,10 @@ public class DebugServlet extends HttpServlet {
         // full cleanup
         getLocks().remove(debugId);
         getSnapshots().remove(debugId);
-        getDebugMetas().remove(debugId);
+        DebugSessionMeta meta = getDebugMetas().remove(debugId);
+        if (meta != null && meta.getStopReason() == null) {
+            meta.setStopReason(DebugStopDTO.Reason.INTERRUPTED); // ends event streams still waiting on a resume
+        }
 
         boolean anyLeft = !getSessions().isEmpty();
         getServletContext().setAttribute(ATTR_DBG_BUSY, anyLeft ? Boolean.TRUE : Boolean.FALSE);
@@ -571,7 +600,7 @@ public class DebugServlet extends HttpServlet {
             term = done;
 
             if (term) {
-                DebugStateDTO snap = getSnapshots().get(debugId);
+                DebugStateTracker snap = getSnapshots().get(debugId);
 
                 // persist debug history (if not already persisted)
                 saveHistoryForDebugSession(debugId, snap);
@@ -595,12 +624,16 @@ public class DebugServlet extends HttpServlet {
         if (username != null) {
             UserTableRow row = um.get(username);
             if (row != null) {
-                creditsNow = row.getCreditsCurrent();
+                creditsNow = row.getCreditsAvailable();
             }
         }
 
         JsonObject out = new JsonObject();
         out.addProperty("terminated", term);
+        DebugSessionMeta meta = getDebugMetas().get(debugId);
+        if (meta != null && meta.getStopReason() != null) {
+            out.addProperty("stopReason", meta.getStopReason().name());
+        }
         out.addProperty("creditsCurrent", creditsNow);
         out.addProperty("outOfCredits",
                 AppContextListener.isUserOutOfCredits(getServletContext(), username));
@@ -618,11 +651,11 @@ public class DebugServlet extends HttpServlet {
             return;
         }
 
-        DebugStateDTO snap = getSnapshots().get(debugId);
+        DebugStateTracker snap = getSnapshots().get(debugId);
         if (snap != null) {
             JsonObject out = new JsonObject();
             out.addProperty("debugId", debugId);
-            out.add("state", gson.toJsonTree(snap));
+            out.add("state", gson.toJsonTree(snap.current()));
             writeJson(resp, HttpServletResponse.SC_OK, out);
             return;
         }
@@ -634,6 +667,57 @@ public class DebugServlet extends HttpServlet {
         }
     }
 
+    /**
+     * GET /api/debug/events?debugId=...
+     * text/event-stream with one "stop" event once the running resume stops (or at once if the last one
+     * already did): {stopReason, terminated, creditsCurrent, outOfCredits, state}. The stream ends after it.
+     */
+    private void handleEvents(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String debugId = req.getParameter("debugId");
+        if (debugId == null || debugId.isBlank()) {
+            writeJsonError(resp, HttpServletResponse.SC_BAD_REQUEST, "Missing debugId");
+            return;
+        }
+        DebugSessionMeta meta = getDebugMetas().get(debugId);
+        if (meta == null) {
+            writeJsonError(resp, HttpServletResponse.SC_NOT_FOUND, "Unknown debugId");
+            return;
+        }
+
+        String username = meta.getUsername();
+        ServletContext ctx = getServletContext();
+        EventStream stream = EventStream.open(req, resp, EVENT_STREAM_TIMEOUT_MS);
+        Consumer<DebugStopDTO.Reason> listener = reason -> {
+            DebugAPI dbg = getSessions().get(debugId);
+            boolean term = true;
+            if (dbg != null) {
+                try {
+                    term = dbg.isTerminated();
+                } catch (Throwable ignore) { }
+            }
+
+            int creditsNow = 0;
+            UserTableRow row = (username == null) ? null : AppContextListener.getUsers(ctx).get(username);
+            if (row != null) {
+                creditsNow = row.getCreditsAvailable();
+            }
+
+            JsonObject out = new JsonObject();
+            out.addProperty("stopReason", reason.name());
+            out.addProperty("terminated", term);
+            out.addProperty("creditsCurrent", creditsNow);
+            out.addProperty("outOfCredits", AppContextListener.isUserOutOfCredits(ctx, username));
+            DebugStateTracker snap = getSnapshots().get(debugId);
+            if (snap != null) {
+                out.add("state", gson.toJsonTree(snap.current()));
+            }
+            stream.send("stop", gson.toJson(out));
+            stream.close();
+        };
+        stream.onClose(() -> meta.removeStopListener(listener));
+        meta.addStopListener(listener);
+    }
+
     /**
      * This is legacy handler left from previous stages.
      * Keeping it as-is.
@@ -653,7 +737,7 @@ public class DebugServlet extends HttpServlet {
         int degree = Math.max(0, execReq.getDegree());
 
         try {
-            root.executionForDegree(degree).execute(execReq);
+            ExecutionCache.compiled(root, degree).execute(execReq);
             JsonObject out = new JsonObject();
             out.addProperty("status", "ok");
             writeJson(resp, HttpServletResponse.SC_OK, out);
@@ -667,10 +751,10 @@ public class DebugServlet extends HttpServlet {
 
     /**
      * Persist this debug session into HistoryManager (mode="DEBUG"), once per session.
-     * Uses DebugSessionMeta + latest DebugStateDTO snapshot.
+     * Uses DebugSessionMeta + latest snapshot of the session.
      * Also marks the session meta as recorded to avoid duplicates.
      */
-    private void saveHistoryForDebugSession(String debugId, DebugStateDTO finalSnap) {
+    private void saveHistoryForDebugSession(String debugId, DebugStateTracker snapshot) {
         DebugSessionMeta meta = getDebugMetas().get(debugId);
         if (meta == null) {
             return;
@@ -698,6 +782,7 @@ public class DebugServlet extends HttpServlet {
             String architectureType = meta.getArchitectureType();
             int degree = meta.getDegree();
 
+            DebugStateDTO finalSnap = (snapshot != null) ? snapshot.current() : null;
             long cyclesCount = (finalSnap != null) ? finalSnap.getCyclesSoFar() : 0L;
 
             long finalY = 0L;
@@ -778,10 +863,10 @@ public class DebugServlet extends HttpServlet {
     }
 
     @SuppressWarnings("unchecked")
-    private Map<String, DebugStateDTO> getSnapshots() {
+    private Map<String, DebugStateTracker> getSnapshots() {
         Object obj = getServletContext().getAttribute(ATTR_DEBUG_SNAPSHOTS);
-        if (obj instanceof Map<?, ?> m) return (Map<String, DebugStateDTO>) m;
-        Map<String, DebugStateDTO> created = new ConcurrentHashMap<>();
+        if (obj instanceof Map<?, ?> m) return (Map<String, DebugStateTracker>) m;
+        Map<String, DebugStateTracker> created = new ConcurrentHashMap<>();
         getServletContext().setAttribute(ATTR_DEBUG_SNAPSHOTS, created);
         return created;
     }
@@ -798,7 +883,14 @@ public class DebugServlet extends HttpServlet {
     private String readDebugId(HttpServletRequest req) throws IOException {
         String debugId = req.getParameter("debugId");
         if (debugId == null || debugId.isBlank()) {
-            JsonObject in = readJson(req);
+            return readDebugId(req, readJson(req));
+        }
+        return debugId;
+    }
+
+    private String readDebugId(HttpServletRequest req, JsonObject in) {
+        String debugId = req.getParameter("debugId");
+        if (debugId == null || debugId.isBlank()) {
             if (in != null && in.has("debugId") && !in.get("debugId").isJsonNull()) {
                 debugId = in.get("debugId").getAsString();
             }
@@ -806,6 +898,37 @@ public class DebugServlet extends HttpServlet {
         return (debugId == null || debugId.isBlank()) ? null : debugId;
     }
 
+    private static Generation tierOf(DebugSessionMeta meta) {
+        try {
+            return (meta == null) ? null : Generation.valueOf(meta.getArchitectureType());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Set<Integer> readBreakpoints(JsonObject in) {
+        Set<Integer> out = new HashSet<>();
+        if (in != null && in.has("breakpoints") && in.get("breakpoints").isJsonArray()) {
+            for (JsonElement e : in.getAsJsonArray("breakpoints")) {
+                out.add(e.getAsInt());
+            }
+        }
+        return out;
+    }
+
+    private List<DebugWatchDTO> readWatches(JsonObject in) {
+        if (in == null || !in.has("watches") || !in.get("watches").isJsonArray()) {
+            return List.of();
+        }
+        List<DebugWatchDTO> out = new ArrayList<>();
+        for (DebugWatchDTO w : gson.fromJson(in.get("watches"), DebugWatchDTO[].class)) {
+            if (w != null && w.getVar() != null && w.getVar().getVariable() != null) {
+                out.add(w);
+            }
+        }
+        return out;
+    }
+
     private JsonObject readJson(HttpServletRequest req) throws IOException {
         StringBuilder sb = new StringBuilder();
         try (BufferedReader r = req.getReader()) {
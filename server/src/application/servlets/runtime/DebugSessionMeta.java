@@ -1,6 +1,10 @@
 package application.servlets.runtime;
 
+import execution.debug.DebugStopDTO;
+
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class DebugSessionMeta {
 
@@ -11,6 +15,8 @@ public class DebugSessionMeta {
     private final int degree;
     private final List<Long> inputs;
     private volatile boolean recorded;
+    private volatile DebugStopDTO.Reason stopReason; // why the last resume stopped, null while one runs
+    private final List<Consumer<DebugStopDTO.Reason>> stopListeners = new CopyOnWriteArrayList<>();
 
     public DebugSessionMeta(String username,
                             String targetType,
@@ -58,4 +64,30 @@ public class DebugSessionMeta {
     public void markRecorded() {
         this.recorded = true;
     }
-}
\ No newline at end of file
+
+    public DebugStopDTO.Reason getStopReason() {
+        return stopReason;
+    }
+
+    public void setStopReason(DebugStopDTO.Reason stopReason) {
+        this.stopReason = stopReason;
+        if (stopReason != null) {
+            for (Consumer<DebugStopDTO.Reason> l : stopListeners) {
+                l.accept(stopReason);
+            }
+        }
+    }
+
+    /** {@code l} is told every time a resume stops; right away if the last one already has. */
+    public void addStopListener(Consumer<DebugStopDTO.Reason> l) {
+        stopListeners.add(l);
+        DebugStopDTO.Reason now = stopReason;
+        if (now != null) {
+            l.accept(now);
+        }
+    }
+
+    public void removeStopListener(Consumer<DebugStopDTO.Reason> l) {
+        stopListeners.remove(l);
+    }
+}
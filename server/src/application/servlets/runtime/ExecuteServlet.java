@@ -1,6 +1,7 @@
 package application.servlets.runtime;
 
-import api.DebugAPI;
+import api.RunSession;
+import application.credits.CreditReservation;
 import application.credits.Generation;
 import application.history.HistoryManager;
 import application.listeners.AppContextListener;
@@ -8,17 +9,18 @@ import application.programs.ProgramManager;
 import application.programs.ProgramTableRow;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import display.DisplayDTO;
 import execution.ExecutionDTO;
 import execution.ExecutionRequestDTO;
 import execution.VarValueDTO;
-import execution.debug.DebugStateDTO;
-import execution.debug.DebugStepDTO;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import application.execution.ExecutionCache;
 import application.execution.ExecutionTaskManager;
 import application.execution.ExecutionTaskManager.Job;
 import application.execution.ExecutionTaskManager.Status;
@@ -29,14 +31,16 @@ import users.UserManager;
 
 import api.DisplayAPI;
 import users.UserTableRow;
+import utils.EventStream;
 
 import java.io.BufferedReader;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static utils.Constants.*;
 
-@WebServlet(name = "ExecuteServlet", urlPatterns = {API_EXECUTE})
+@WebServlet(name = "ExecuteServlet", urlPatterns = {API_EXECUTE, API_EXECUTE_EVENTS}, asyncSupported = true)
 public class ExecuteServlet extends HttpServlet {
     private final Gson gson = new Gson();
     private Generation architecture;
@@ -128,7 +132,7 @@ public class ExecuteServlet extends HttpServlet {
                     }
 
                     int needCredits = (int) Math.ceil(avgCost);
-                    int haveCredits = userRowGate.getCreditsCurrent();
+                    int haveCredits = userRowGate.getCreditsCurrent(); // reserved credits are not free to start with
 
                     if (haveCredits < needCredits) {
                         // Not enough credits to even start
@@ -158,17 +162,12 @@ public class ExecuteServlet extends HttpServlet {
             if (username != null) {
                 UserTableRow rowBefore = um.get(username);
                 if (rowBefore != null) {
-                    int haveBefore = rowBefore.getCreditsCurrent();
-                    int cost = genUpfront.getCredits();
-
-                    if (haveBefore < cost) {
+                    // Deduct upfront generation cost now, atomically with the check.
+                    if (!CreditReservation.charge(um, username, genUpfront.getCredits())) {
                         resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
                         resp.getWriter().write("{\"error\":\"insufficient_credits\"}");
                         return;
                     }
-
-                    // Deduct upfront generation cost now.
-                    um.adjustCredits(username, -cost);
                 }
             }
 
@@ -176,128 +175,124 @@ public class ExecuteServlet extends HttpServlet {
             final ServletContext ctxRef = getServletContext();
 
 
-            JobSubmitResult res = ExecutionTaskManager.trySubmit(() -> {
-                try {
-                    // DebugAPI for this specific degree
-                    DebugAPI dbgApi = targetRef.debugForDegree(degree);
-
-                    Generation gen = Generation.valueOf(execReqRef.getGeneration());
-                    architecture = gen;
+            JobSubmitResult res = ExecutionTaskManager.trySubmitSliced(username, genUpfront, new ExecutionTaskManager.SlicedTask() {
+                // the continuation: run state and credits survive from one slice (and worker) to the next
+                private RunSession run;
+                private CreditReservation credits;
+                private long billedCycles; // cycles of run already drawn from credits
 
-                    // 2) init machine state
-                    DebugStateDTO state = dbgApi.init(execReqRef);
-                    long prevCycles = state.getCyclesSoFar();
+                @Override
+                public boolean runSlice() {
+                    if (run == null) {
+                        // Run engine for this specific degree (generated class when possible)
+                        run = ExecutionTaskManager.compute(
+                                () -> ExecutionCache.compiled(targetRef, degree).startRun(execReqRef));
 
-                    // paidState = last fully-paid state
-                    DebugStateDTO paidState = state;
-
-                    while (true) {
-                        boolean alreadyTerminated = false;
-                        try {
-                            alreadyTerminated = dbgApi.isTerminated();
-                        } catch (Throwable ignore) { }
+                        Generation gen = Generation.valueOf(execReqRef.getGeneration());
+                        architecture = gen;
+                        credits = CreditReservation.open(um, username,
+                                CREDIT_RESERVATION_FIRST, CREDIT_RESERVATION_BLOCK);
+                    }
 
-                        if (alreadyTerminated) {
-                            break;
+                    // 2) run chunk by chunk against a credit reservation; each chunk stops before
+                    //    the first instruction the reserved credits can't cover, then we try to reserve more.
+                    //    After RUN_SLICE_CYCLES the worker is given back and the job waits for its next turn.
+                    long sliceEnd = run.getCyclesSoFar() + RUN_SLICE_CYCLES;
+                    while (!run.isFinished() && run.getCyclesSoFar() < sliceEnd) {
+                        long budget = credits.balance();
+                        long spent = ExecutionTaskManager.compute(() -> run.advance(RUN_CHUNK_CYCLES, budget));
+                        credits.spend(spent);
+                        billedCycles += spent;
+                        ExecutionTaskManager.reportProgress(run.getCyclesSoFar());
+
+                        if (run.isBudgetExhausted() && !credits.topUp()) {
+                            if (username != null) {
+                                AppContextListener.markUserOutOfCredits(ctxRef, username);
+                            }
+                            return true;
                         }
+                    }
+                    return run.isFinished();
+                }
 
-                        DebugStepDTO step = dbgApi.step();
-                        DebugStateDTO newState = step.getNewState();
+                @Override
+                public ExecutionDTO finish() {
+                    try {
+                        credits.close();
 
-                        long currCycles = newState.getCyclesSoFar();
-                        long delta = currCycles - prevCycles;
-                        if (delta < 0L) {
-                            delta = 0L;
-                        }
+                        // final snapshot for history / client is the last fully-paid state
+                        ExecutionDTO result = run.result();
 
-                        if (username != null && delta > 0L) {
-                            // check if the user can afford this command
-                            UserTableRow rowNow = um.get(username);
-                            int haveNow = 0;
-                            if (rowNow != null) {
-                                haveNow = rowNow.getCreditsCurrent();
-                            }
+                        long finalCycles = result.getTotalCycles();
+                        long finalY = result.getyValue();
 
-                            if (haveNow < delta) {
-                                AppContextListener.markUserOutOfCredits(ctxRef, username);
-                                break;
+                        // 3) history record (mode = EXECUTION)
+                        try {
+                            String targetType = (functionUserStringRef != null && !functionUserStringRef.isBlank())
+                                    ? "FUNCTION"
+                                    : "PROGRAM";
+
+                            String targetName = (functionUserStringRef != null && !functionUserStringRef.isBlank())
+                                    ? functionUserStringRef
+                                    : programKeyRef;
+
+                            String architectureType = execReqRef.getGeneration();
+
+                            long cyclesCount = finalCycles;
+                            totalCycles[0] = cyclesCount;
+
+                            List<Long> inputsList = execReqRef.getInputs();
+                            List<String> outputsSnapshot = buildOutputsSnapshot(result.getFinals());
+
+                            if (username != null && hmRef != null) {
+                                hmRef.addRunRecord(
+                                        username,
+                                        targetType,
+                                        targetName,
+                                        architectureType,
+                                        degree,
+                                        finalY,
+                                        cyclesCount,
+                                        inputsList,
+                                        outputsSnapshot,
+                                        "EXECUTION"
+                                );
                             }
 
-                            // charge delta (this command is fully paid)
-                            um.adjustCredits(username, (int)(-delta));
+                        } catch (Exception ignore) {
+                            // best-effort only
                         }
 
-                        prevCycles = currCycles;
-                        paidState = newState;
-                    }
-
-                    // final snapshot for history / client is the last fully-paid state
-                    DebugStateDTO finalStateForHistory = paidState;
-
-                    long finalCycles = finalStateForHistory.getCyclesSoFar();
-                    long finalY = finalStateForHistory.getY();
-                    List<VarValueDTO> finalVars = finalStateForHistory.getVars();
+                        // 4) per-user aggregate metrics (unchanged)
+                        if (username != null) {
+                            um.onRunExecuted(username, 0);
+                        }
 
-                    // executedProgram is the expanded program that actually ran
-                    DisplayDTO executedDisplay = dbgApi.executedDisplaySnapshot();
+                        return result;
 
-                    // Build the DTO we return to the client poll
-                    ExecutionDTO result = new ExecutionDTO(
-                            finalY,
-                            finalCycles,
-                            finalVars,
-                            executedDisplay
-                    );
+                    } finally {
+                        countRun();
+                    }
+                }
 
-                    // 3) history record (mode = EXECUTION)
+                @Override
+                public void abandon() {
                     try {
-                        String targetType = (functionUserStringRef != null && !functionUserStringRef.isBlank())
-                                ? "FUNCTION"
-                                : "PROGRAM";
-
-                        String targetName = (functionUserStringRef != null && !functionUserStringRef.isBlank())
-                                ? functionUserStringRef
-                                : programKeyRef;
-
-                        String architectureType = execReqRef.getGeneration();
-
-                        long cyclesCount = finalCycles;
-                        totalCycles[0] = cyclesCount;
-
-                        List<Long> inputsList = execReqRef.getInputs();
-                        List<String> outputsSnapshot = buildOutputsSnapshot(finalStateForHistory);
-
-                        if (username != null && hmRef != null) {
-                            hmRef.addRunRecord(
-                                    username,
-                                    targetType,
-                                    targetName,
-                                    architectureType,
-                                    degree,
-                                    finalY,
-                                    cyclesCount,
-                                    inputsList,
-                                    outputsSnapshot,
-                                    "EXECUTION"
-                            );
+                        if (credits != null) {
+                            // a chunk cut by a cancel or the hard stop ran (within its budget) but was never spent
+                            long unbilled = run.getCyclesSoFar() - billedCycles;
+                            if (unbilled > 0) {
+                                credits.spend(Math.min(unbilled, credits.balance()));
+                            }
+                            credits.close(); // refund what is left of the reservation
                         }
-
-                    } catch (Exception ignore) {
-                        // best-effort only
+                    } finally {
+                        countRun();
                     }
+                }
 
-                    // 4) per-user aggregate metrics (unchanged)
-                    if (username != null) {
-                        um.onRunExecuted(username, 0);
-                    }
-
-                    // NOTE: we keep outOfCredits in a local boolean.
-                    // next step: we will expose it on the Job and return it in doGet().
-
-                    return result;
-
-                } finally {
-                    // count this run toward averages for PROGRAM targets
+                // count this run toward averages for PROGRAM targets
+                private void countRun() {
                     if (functionUserStringRef == null || functionUserStringRef.isBlank()) {
                         ProgramManager pm = AppContextListener.getPrograms(getServletContext());
                         if (pm != null && programKeyRef != null && !programKeyRef.isBlank()) {
@@ -329,114 +324,178 @@ public class ExecuteServlet extends HttpServlet {
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+        if (API_EXECUTE_EVENTS.equals(req.getServletPath())) {
+            handleEvents(req, resp);
+            return;
+        }
         resp.setContentType("application/json");
         try {
             String jobId = req.getParameter("jobId");
             if (jobId == null || jobId.isBlank()) {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-
-                JsonObject outBad = new JsonObject();
-                outBad.addProperty("status", "UNKNOWN");
-                outBad.addProperty("error", "missing jobId");
-                outBad.addProperty("outOfCredits", false);
-
-                resp.getWriter().write(gson.toJson(outBad));
+                resp.getWriter().write(gson.toJson(unknownJson("missing jobId")));
                 return;
             }
 
             Job job = ExecutionTaskManager.get(jobId);
             if (job == null) {
                 resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
-
-                JsonObject outMissing = new JsonObject();
-                outMissing.addProperty("status", "UNKNOWN");
-                outMissing.addProperty("error", "no such job");
-                outMissing.addProperty("outOfCredits", false);
-
-                resp.getWriter().write(gson.toJson(outMissing));
+                resp.getWriter().write(gson.toJson(unknownJson("no such job")));
                 return;
             }
 
-            // get username from the session for this request
-            String username = (String) (req.getSession(false) != null
-                    ? req.getSession(false).getAttribute(SESSION_USERNAME)
-                    : null);
-
-            // ask global map if this user ran out of credits in this run
-            boolean outOfCreditsFlag = AppContextListener.isUserOutOfCredits(
-                    getServletContext(),
-                    username
-            );
-            Status st = job.status;
-
-            if (st == Status.DONE) {
-                resp.setStatus(HttpServletResponse.SC_OK);
-
-                JsonObject outDone = new JsonObject();
-                outDone.addProperty("status", "DONE");
-                outDone.add("result", gson.toJsonTree(job.result));
-                outDone.addProperty("outOfCredits", outOfCreditsFlag);
-
-                resp.getWriter().write(gson.toJson(outDone));
+            long waitMs = parseWait(req.getParameter(QP_WAIT));
+            if (waitMs > 0 && !job.status.isTerminal()) {
+                parkUntilDone(req, resp, job, waitMs);
                 return;
             }
 
-            if (st == Status.ERROR) {
-                resp.setStatus(HttpServletResponse.SC_OK);
-
-                JsonObject outErr = new JsonObject();
-                outErr.addProperty("status", "ERROR");
-                outErr.add("error", gson.toJsonTree(job.error));
-                outErr.addProperty("outOfCredits", outOfCreditsFlag);
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write(gson.toJson(statusJson(job, job.status, usernameOf(req))));
 
-                resp.getWriter().write(gson.toJson(outErr));
-                return;
-            }
+        } catch (Exception ex) {
+            try {
+                resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 
-            if (st == Status.CANCELED) {
-                resp.setStatus(HttpServletResponse.SC_OK);
+                JsonObject outFail = new JsonObject();
+                outFail.addProperty("error", ex.getMessage());
+                outFail.addProperty("outOfCredits", false);
 
-                JsonObject outCanceled = new JsonObject();
-                outCanceled.addProperty("status", "CANCELED");
-                outCanceled.addProperty("outOfCredits", outOfCreditsFlag);
+                resp.getWriter().write(gson.toJson(outFail));
+            } catch (Exception ignore) {
+            }
+        }
+    }
 
-                resp.getWriter().write(gson.toJson(outCanceled));
-                return;
+    /**
+     * GET /api/execute?jobId=...&wait=ms
+     * Long poll: the request is parked (no container thread held) until the job reaches a terminal status
+     * or {@code waitMs} passes, then answered exactly like a plain poll with whatever status the job has.
+     */
+    private void parkUntilDone(HttpServletRequest req, HttpServletResponse resp, Job job, long waitMs) {
+        final String username = usernameOf(req);
+        final AsyncContext async = req.startAsync();
+        async.setTimeout(waitMs);
+        final AtomicBoolean answered = new AtomicBoolean(false);
+
+        final ExecutionTaskManager.JobListener listener = new ExecutionTaskManager.JobListener() {
+            @Override
+            public void onStatus(Job j, Status st) {
+                if (st.isTerminal()) {
+                    answer(async, answered, j, st, username);
+                }
             }
+        };
+        async.addListener(new AsyncListener() {
+            @Override public void onComplete(AsyncEvent e) { job.unsubscribe(listener); }
+            @Override public void onTimeout(AsyncEvent e) { answer(async, answered, job, job.status, username); }
+            @Override public void onError(AsyncEvent e) { job.unsubscribe(listener); }
+            @Override public void onStartAsync(AsyncEvent e) { }
+        });
+        job.subscribe(listener);
+    }
 
-            if (st == Status.TIMED_OUT) {
-                resp.setStatus(HttpServletResponse.SC_OK);
+    // first of (terminal status, timeout) answers the parked request; the other one finds it answered
+    private void answer(AsyncContext async, AtomicBoolean answered, Job job, Status st, String username) {
+        if (!answered.compareAndSet(false, true)) return;
+        try {
+            HttpServletResponse resp = (HttpServletResponse) async.getResponse();
+            resp.setContentType("application/json");
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write(gson.toJson(statusJson(job, st, username)));
+        } catch (Exception ignore) {
+            // client went away
+        } finally {
+            async.complete();
+        }
+    }
 
-                JsonObject outTimeout = new JsonObject();
-                outTimeout.addProperty("status", "TIMED_OUT");
-                outTimeout.addProperty("outOfCredits", outOfCreditsFlag);
+    private static long parseWait(String wait) {
+        if (wait == null || wait.isBlank()) return 0L;
+        try {
+            return Math.min(Math.max(0L, Long.parseLong(wait.trim())), LONG_POLL_MAX_WAIT_MS);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
 
-                resp.getWriter().write(gson.toJson(outTimeout));
+    /**
+     * GET /api/execute/events?jobId=...
+     * text/event-stream: a "status" event (same JSON as GET /api/execute) on every status change,
+     * "progress" {cycles} after every run chunk. The stream ends after the terminal status.
+     */
+    private void handleEvents(HttpServletRequest req, HttpServletResponse resp) {
+        try {
+            String jobId = req.getParameter("jobId");
+            Job job = (jobId == null || jobId.isBlank()) ? null : ExecutionTaskManager.get(jobId);
+            if (job == null) {
+                resp.setContentType("application/json");
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().write(gson.toJson(unknownJson("no such job")));
                 return;
             }
 
-            resp.setStatus(HttpServletResponse.SC_OK);
-
-            JsonObject outPending = new JsonObject();
-            outPending.addProperty("status", st.toString());
-            outPending.addProperty("outOfCredits", outOfCreditsFlag);
+            final String username = usernameOf(req);
+            final EventStream stream = EventStream.open(req, resp, EVENT_STREAM_TIMEOUT_MS);
+            ExecutionTaskManager.JobListener listener = new ExecutionTaskManager.JobListener() {
+                @Override
+                public void onStatus(Job j, Status st) {
+                    stream.send("status", gson.toJson(statusJson(j, st, username)));
+                    if (st.isTerminal()) {
+                        stream.close();
+                    }
+                }
 
-            resp.getWriter().write(gson.toJson(outPending));
+                @Override
+                public void onProgress(Job j, long cycles) {
+                    JsonObject out = new JsonObject();
+                    out.addProperty("cycles", cycles);
+                    stream.send("progress", gson.toJson(out));
+                }
+            };
+            stream.onClose(() -> job.unsubscribe(listener));
+            job.subscribe(listener);
 
         } catch (Exception ex) {
             try {
                 resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-
-                JsonObject outFail = new JsonObject();
-                outFail.addProperty("error", ex.getMessage());
-                outFail.addProperty("outOfCredits", false);
-
-                resp.getWriter().write(gson.toJson(outFail));
             } catch (Exception ignore) {
             }
         }
     }
 
+    /**
+     * The poll answer for {@code job} at status {@code st}: status, plus result (DONE, or TIMED_OUT with the
+     * state a time-sliced run reached) or error (ERROR),
+     * plus whether {@code username} ran out of credits in this run.
+     */
+    private JsonObject statusJson(Job job, Status st, String username) {
+        JsonObject out = new JsonObject();
+        out.addProperty("status", st.toString());
+        if (st == Status.DONE || (st == Status.TIMED_OUT && job.result != null)) {
+            out.add("result", gson.toJsonTree(job.result));
+        } else if (st == Status.ERROR) {
+            out.add("error", gson.toJsonTree(job.error));
+        }
+        // ask global map if this user ran out of credits in this run
+        out.addProperty("outOfCredits", AppContextListener.isUserOutOfCredits(getServletContext(), username));
+        return out;
+    }
+
+    private static JsonObject unknownJson(String error) {
+        JsonObject out = new JsonObject();
+        out.addProperty("status", "UNKNOWN");
+        out.addProperty("error", error);
+        out.addProperty("outOfCredits", false);
+        return out;
+    }
+
+    private static String usernameOf(HttpServletRequest req) {
+        return (String) (req.getSession(false) != null
+                ? req.getSession(false).getAttribute(SESSION_USERNAME)
+                : null);
+    }
+
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws java.io.IOException {
         resp.setContentType("application/json; charset=UTF-8");
@@ -474,10 +533,10 @@ public class ExecuteServlet extends HttpServlet {
      * Build a readable snapshot of final variable values in the order:
      * y, then all x..., then all z...
      */
-    private static List<String> buildOutputsSnapshot(DebugStateDTO state) {
+    private static List<String> buildOutputsSnapshot(List<VarValueDTO> vars) {
         List<String> lines = new ArrayList<>();
 
-        if (state == null || state.getVars() == null) {
+        if (vars == null) {
             lines.add("y = 0");
             return lines;
         }
@@ -487,7 +546,7 @@ public class ExecuteServlet extends HttpServlet {
         Set<Integer> xSet = new TreeSet<>();
         Set<Integer> zSet = new TreeSet<>();
 
-        for (VarValueDTO vv : state.getVars()) {
+        for (VarValueDTO vv : vars) {
             VarRefDTO ref = vv.getVar();
             if (ref == null) {
                 continue;
@@ -2,18 +2,25 @@ package application.servlets.runtime;
 
 import api.DisplayAPI;
 import display.ExpandDTO;
+import display.ExpandPageDTO;
+import display.InstructionDTO;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static utils.Constants.API_EXPAND;
 import static utils.Constants.ATTR_DISPLAY_REGISTRY;
+import static utils.Constants.EXPAND_PAGE_MAX_ROWS;
 import static utils.Constants.QP_DEGREE;
+import static utils.Constants.QP_LIMIT;
+import static utils.Constants.QP_OFFSET;
+import static utils.Constants.QP_ROW;
 import static utils.ServletUtils.writeJson;
 import static utils.ServletUtils.writeJsonError;
 
@@ -25,13 +32,7 @@ public class ExpandServlet extends HttpServlet {
         resp.setContentType("application/json");
 
         // which degree is requested
-        String degStr = req.getParameter(QP_DEGREE); // "degree"
-        int degree = 0;
-        try {
-            if (degStr != null && !degStr.isBlank()) {
-                degree = Math.max(0, Integer.parseInt(degStr));
-            }
-        } catch (NumberFormatException ignore) { }
+        int degree = intParam(req, QP_DEGREE, 0); // "degree"
 
         // who are we expanding: program or function
         String functionKey = req.getParameter("function");
@@ -61,9 +62,21 @@ public class ExpandServlet extends HttpServlet {
         }
 
         try {
-            // this exists in your code: DisplayAPI#expand(int degree) → ExpandDTO
-            ExpandDTO out = target.expand(degree);
-            writeJson(resp, HttpServletResponse.SC_OK, out);
+            if (req.getParameter(QP_ROW) != null) {
+                // lineage of one row, fetched when the user selects it
+                List<InstructionDTO> chain = target.lineage(degree, intParam(req, QP_ROW, 0));
+                writeJson(resp, HttpServletResponse.SC_OK, chain);
+            } else if (req.getParameter(QP_OFFSET) != null || req.getParameter(QP_LIMIT) != null) {
+                // one window of rows, no lineage
+                int offset = intParam(req, QP_OFFSET, 0);
+                int limit = Math.min(intParam(req, QP_LIMIT, EXPAND_PAGE_MAX_ROWS), EXPAND_PAGE_MAX_ROWS);
+                ExpandPageDTO page = target.expandPage(degree, offset, limit);
+                writeJson(resp, HttpServletResponse.SC_OK, page);
+            } else {
+                // this exists in your code: DisplayAPI#expand(int degree) → ExpandDTO
+                ExpandDTO out = target.expand(degree);
+                writeJson(resp, HttpServletResponse.SC_OK, out);
+            }
 
         } catch (Exception e) {
             String msg = e.getClass().getSimpleName() + ": " +
@@ -72,6 +85,16 @@ public class ExpandServlet extends HttpServlet {
         }
     }
 
+    private static int intParam(HttpServletRequest req, String name, int fallback) {
+        String raw = req.getParameter(name);
+        try {
+            if (raw != null && !raw.isBlank()) {
+                return Math.max(0, Integer.parseInt(raw.trim()));
+            }
+        } catch (NumberFormatException ignore) { }
+        return fallback;
+    }
+
     @SuppressWarnings("unchecked")
     private Map<String, DisplayAPI> getDisplayRegistry(HttpServletRequest req) {
         Object obj = req.getServletContext().getAttribute(ATTR_DISPLAY_REGISTRY);
@@ -2,6 +2,8 @@ package application.servlets.runtime;
 
 import api.DisplayAPI;
 import api.LoadAPI;
+import application.execution.ExecutionCache;
+import application.functions.FunctionCallGraph;
 import application.functions.FunctionManager;
 import application.functions.FunctionTableRow;
 import application.listeners.AppContextListener;
@@ -24,14 +26,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.http.Part;
 import structure.function.Function;
+import structure.program.Program;
 import users.UserManager;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -52,7 +52,7 @@ public class LoadServlet extends HttpServlet {
     protected void doPost(HttpServletRequest req,
                           HttpServletResponse resp) throws IOException {
 
-        // Step 1: parse multipart/form-data and copy uploaded file to temp
+        // Step 1: parse multipart/form-data
         final Part filePart;
         try {
             filePart = req.getPart(PART_FILE);
@@ -70,21 +70,26 @@ public class LoadServlet extends HttpServlet {
             return;
         }
 
-        Path tmp = Files.createTempFile("program-", ".xml");
+        // Step 2: engine parsing and base validation (XML format, labels, etc.),
+        // straight from the uploaded part
+        final DisplayAPI display;
         try (InputStream in = filePart.getInputStream()) {
-            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception e) {
-            Files.deleteIfExists(tmp);
+            LoadAPI loader = new LoadAPIImpl();
+            display = loader.loadFromXml(in); // may throw if XML/labels invalid
+        } catch (IOException e) {
             writeUploadResult(resp,
                     HttpServletResponse.SC_OK,
                     UploadResultDTO.error("failed to read uploaded file"));
             return;
+        } catch (Exception e) {
+            writeUploadResult(resp,
+                    HttpServletResponse.SC_OK,
+                    UploadResultDTO.error(e.getClass().getSimpleName() + ": " +
+                            (e.getMessage() == null ? "" : e.getMessage())));
+            return;
         }
 
         try {
-            // Step 2: engine parsing and base validation (XML format, labels, etc.)
-            LoadAPI loader = new LoadAPIImpl();
-            DisplayAPI display = loader.loadFromXml(tmp); // may throw if XML/labels invalid
             DisplayAPIImpl uploadedImpl = (DisplayAPIImpl) display;
 
             // Snapshot DTO BEFORE linking external functions
@@ -113,6 +118,7 @@ public class LoadServlet extends HttpServlet {
                     getServletContext().getAttribute(AppContextListener.ATTR_USERS);
             Map<String, DisplayAPI> registry = getDisplayRegistry();
             Map<String, String> nameIndex = getFunctionNameMap();
+            FunctionCallGraph callGraph = AppContextListener.getCallGraph(getServletContext());
 
             // --------------------------
             // Step 3: business validation (no mutation yet)
@@ -180,159 +186,87 @@ public class LoadServlet extends HttpServlet {
                 }
             }
 
-            // Step 4: dependency resolution with fixpoint (fixed)
-
-            while (true) {
-
-                // Snapshot after any functions we've already attached
-                DisplayDTO currentDto = display.getDisplay();
-
-                // Map of local functions in the current program right now:
-                // functionName (internal) -> userString (alias)
-                Map<String, String> inProgramNameToUserString = new HashMap<String, String>();
-
-                // All userStrings that are already part of this program
-                // (functions that are currently attached)
-                List<String> haveList = uploadedImpl.listFunctionUserStrings();
-                Set<String> haveSet = new LinkedHashSet<String>(haveList);
-
-                List<FunctionDTO> funcsNow = currentDto.getFunctions();
-                if (funcsNow != null) {
-                    for (FunctionDTO f : funcsNow) {
-                        if (f == null) {
-                            continue;
-                        }
-                        String fName = f.getName();
-                        String fUser = f.getUserString();
-                        if (fName != null && !fName.isBlank()
-                                && fUser != null && !fUser.isBlank()) {
-                            inProgramNameToUserString.put(fName, fUser);
-                            haveSet.add(fUser);
-                        }
-                    }
-                }
+            // Step 4: dependency resolution through the global call graph.
+            // Only the calls made by THIS upload are collected here; everything
+            // they reach was resolved when the callee was uploaded.
+            Program uploadedProgram = uploadedImpl.getProgram();
+
+            // Map of local functions in the uploaded program:
+            // functionName (internal) -> userString (alias)
+            Map<String, String> inProgramNameToUserString = functionAliases(uploadedProgram);
+
+            // All userStrings that are already part of this program
+            Set<String> haveSet = new LinkedHashSet<String>(uploadedImpl.listFunctionUserStrings());
+            haveSet.addAll(inProgramNameToUserString.values());
+
+            // Collect all function calls (direct QUOTE/JUMP_EQUAL_FUNCTION
+            // and nested/composed calls in their arguments).
+            // namesCalled are internal function names (e.g. "Smaller_Equal_Than"),
+            // ustrCalled are explicit userStrings on the instruction body.
+            Set<String> namesCalled = new LinkedHashSet<String>();
+            Set<String> ustrCalled  = new LinkedHashSet<String>();
+            FunctionCallGraph.collectCalls(uploadedProgram.getInstructions(), namesCalled, ustrCalled);
+            for (Function f : uploadedProgram.getFunctions()) {
+                FunctionCallGraph.collectCalls(f.getInstructions(), namesCalled, ustrCalled);
+            }
 
-                // Collect all function calls (direct QUOTE/JUMP_EQUAL_FUNCTION
-                // and nested/composed calls in their arguments).
-                // namesCalled can contain either internal function names
-                // (e.g. "Smaller_Equal_Than") OR already the userString alias
-                // (e.g. "<=") depending on how the DTO was built.
-                // ustrCalled are explicit userStrings on the instruction body.
-                Set<String> namesCalled = new LinkedHashSet<String>();
-                Set<String> ustrCalled  = new LinkedHashSet<String>();
-                collectCalledFunctionsFromDisplayDTO(
-                        currentDto,
-                        namesCalled,
-                        ustrCalled
+            // Turn all collected identifiers into "aliases we need".
+            // An alias here means "the userString of a function we depend on".
+            //
+            // For each identifier 'id' from namesCalled:
+            // 1. If it's a known local functionName -> take its userString.
+            // 2. Else if it's already present as a local userString
+            //    (haveSet.contains(id)) -> treat it as that alias.
+            // 3. Else if global nameIndex knows id as functionName -> map to that alias.
+            // 4. Else fall back to treating 'id' itself as the alias. This covers
+            //    the case where 'id' is actually a userString defined in some
+            //    program we already loaded into the registry.
+            Set<String> neededAliases = new LinkedHashSet<>();
+
+            for (String id : namesCalled) {
+                String alias = resolveAliasForName(
+                        id,
+                        inProgramNameToUserString,
+                        haveSet,
+                        nameIndex,
+                        registry
                 );
 
-                // Turn all collected identifiers into "aliases we need".
-                // An alias here means "the userString of a function we depend on".
-                //
-                // For each identifier 'id' from namesCalled:
-                // 1. If it's a known local functionName -> take its userString.
-                // 2. Else if it's already present as a local userString
-                //    (haveSet.contains(id)) -> treat it as that alias.
-                // 3. Else if global nameIndex knows id as functionName -> map to that alias.
-                // 4. Else fall back to treating 'id' itself as the alias. This covers
-                //    the case where 'id' is actually a userString defined in some
-                //    program we already loaded into the registry.
-
-                Set<String> neededAliases = new LinkedHashSet<>();
-
-                for (String id : namesCalled) {
-                    if (id == null || id.isBlank()) {
-                        continue;
-                    }
-
-                    String alias = resolveAliasForName(
-                            id,
-                            inProgramNameToUserString,
-                            haveSet,
-                            nameIndex,
-                            registry
-                    );
-
-                    if (alias != null && !alias.isBlank()) {
-                        neededAliases.add(alias.trim());
-                    }
-                }
-
-
-                // Also include direct userStrings taken from instruction bodies
-                for (String u : ustrCalled) {
-                    if (u == null || u.isBlank()) {
-                        continue;
-                    }
-                    neededAliases.add(u.trim());
+                if (alias != null && !alias.isBlank()) {
+                    neededAliases.add(alias.trim());
                 }
+            }
+            neededAliases.addAll(ustrCalled);
 
-                // Now figure out which aliases we still do NOT have locally
-                neededAliases.removeAll(haveSet);
-                if (neededAliases.isEmpty()) {
-                    // We have all required functions already
-                    break;
-                }
-
-                // Try to import those missing aliases from the global registry.
-                // registry is userString -> DisplayAPI
-                List<Function> batchToAttach = new LinkedList<Function>();
-                Set<String> unresolvedAlias = new LinkedHashSet<String>();
-
-                for (String alias : neededAliases) {
-                    if (alias == null || alias.isBlank()) {
-                        continue;
-                    }
-
-                    DisplayAPI depApi = registry.get(alias);
-                    if (depApi == null) {
-                        // We do not have an implementation for this alias anywhere
-                        unresolvedAlias.add(alias);
-                        continue;
-                    }
-
-                    DisplayAPIImpl depImpl = (DisplayAPIImpl) depApi;
-                    Function externalFn = depImpl.findFunctionByUserString(alias);
-                    if (externalFn == null) {
-                        unresolvedAlias.add(alias);
-                        continue;
-                    }
-
-                    // Queue this external function to be attached into the uploaded program
-                    haveSet.add(alias);
-                    batchToAttach.add(externalFn);
-                }
+            // One traversal gives every external function we still miss,
+            // including what those functions call themselves.
+            FunctionCallGraph.Closure deps = callGraph.closure(neededAliases, haveSet);
 
-                // If some aliases are still unresolved after checking registry,
-                // the upload is invalid: those functions truly do not exist anywhere.
-                if (!unresolvedAlias.isEmpty()) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("Missing function/s: ");
-                    boolean firstMiss = true;
-                    for (String us : unresolvedAlias) {
-                        if (!firstMiss) {
-                            sb.append(", ");
-                        }
-                        sb.append("'").append(us).append("'");
-                        firstMiss = false;
+            // Aliases nobody uploaded make the upload invalid.
+            if (!deps.getMissing().isEmpty()) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("Missing function/s: ");
+                boolean firstMiss = true;
+                for (String us : deps.getMissing()) {
+                    if (!firstMiss) {
+                        sb.append(", ");
                     }
-
-                    writeUploadResult(resp,
-                            HttpServletResponse.SC_OK,
-                            UploadResultDTO.error(sb.toString()));
-                    return;
+                    sb.append("'").append(us).append("'");
+                    firstMiss = false;
                 }
 
-                // If there is nothing new to attach, we are done
-                if (batchToAttach.isEmpty()) {
-                    break;
-                }
+                writeUploadResult(resp,
+                        HttpServletResponse.SC_OK,
+                        UploadResultDTO.error(sb.toString()));
+                return;
+            }
 
-                // Otherwise attach the external functions and loop again.
-                uploadedImpl.attachFunctions(batchToAttach);
+            if (!deps.getFunctions().isEmpty()) {
+                uploadedImpl.attachFunctions(deps.getFunctions());
+                ExecutionCache.invalidate(uploadedImpl);
             }
 
-            // After fixpoint we rebuild the final DTO
+            // After attaching we rebuild the final DTO
             DisplayDTO finalDto = display.getDisplay();
             DisplayDTO cleanDto = buildCleanDisplayDTO(finalDto);
 
@@ -353,6 +287,12 @@ public class LoadServlet extends HttpServlet {
                 globalRegistry.put(userString, fApi);
             }
 
+            // ... and the call graph learns the edges of every function of the final program
+            Map<String, String> finalAliases = functionAliases(uploadedProgram);
+            for (Function f : uploadedProgram.getFunctions()) {
+                callGraph.register(f, finalAliases);
+            }
+
             // 5b. ProgramManager
             if (pm != null) {
                 // store the cleaned DTO (no null userString in QUOTE rows)
@@ -458,121 +398,24 @@ public class LoadServlet extends HttpServlet {
                     HttpServletResponse.SC_OK,
                     UploadResultDTO.error(msg));
 
-        } finally {
-            try {
-                Files.deleteIfExists(tmp);
-            } catch (Exception ignore) {
-                // best-effort cleanup
-            }
-        }
-    }
-
-    private void collectFunctionsFromArgs(String argsText, Set<String> namesOut) {
-        if (argsText == null) {
-            return;
-        }
-        String text = argsText.trim();
-        if (text.isEmpty()) {
-            return;
-        }
-        // Split into top-level arguments, same logic as buildArgToXMap / expand(...)
-        List<String> parts = splitTopArguments(text);
-
-        for (String raw : parts) {
-            if (raw == null) {
-                continue;
-            }
-            String token = raw.trim();
-            if (token.isEmpty()) {
-                continue;
-            }
-
-            if (token.startsWith("(") && token.endsWith(")")) {
-                String[] fa = splitFuncNameAndArgs(token);
-                String fname = fa[0];
-                String innerArgs = fa[1];
-                if (fname != null && !fname.isBlank()) {
-                    namesOut.add(fname.trim());
-                }
-                collectFunctionsFromArgs(innerArgs, namesOut);
-                continue;
-            }
         }
     }
 
-    private void collectCalledFunctionsFromInstructionList(
-            List<InstructionDTO> instructions,
-            Set<String> namesOut,
-            Set<String> userStringsOut) {
-
-        if (instructions == null) {
-            return;
-        }
-
-        for (InstructionDTO ins : instructions) {
-            if (ins == null) {
+    // functionName (internal) -> userString for every function of the program
+    private Map<String, String> functionAliases(Program program) {
+        Map<String, String> out = new HashMap<String, String>();
+        for (Function f : program.getFunctions()) {
+            if (f == null) {
                 continue;
             }
-            InstructionBodyDTO body = ins.getBody();
-            if (body == null) {
-                continue;
-            }
-
-            InstrOpDTO op = body.getOp();
-            if (op == null) {
-                continue;
-            }
-
-            if (op == InstrOpDTO.QUOTE || op == InstrOpDTO.JUMP_EQUAL_FUNCTION) {
-
-                // Direct function reference by internal name
-                String fName = body.getFunctionName();
-                if (fName != null && !fName.isBlank()) {
-                    namesOut.add(fName.trim());
-                }
-
-                // Direct userString reference (may already be known if defined in this file)
-                String ustr = body.getUserString();
-                if (ustr != null && !ustr.isBlank()) {
-                    userStringsOut.add(ustr.trim());
-                }
-
-                // Now parse nested/composed calls from the arguments string
-                String argsText = body.getFunctionArgs();
-                collectFunctionsFromArgs(argsText, namesOut);
-            }
-        }
-    }
-
-    private void collectCalledFunctionsFromDisplayDTO(
-            DisplayDTO dto,
-            Set<String> namesOut,
-            Set<String> userStringsOut) {
-
-        if (dto == null) {
-            return;
-        }
-
-        // main instructions of the program
-        collectCalledFunctionsFromInstructionList(
-                dto.getInstructions(),
-                namesOut,
-                userStringsOut
-        );
-
-        List<FunctionDTO> funcs = dto.getFunctions();
-        if (funcs != null) {
-            for (FunctionDTO f : funcs) {
-                if (f == null) {
-                    continue;
-                }
-                collectCalledFunctionsFromInstructionList(
-                        f.getInstructions(),
-                        namesOut,
-                        userStringsOut
-                );
+            String fName = f.getName();
+            String fUser = f.getUserString();
+            if (fName != null && !fName.isBlank()
+                    && fUser != null && !fUser.isBlank()) {
+                out.put(fName, fUser);
             }
         }
+        return out;
     }
 
     private String resolveAliasForName(String internalName,
@@ -883,52 +726,4 @@ public class LoadServlet extends HttpServlet {
         getServletContext().setAttribute(ATTR_DISPLAY_REGISTRY, created);
         return created;
     }
-
-    public List<String> splitTopArguments(String s) {
-        List<String> out = new ArrayList<>();
-        if (s == null) return out;
-        StringBuilder cur = new StringBuilder();
-        int depth = 0;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c == '(') { depth++; cur.append(c); continue; }
-            if (c == ')') { depth--; cur.append(c); continue; }
-            if (c == ',' && depth == 0) {
-                out.add(cur.toString().trim());
-                cur.setLength(0);
-                continue;
-            }
-            cur.append(c);
-        }
-        out.add(cur.toString().trim());
-        return out;
-    }
-
-    public String[] splitFuncNameAndArgs(String expr) {
-        String inner = removeOuterParentheses(expr);
-        if (inner == null) return new String[] {"", ""};
-        int cut = indexOfTopLevelComma(inner);
-        String fname = (cut == -1) ? inner.trim() : inner.substring(0, cut).trim();
-        String fargs = (cut == -1) ? "" : inner.substring(cut + 1).trim();
-        return new String[] { fname, fargs };
-    }
-
-    public String removeOuterParentheses(String s) {
-        if (s != null && s.length() >= 2 && s.charAt(0) == '(' && s.charAt(s.length() - 1) == ')') {
-            return s.substring(1, s.length() - 1).trim();
-        }
-        return s;
-    }
-
-    public int indexOfTopLevelComma(String s) {
-        if (s == null) return -1;
-        int depth = 0;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c == '(') depth++;
-            else if (c == ')') depth--;
-            else if (c == ',' && depth == 0) return i;
-        }
-        return -1;
-    }
 }
@@ -1,5 +1,7 @@
 package users;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import users.UserTableRowDTO;
 
@@ -10,6 +12,12 @@ public class UserTableRow {
     private final AtomicInteger runs = new AtomicInteger(0);
     private final AtomicInteger creditsCurrent = new AtomicInteger(0);
     private final AtomicInteger creditsUsed = new AtomicInteger(0);
+    private final Set<CreditHold> holds = ConcurrentHashMap.newKeySet(); // open reservations of running jobs
+
+    /** Credits a running job took out of the balance; {@link #unspent()} is read without locking. */
+    public interface CreditHold {
+        long unspent();
+    }
 
     public UserTableRow(String name) {
         this.name = name;
@@ -22,6 +30,21 @@ public class UserTableRow {
     public int getCreditsCurrent() { return creditsCurrent.get(); }
     public int getCreditsUsed() { return creditsUsed.get(); }
 
+    /** Credits running jobs reserved but did not spend yet. */
+    public int getCreditsReserved() {
+        long unspent = 0;
+        for (CreditHold hold : holds) {
+            unspent += hold.unspent();
+        }
+        return (int) Math.min(unspent, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Credits the user can still spend, for display: the balance plus what running jobs reserved but did
+     * not spend yet. Whether something can be paid for is decided by {@link #reserveCredits}, not by this.
+     */
+    public int getCreditsAvailable() { return creditsCurrent.get() + getCreditsReserved(); }
+
     /** +1 main program uploaded by this user */
     public void incMainPrograms() { mainPrograms.incrementAndGet(); }
 
@@ -37,6 +60,39 @@ public class UserTableRow {
         }
     }
 
+    /** Starts counting {@code hold} as reserved (see {@link #getCreditsReserved()}). */
+    public void addHold(CreditHold hold) {
+        holds.add(hold);
+    }
+
+    /**
+     * Moves up to {@code amount} credits out of the current balance into a job's reservation.
+     * Never drives the balance negative; returns how many credits were actually reserved.
+     */
+    public int reserveCredits(int amount) {
+        while (amount > 0) {
+            int current = creditsCurrent.get();
+            int granted = Math.min(amount, Math.max(current, 0));
+            if (granted == 0) return 0;
+            if (creditsCurrent.compareAndSet(current, current - granted)) return granted;
+        }
+        return 0;
+    }
+
+    /**
+     * Closes {@code hold}'s reservation in one settlement: {@code spent} credits become used,
+     * {@code unused} ones go back to the balance.
+     */
+    public void settleReservation(CreditHold hold, int spent, int unused) {
+        if (unused > 0) {
+            creditsCurrent.addAndGet(unused);
+        }
+        holds.remove(hold);
+        if (spent > 0) {
+            creditsUsed.addAndGet(spent);
+        }
+    }
+
     /** Adjust credits balance (positive = top-up, negative = spend). */
     public void adjustCredits(int delta) {
         creditsCurrent.addAndGet(delta);
@@ -5,7 +5,7 @@ public class Constants {
     public static final String ATTR_MODE        = "MODE";
     public static final String ATTR_DEBUG_SESSIONS  = "debug.sessions";
     public static final String ATTR_DEBUG_LOCKS     = "debug.session.locks"; // per-session mutexes
-    public static final String ATTR_DEBUG_SNAPSHOTS = "debug.snapshots";     // latest DebugStateDTO per debugId
+    public static final String ATTR_DEBUG_SNAPSHOTS = "debug.snapshots";     // DebugStateTracker per debugId
     public static final String ATTR_DBG_BUSY        = "dbgBusy";
     public static final String ATTR_DISPLAY_REGISTRY = "display.registry";
     public static final String ATTR_DEBUG_META = "debugMeta";
@@ -16,6 +16,7 @@ public class Constants {
     public static final String API_LOAD                  = "/api/load-file";
     public static final String API_EXPAND                = "/api/expand";
     public static final String API_EXECUTE               = "/api/execute";
+    public static final String API_EXECUTE_EVENTS        = "/api/execute/events"; // GET ?jobId=, text/event-stream
     public static final String API_HISTORY               = "/api/history";
     public static final String API_DEBUG_INIT      = "/api/debug/init";
     public static final String API_DEBUG_STEP      = "/api/debug/step";
@@ -24,6 +25,7 @@ public class Constants {
     public static final String API_DEBUG_TERMINATED = "/api/debug/terminated";
     public static final String API_DEBUG_HISTORY   = "/api/debug/history";
     public static final String API_DEBUG_STATE = "/api/debug/state";
+    public static final String API_DEBUG_EVENTS = "/api/debug/events"; // GET ?debugId=, text/event-stream
     public static final String API_FUNCTIONS             = "/api/functions";
     public static final String API_FUNCTION_PROGRAM      = "/api/functions/%s/program";
     public static final String API_FUNCTION_EXPAND       = "/api/functions/%s/expand";
@@ -38,13 +40,26 @@ public class Constants {
     public static final String HEADER_CONTENT_TYPE = "Content-Type";
     public static final String CONTENT_TYPE_JSON   = "application/json";
     public static final String CONTENT_TYPE_XML    = "application/xml";
+    public static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream";
     public static final String MULTIPART_FORM_DATA = "multipart/form-data";
     public static final String CHARSET_UTF8        = "UTF-8";
     public static final String PART_FILE   = "file";
     public static final String QP_NAME     = "name";
     public static final String QP_DEGREE   = "degree";
+    public static final String QP_OFFSET   = "offset";
+    public static final String QP_LIMIT    = "limit";
+    public static final String QP_ROW      = "row";
+    public static final String QP_WAIT     = "wait"; // GET /api/execute long poll, ms
     public static final String JSON_ERROR  = "error";
     public static final String JSON_STATUS = "status";
     public static final int PROGRAMS_REFRESH_RATE_MS = 2000;
     public static final int SC_TOO_MANY_REQUESTS = 429;
+    public static final long RUN_CHUNK_CYCLES = 100_000L; // cycles executed (and charged) per run chunk
+    public static final long RUN_SLICE_CYCLES = 1_000_000L; // cycles a run job executes before it yields its worker
+    public static final int CREDIT_RESERVATION_FIRST = 500; // credits a running job reserves first
+    public static final int CREDIT_RESERVATION_BLOCK = 10_000; // most credits a running job reserves at a time
+    public static final long EXECUTION_CACHE_MAX_WEIGHT = 2_000_000L; // expanded instructions kept by ExecutionCache
+    public static final int EXPAND_PAGE_MAX_ROWS = 2_000; // rows per /api/expand page
+    public static final long LONG_POLL_MAX_WAIT_MS = 30_000L; // longest a GET /api/execute?wait= is parked
+    public static final long EVENT_STREAM_TIMEOUT_MS = 10 * 60_000L; // an event stream is closed after this; clients reconnect
 }
@@ -0,0 +1,135 @@
+package utils;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One text/event-stream response kept open on an AsyncContext; the request thread returns right away
+ * and events are written from whichever thread produces them (job workers, debug resumes).
+ * Idle streams get a comment line now and then, so proxies keep them open and a gone client is noticed.
+ */
+public final class EventStream {
+
+    private static final long HEARTBEAT_MS = 15_000L;
+    private static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "event-stream-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AsyncContext async;
+    private final PrintWriter writer;
+    private final List<Runnable> closeHandlers = new CopyOnWriteArrayList<>();
+    private volatile boolean open = true;
+
+    private EventStream(AsyncContext async, PrintWriter writer) {
+        this.async = async;
+        this.writer = writer;
+    }
+
+    /** Switches {@code req} to async mode and starts the stream; it is completed after {@code timeoutMs}. */
+    public static EventStream open(HttpServletRequest req, HttpServletResponse resp, long timeoutMs) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(Constants.CONTENT_TYPE_EVENT_STREAM);
+        resp.setCharacterEncoding(Constants.CHARSET_UTF8);
+        resp.setHeader("Cache-Control", "no-cache");
+
+        AsyncContext async = req.startAsync();
+        async.setTimeout(timeoutMs);
+        EventStream stream = new EventStream(async, resp.getWriter());
+        async.addListener(new AsyncListener() {
+            @Override public void onComplete(AsyncEvent e) { stream.closed(); }
+            @Override public void onTimeout(AsyncEvent e) { stream.close(); } // both stop writes under the lock
+            @Override public void onError(AsyncEvent e) { stream.close(); }
+            @Override public void onStartAsync(AsyncEvent e) { }
+        });
+        resp.flushBuffer();
+
+        HEARTBEATS.schedule(stream::heartbeat, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        return stream;
+    }
+
+    /** Writes one event; {@code json} must be a single line (Gson's compact output is). */
+    public boolean send(String event, String json) {
+        synchronized (this) {
+            if (!open) return false;
+            writer.write("event: " + event + "\n");
+            writer.write("data: " + json + "\n\n");
+            writer.flush();
+            if (!writer.checkError()) return true;
+        }
+        close();
+        return false;
+    }
+
+    /** Runs {@code r} once the stream is over, whoever ended it; right away if it already is. */
+    public void onClose(Runnable r) {
+        closeHandlers.add(r);
+        if (!open && closeHandlers.remove(r)) {
+            r.run();
+        }
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Ends the stream. {@code open} drops under the same lock writes hold, before the response is handed
+     * back to the container, so no write can reach a response that is already recycled.
+     */
+    public void close() {
+        synchronized (this) {
+            if (!open) return;
+            open = false;
+            try {
+                async.complete();
+            } catch (IllegalStateException ignore) {
+                // already completed by the container
+            }
+        }
+        runCloseHandlers();
+    }
+
+    // the container completed the request (or is about to): stop writing first
+    private void closed() {
+        synchronized (this) {
+            open = false;
+        }
+        runCloseHandlers();
+    }
+
+    private void runCloseHandlers() {
+        for (Runnable r : closeHandlers) {
+            if (closeHandlers.remove(r)) {
+                r.run();
+            }
+        }
+    }
+
+    private void heartbeat() {
+        boolean failed;
+        synchronized (this) {
+            if (!open) return;
+            writer.write(": ping\n\n");
+            writer.flush();
+            failed = writer.checkError();
+        }
+        if (failed) {
+            close();
+            return;
+        }
+        HEARTBEATS.schedule(this::heartbeat, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+    }
+}
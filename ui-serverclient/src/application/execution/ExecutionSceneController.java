@@ -18,7 +18,9 @@ import execution.ExecutionPollDTO;
 import execution.ExecutionRequestDTO;
 import execution.VarValueDTO;
 import execution.debug.DebugStateDTO;
+import execution.debug.DebugStateTracker;
 import execution.debug.DebugStepDTO;
+import execution.debug.DebugWatchDTO;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
@@ -63,7 +65,8 @@ public class ExecutionSceneController {
     private String targetName;
     private int maxDegree;
     private int currentDegree = 0;
-    private ExpandDTO lastExpanded = null;
+    private volatile int expandSeq = 0; // bumped per degree change; pages and lineage of older requests are dropped
+    private final Map<Integer, List<InstructionDTO>> lineageByNumber = new HashMap<>();
     private String currentHighlight;
     private DisplayDTO display;
     // programContextName is always the program's name.
@@ -77,6 +80,8 @@ public class ExecutionSceneController {
     private volatile boolean      debugActive        = false;
     private volatile boolean      debugStopRequested = false;
     private volatile DebugStateDTO lastDebugState    = null;
+    // full variable state of the debug session; steps are applied to it as they come
+    private final DebugStateTracker debugTracker     = new DebugStateTracker(null);
     private Thread                debugPoller        = null;
     private boolean debugMode    = false; // user chose "Debug"
     private boolean debugStarted = false; // init completed
@@ -170,10 +175,7 @@ public class ExecutionSceneController {
 
         if (programTableController != null && chainTableController != null) {
             chainTableController.hideLineColumn();
-            programTableController.selectedItemProperty().addListener((obs, oldSel, newSel) -> {
-                List<InstructionDTO> chain = programTableController.getCreatedByChainFor(newSel);
-                chainTableController.show(chain == null ? List.of() : chain);
-            });
+            programTableController.selectedItemProperty().addListener((obs, oldSel, newSel) -> showLineage(newSel));
         }
 
         // 3) Load DisplayDTO off the FX thread
@@ -238,33 +240,85 @@ public class ExecutionSceneController {
             outputsController.clear();
         }
 
+        final int seq = ++expandSeq;
+        lineageByNumber.clear();
         new Thread(() -> {
             try {
-                ExpandDTO dto = (targetKind == ExecTarget.PROGRAM)
-                        ? ExpandResponder.expandProgram(programContextName, target)
-                        : ExpandResponder.expandFunction(targetName, target);
-                Platform.runLater(() -> {
-                    lastExpanded = dto;
-                    if (programTableController != null) {
-                        programTableController.showExpanded(dto);
-                        executeGenerationCheck();
-                    }
-                    if (headerController != null && programTableController != null && programTableController.getTableView() != null) {
-                        headerController.populateHighlight(
-                                programTableController.getTableView().getItems(), /*resetToNone=*/true);
-                        currentHighlight = null;
-                        programTableController.getTableView().refresh();
-                        if (chainTableController != null && chainTableController.getTableView() != null) {
-                            chainTableController.getTableView().refresh();
+                // rows arrive page by page; lineage is fetched only for the row the user selects
+                int offset = 0;
+                boolean last = false;
+                while (!last && seq == expandSeq) {
+                    ExpandPageDTO page = (targetKind == ExecTarget.PROGRAM)
+                            ? ExpandResponder.pageProgram(programContextName, target, offset, Constants.EXPAND_PAGE_ROWS)
+                            : ExpandResponder.pageFunction(targetName, target, offset, Constants.EXPAND_PAGE_ROWS);
+                    final boolean first = (offset == 0);
+                    offset += page.getInstructions().size();
+                    last = page.getInstructions().isEmpty() || offset >= page.getTotal();
+                    final boolean done = last;
+                    Platform.runLater(() -> {
+                        if (seq != expandSeq || programTableController == null) return;
+                        if (first) {
+                            programTableController.show(page.getInstructions());
+                        } else {
+                            programTableController.append(page.getInstructions());
                         }
-                    }
-                });
+                        if (done) {
+                            showExpandedRowsLoaded();
+                        }
+                    });
+                }
             } catch (Exception ignore) {
                 // TODO: לוג/שגיאה עדינה אם תרצי
             }
         }, "expand-" + target).start();
     }
 
+    private void showExpandedRowsLoaded() {
+        executeGenerationCheck();
+        if (headerController != null && programTableController.getTableView() != null) {
+            headerController.populateHighlight(
+                    programTableController.getTableView().getItems(), /*resetToNone=*/true);
+            currentHighlight = null;
+            programTableController.getTableView().refresh();
+            if (chainTableController != null && chainTableController.getTableView() != null) {
+                chainTableController.getTableView().refresh();
+            }
+        }
+    }
+
+    private void showLineage(InstructionDTO row) {
+        if (chainTableController == null) return;
+        int degree = currentDegree;
+        if (row == null || degree == 0) {
+            chainTableController.show(List.of());
+            return;
+        }
+        int number = row.getNumber();
+        List<InstructionDTO> known = lineageByNumber.get(number);
+        if (known != null) {
+            chainTableController.show(known);
+            return;
+        }
+        chainTableController.show(List.of());
+        final int seq = expandSeq;
+        new Thread(() -> {
+            try {
+                List<InstructionDTO> chain = (targetKind == ExecTarget.PROGRAM)
+                        ? ExpandResponder.lineageProgram(programContextName, degree, number)
+                        : ExpandResponder.lineageFunction(targetName, degree, number);
+                List<InstructionDTO> safe = (chain == null) ? List.of() : chain;
+                Platform.runLater(() -> {
+                    if (seq != expandSeq) return;
+                    lineageByNumber.put(number, safe);
+                    if (row == programTableController.getSelectedItem()) {
+                        chainTableController.show(safe);
+                    }
+                });
+            } catch (Exception ignore) {
+            }
+        }, "lineage-" + number).start();
+    }
+
     public void runExecute() {
         if (!Platform.isFxApplicationThread()) {
             Platform.runLater(this::runExecute);
@@ -312,21 +366,16 @@ public class ExecutionSceneController {
                     try { Thread.sleep(Math.max(200, sr.getRetryMs())); } catch (InterruptedException ie) { return; }
                 }
 
-                // 3) POLL until terminal state
+                // 3) WAIT for the terminal state (pushed by the server, polled if the stream is unavailable)
                 ExecutionDTO result = null;
                 String errorMsg = null;
                 boolean outOfCreditsFlag = false;
 
                 while (true) {
-                    Request pollReq = ExecuteResponder.buildPollRequest(executeUrl, jobId);
-                    ExecutionPollDTO pr = ExecuteResponder.poll(pollReq);
+                    ExecutionPollDTO pr = ExecuteResponder.awaitJob(executeUrl, jobId);
                     outOfCreditsFlag = pr.isOutOfCredits();
 
                     switch (pr.getStatus()) {
-                        case PENDING:
-                        case RUNNING:
-                            try { Thread.sleep(300); } catch (InterruptedException ignore) {}
-                            continue;
                         case DONE:
                             result = pr.getResult();
                             Platform.runLater(() -> {
@@ -346,6 +395,7 @@ public class ExecutionSceneController {
                             });
                             break;
                         case TIMED_OUT:
+                            result = pr.getResult(); // paused at the time limit: what ran (and was paid) so far
                             errorMsg = "Timed out";
                             Platform.runLater(() -> {
                                 if (headerController != null)
@@ -375,12 +425,16 @@ public class ExecutionSceneController {
 
                 if (result != null) {
                     final ExecutionDTO finalResult = result;
+                    final String notice = errorMsg;
                     boolean creditsEnded = outOfCreditsFlag;
                     Platform.runLater(() -> {
                         outputsController.showExecution(finalResult);
                         if (inputsController != null) {
                             inputsController.setInputsEditable(false);
                         }
+                        if (notice != null) {
+                            showError("Execution stopped", notice + " - showing the state reached so far.");
+                        }
                         if (creditsEnded) {
                             showErrorAndExitToDashboard(
                                     "Insufficient credits",
@@ -427,6 +481,7 @@ public class ExecutionSceneController {
             debugStopRequested = false;
             debugStarted = false;
             lastDebugState = null;
+            debugTracker.reset(null);
 
             if (runOptionsController != null) runOptionsController.setDebugBtnsDisabled(true);
             if (inputsController != null) inputsController.setInputsEditable(true);
@@ -516,6 +571,7 @@ public class ExecutionSceneController {
                     }
                 }
                 lastDebugState = first; // may still be null, that's fine
+                debugTracker.reset(first);
 
                 // 3) Update UI on FX thread
                 final DebugStateDTO firstState = first;
@@ -585,7 +641,7 @@ public class ExecutionSceneController {
 
     /** Resume from current pause and behave like a regular run:
      *  - no state() polling while running (avoids starving the run)
-     *  - poll only terminated()
+     *  - wait for the pushed stop event (poll only terminated() if the stream is unavailable)
      *  - on finish, fetch one final state and update UI
      */
     public void debugResume() {
@@ -606,12 +662,18 @@ public class ExecutionSceneController {
 
         debugStopRequested = false;
 
+        // breakpoints (table context menu) and watched variables (clicked in outputs) stop the run on the server
+        final Set<Integer> breakpoints = (programTableController != null)
+                ? programTableController.getBreakpointPcs() : Set.of();
+        final List<DebugWatchDTO> watches = (outputsController != null)
+                ? toWatches(outputsController.getWatchedNames()) : List.of();
+
         resumeWatcher = new Thread(() -> {
             try {
                 // 1) send /resume (with simple retry if server is busy)
                 int attempts = 0;
                 while (attempts < 5) {
-                    DebugResults.Submit res = DebugResponder.resume(Debug.resume(id));
+                    DebugResults.Submit res = DebugResponder.resume(Debug.resume(id, breakpoints, watches));
                     if (res.accepted()) {
                         break;
                     }
@@ -623,18 +685,33 @@ public class ExecutionSceneController {
                     attempts++;
                 }
 
-                // 2) wait until server reports terminated()
+                // 2) wait until server reports terminated() or that the resume stopped
                 //    while we're waiting, remember the final creditsCurrent
                 int creditsAfterResume = -1;
                 boolean noCreditsStop = false;
+                boolean paused = false;
+                DebugStateDTO pushedState = null;
+
+                // the server pushes the stop (with the state reached); polling below only if the stream failed
+                DebugResults.Stopped pushed = DebugResponder.awaitStop(Debug.events(id));
+                if (pushed != null) {
+                    DebugResults.Terminated done = pushed.done();
+                    creditsAfterResume = done.creditsCurrent();
+                    noCreditsStop = done.outOfCredits();
+                    paused = !done.terminated() && !noCreditsStop
+                            && ("BREAKPOINT".equals(done.stopReason()) || "WATCH".equals(done.stopReason()));
+                    pushedState = pushed.state();
+                }
 
-                while (debugActive && !debugStopRequested) {
+                while (pushed == null && debugActive && !debugStopRequested) {
                     DebugResults.Terminated done =
                             DebugResponder.terminated(Debug.terminated(id));
 
-                    if (done != null && done.terminated()) {
+                    if (done != null && (done.terminated() || done.stopReason() != null)) {
                         creditsAfterResume = done.creditsCurrent();
                         noCreditsStop = done.outOfCredits(); // <--- NEW
+                        paused = !done.terminated() && !noCreditsStop
+                                && ("BREAKPOINT".equals(done.stopReason()) || "WATCH".equals(done.stopReason()));
                         break;
                     }
 
@@ -646,17 +723,38 @@ public class ExecutionSceneController {
                 }
 
                 // 3) final snapshot at the very end
-                DebugStateDTO finalState;
-                try {
-                    finalState = DebugResponder.state(Debug.state(id));
-                } catch (Exception ignore) {
-                    finalState = lastDebugState;
+                DebugStateDTO finalState = pushedState;
+                if (finalState == null) {
+                    try {
+                        finalState = DebugResponder.state(Debug.state(id));
+                    } catch (Exception ignore) {
+                        finalState = lastDebugState;
+                    }
                 }
 
                 final DebugStateDTO fs = finalState;
                 final int creditsFinal = creditsAfterResume;
                 final boolean outOfCreditsStop = noCreditsStop;
 
+                if (paused) {
+                    // stopped on a breakpoint / watch: the session goes on from here (step or resume again)
+                    lastDebugState = fs;
+                    debugTracker.reset(fs);
+                    Platform.runLater(() -> {
+                        showDebugState(fs);
+                        if (outputsController != null) {
+                            outputsController.highlightChanged(java.util.Set.of());
+                        }
+                        if (headerController != null && creditsFinal >= 0) {
+                            headerController.setAvailableCredits(creditsFinal);
+                        }
+                        if (fs != null) {
+                            selectAndScrollProgramRow(fs.getPc());
+                        }
+                    });
+                    return;
+                }
+
                 Platform.runLater(() -> {
                     // draw final state (registers, outputs, cycles...)
                     showDebugState(fs);
@@ -699,16 +797,16 @@ public class ExecutionSceneController {
         new Thread(() -> {
             try {
                 // Ask server to perform 1 debug step
-                DebugResults.StepResult result = DebugResponder.step(Debug.step(id));
+                DebugResults.StepResult result = DebugResponder.step(Debug.step(id), debugTracker);
 
                 final int creditsAfter = result.creditsCurrent();
                 final boolean terminatedNow = result.terminated();
                 final boolean noCreditsStop = result.outOfCredits();
                 final DebugStepDTO stepDto = result.step();
-                final DebugStateDTO st = (stepDto != null) ? stepDto.getNewState() : null;
+                final DebugStateDTO st = result.state();
 
-                // We detect which vars changed BEFORE we update lastDebugState
-                final Set<String> changed = diffChangedNames(lastDebugState, st);
+                // The step itself lists the vars it changed (for the red highlight)
+                final Set<String> changed = (stepDto != null) ? changedNames(stepDto.getChanged()) : Set.of();
 
                 // ===== NEW BLOCK: ran out of credits mid-debug =====
                 if (noCreditsStop) {
@@ -852,6 +950,7 @@ public class ExecutionSceneController {
                             if (outputsController != null) outputsController.highlightChanged(Set.of());
                         });
                         lastDebugState = curr;
+                        debugTracker.reset(curr);
                     }
 
                     // Termination check
@@ -1184,21 +1283,30 @@ public class ExecutionSceneController {
         return (v == VarOptionsDTO.x ? "x" : "z") + idx;
     }
 
-    /** Set of variable names that changed between two snapshots (for red highlight). */
-    private static Set<String> diffChangedNames(DebugStateDTO prev, DebugStateDTO curr) {
-        if (prev == null || curr == null) return Set.of();
-        Map<String, Long> a = toMap(prev.getVars());
-        Map<String, Long> b = toMap(curr.getVars());
-        return b.entrySet().stream()
-                .filter(e -> !a.containsKey(e.getKey()) || !a.get(e.getKey()).equals(e.getValue()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+    /** Watched variable names ("y", "x2", "z5") as watches that stop on any change. */
+    private static List<DebugWatchDTO> toWatches(Set<String> names) {
+        List<DebugWatchDTO> out = new ArrayList<>();
+        for (String name : names) {
+            if ("y".equals(name)) {
+                out.add(new DebugWatchDTO(new VarRefDTO(VarOptionsDTO.y, 0), null));
+                continue;
+            }
+            if (name.length() < 2) continue;
+            VarOptionsDTO kind = (name.charAt(0) == 'x') ? VarOptionsDTO.x
+                    : (name.charAt(0) == 'z') ? VarOptionsDTO.z : null;
+            if (kind == null) continue;
+            try {
+                out.add(new DebugWatchDTO(new VarRefDTO(kind, Integer.parseInt(name.substring(1))), null));
+            } catch (NumberFormatException ignore) { }
+        }
+        return out;
     }
 
-    private static Map<String, Long> toMap(List<VarValueDTO> vars) {
-        Map<String, Long> m = new HashMap<>();
-        if (vars != null) for (VarValueDTO v : vars) m.put(varName(v.getVar()), v.getValue());
-        return m;
+    /** Names of the variables a step changed (for red highlight). */
+    private static Set<String> changedNames(List<VarValueDTO> changed) {
+        Set<String> names = new HashSet<>();
+        for (VarValueDTO v : changed) names.add(varName(v.getVar()));
+        return names;
     }
 
     private static void parseVariablesFromArgs(String text, Set<Integer> xs, Set<Integer> zs) {
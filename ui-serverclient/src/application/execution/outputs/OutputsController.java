@@ -15,6 +15,7 @@ public class OutputsController {
     @FXML private VBox linesBox;
     @FXML private TextField txtCycles;
     private final Map<String, Label> varLabels = new HashMap<>();
+    private final Set<String> watched = new HashSet<>(); // variable names a debug resume stops on
 
     @FXML
     private void initialize() {
@@ -37,6 +38,9 @@ public class OutputsController {
             int eq = text.indexOf('=');
             if (eq > 0) varName = text.substring(0, eq).trim(); // "y", "x1", "z2"...
             line.setUserData(varName);
+            line.setUnderline(watched.contains(varName));
+            final String name = varName;
+            line.setOnMouseClicked(e -> toggleWatch(name));
             varLabels.put(varName, line);
             linesBox.getChildren().add(line);
         }
@@ -61,6 +65,21 @@ public class OutputsController {
         }
     }
 
+    /** Clicking a variable watches it (underlined); a debug resume then stops when it changes. */
+    public void toggleWatch(String varName) {
+        if (!watched.remove(varName)) {
+            watched.add(varName);
+        }
+        Label lbl = varLabels.get(varName);
+        if (lbl != null) {
+            lbl.setUnderline(watched.contains(varName));
+        }
+    }
+
+    public Set<String> getWatchedNames() {
+        return Set.copyOf(watched);
+    }
+
     public List<String> getVariableLines() {
         if (linesBox == null) return null;
         return linesBox.getChildren().stream()
@@ -15,8 +15,6 @@ import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 
-import display.ExpandDTO;
-import display.ExpandedInstructionDTO;
 import display.InstrKindDTO;
 import display.InstrOpDTO;
 import display.InstructionBodyDTO;
@@ -29,11 +27,8 @@ import types.LabelDTO;
 import types.VarRefDTO;
 
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -48,9 +43,10 @@ public class InstructionsController {
     @FXML private TableColumn<InstructionDTO, String> colGeneration;
 
     private final ObservableList<InstructionDTO> items = FXCollections.observableArrayList();
-    private final Map<Integer, ExpandedInstructionDTO> expandedByNumber = new HashMap<>();
     private static final String HILITE_CLASS = "hilite";
     private Predicate<InstructionDTO> highlightPredicate = i -> false;
+    private static final String BREAKPOINT_CLASS = "breakpoint";
+    private final Set<Integer> breakpoints = new HashSet<>(); // instruction numbers
 
     @FXML
     private void initialize() {
@@ -106,20 +102,26 @@ public class InstructionsController {
             }
         }
 
-        // Row highlight: apply CSS class "hilite" when highlightPredicate(item) == true.
+        // Row highlight: apply CSS class "hilite" when highlightPredicate(item) == true,
+        // and "breakpoint" on rows toggled from the row's context menu.
         tblInstructions.setRowFactory(new Callback<TableView<InstructionDTO>, TableRow<InstructionDTO>>() {
             @Override
             public TableRow<InstructionDTO> call(TableView<InstructionDTO> tv) {
-                return new TableRow<InstructionDTO>() {
+                TableRow<InstructionDTO> row = new TableRow<InstructionDTO>() {
                     @Override
                     protected void updateItem(InstructionDTO item, boolean empty) {
                         super.updateItem(item, empty);
                         // Always remove previous highlight before re-evaluating
                         getStyleClass().remove(InstructionsController.HILITE_CLASS);
+                        getStyleClass().remove(InstructionsController.BREAKPOINT_CLASS);
 
                         if (empty || item == null) {
+                            setContextMenu(null);
                             return;
                         }
+                        if (breakpoints.contains(item.getNumber())) {
+                            getStyleClass().add(InstructionsController.BREAKPOINT_CLASS);
+                        }
 
                         // If predicate says "highlight this row", add the CSS class
                         if (highlightPredicate != null && highlightPredicate.test(item)) {
@@ -129,6 +131,13 @@ public class InstructionsController {
                         }
                     }
                 };
+                MenuItem toggle = new MenuItem("Toggle breakpoint");
+                toggle.setOnAction(e -> {
+                    if (row.getItem() != null) toggleBreakpoint(row.getItem().getNumber());
+                });
+                ContextMenu menu = new ContextMenu(toggle);
+                row.emptyProperty().addListener((obs, was, isEmpty) -> row.setContextMenu(isEmpty ? null : menu));
+                return row;
             }
         });
 
@@ -164,35 +173,27 @@ public class InstructionsController {
         return tblInstructions;
     }
 
-    public void showExpanded(ExpandDTO dto) {
-        if (dto == null) {
-            clear();
-            return;
-        }
-        expandedByNumber.clear();
-
-        List<InstructionDTO> flat = new ArrayList<>(dto.getInstructions().size());
-        for (ExpandedInstructionDTO d : dto.getInstructions()) {
-            InstructionDTO instruction = d.getInstruction();
-            flat.add(instruction);
-            expandedByNumber.put(instruction.getNumber(), d);
-        }
-        show(flat);
-    }
-
     public void show(List<InstructionDTO> instructions) {
+        breakpoints.clear();
         items.setAll(instructions == null ? List.of() : instructions);
         tblInstructions.layout();
     }
 
+    /** Adds rows after the current ones (next page of an expansion). */
+    public void append(List<InstructionDTO> rows) {
+        if (rows == null || rows.isEmpty()) return;
+        items.addAll(rows);
+    }
+
     public void setRows(List<InstructionDTO> rows) {
+        breakpoints.clear();
         items.setAll(rows == null ? List.of() : rows);
         tblInstructions.layout();
     }
 
     public void clear() {
+        breakpoints.clear();
         items.clear();
-        expandedByNumber.clear();
     }
 
     public void hideLineColumn() {
@@ -215,43 +216,6 @@ public class InstructionsController {
         return tblInstructions.getSelectionModel().selectedItemProperty();
     }
 
-    public List<InstructionDTO> getCreatedByChainFor(InstructionDTO instr) {
-        if (instr == null) {
-            return List.of();
-        }
-        ExpandedInstructionDTO ei = expandedByNumber.get(instr.getNumber());
-        if (ei == null) {
-            return List.of();
-        }
-        List<InstructionDTO> chain = ei.getCreatedByChain();
-        if (!chain.isEmpty()) {
-            return chain;
-        }
-        return buildChainDepthFirst(ei, new LinkedHashSet<>());
-    }
-
-    private List<InstructionDTO> buildChainDepthFirst(ExpandedInstructionDTO node, Set<Integer> seen) {
-        List<InstructionDTO> out = new ArrayList<>();
-        if (node == null) {
-            return out;
-        }
-
-        for (InstructionDTO parent : node.getCreatedByChain()) {
-            if (parent == null) {
-                continue;
-            }
-            int num = parent.getNumber();
-            if (seen.add(num)) {
-                out.add(parent);
-                ExpandedInstructionDTO parentEi = expandedByNumber.get(num);
-                if (parentEi != null) {
-                    out.addAll(buildChainDepthFirst(parentEi, seen));
-                }
-            }
-        }
-        return out;
-    }
-
     private String formatLabel(LabelDTO lbl) {
         if (lbl == null) {
             return "";
@@ -317,6 +281,20 @@ public class InstructionsController {
     }
 
 
+    public void toggleBreakpoint(int number) {
+        if (!breakpoints.remove(number)) {
+            breakpoints.add(number);
+        }
+        if (tblInstructions != null) tblInstructions.refresh();
+    }
+
+    /** Breakpoints as pcs (instruction number - 1) of the shown program. */
+    public Set<Integer> getBreakpointPcs() {
+        Set<Integer> pcs = new HashSet<>();
+        for (int number : breakpoints) pcs.add(number - 1);
+        return pcs;
+    }
+
     public void setHighlightPredicate(Predicate<InstructionDTO> pred) {
         this.highlightPredicate = (pred != null) ? pred : i -> false;
         if (tblInstructions != null) tblInstructions.refresh();
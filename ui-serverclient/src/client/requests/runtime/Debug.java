@@ -2,12 +2,16 @@ package client.requests.runtime;
 
 import com.google.gson.JsonObject;
 import execution.ExecutionRequestDTO;
+import execution.debug.DebugWatchDTO;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import utils.Constants;
 import utils.JsonUtils;
 
+import java.util.Collection;
+import java.util.List;
+
 public final class Debug {
 
     private Debug() {}
@@ -85,12 +89,23 @@ public final class Debug {
 
     /** POST /api/debug/resume  (body: { debugId }) — async accept (202) / busy (429) / locked (409) */
     public static Request resume(String debugId) {
+        return resume(debugId, List.of(), List.of());
+    }
+
+    /** POST /api/debug/resume  (body: { debugId, breakpoints: pcs, watches }) — runs until one of them is hit */
+    public static Request resume(String debugId, Collection<Integer> breakpoints, List<DebugWatchDTO> watches) {
         if (debugId == null || debugId.isBlank()) {
             throw new IllegalArgumentException("debugId is required");
         }
 
         JsonObject body = new JsonObject();
         body.addProperty("debugId", debugId);
+        if (breakpoints != null && !breakpoints.isEmpty()) {
+            body.add("breakpoints", JsonUtils.GSON.toJsonTree(breakpoints));
+        }
+        if (watches != null && !watches.isEmpty()) {
+            body.add("watches", JsonUtils.GSON.toJsonTree(watches));
+        }
 
         RequestBody rb = RequestBody.create(body.toString(), Constants.MEDIA_TYPE_JSON);
 
@@ -113,6 +128,24 @@ public final class Debug {
                 .build();
     }
 
+    /** GET /api/debug/events?debugId=... → text/event-stream, one "stop" event when the running resume stops */
+    public static Request events(String debugId) {
+        if (debugId == null || debugId.isBlank()) {
+            throw new IllegalArgumentException("debugId is required");
+        }
+
+        HttpUrl url = HttpUrl.parse(Constants.BASE_URL + Constants.API_DEBUG_EVENTS)
+                .newBuilder()
+                .addQueryParameter(Constants.QP_DEBUG_ID, debugId)
+                .build();
+
+        return new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader(Constants.HEADER_ACCEPT, "text/event-stream")
+                .build();
+    }
+
     /** POST /api/debug/history (body: ExecutionRequestDTO) */
     public static Request history(ExecutionRequestDTO dto) {
         JsonObject body = JsonUtils.GSON.toJsonTree(dto).getAsJsonObject();
@@ -2,6 +2,7 @@ package client.responses.runtime;
 
 import com.google.gson.JsonObject;
 import execution.debug.DebugStateDTO;
+import execution.debug.DebugStateTracker;
 import execution.debug.DebugStepDTO;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -90,6 +91,14 @@ public final class DebugResponder {
     }
 
     public static DebugResults.StepResult step(Request req) throws Exception {
+        return step(req, null);
+    }
+
+    /**
+     * POST /api/debug/step; the step is applied to {@code tracker}, the session's state so far, and the
+     * result carries the tracked state after it (no state without a tracker).
+     */
+    public static DebugResults.StepResult step(Request req, DebugStateTracker tracker) throws Exception {
         try (Response rs = HttpClientUtil.runSync(req)) {
             String body = rs.body() != null ? rs.body().string() : "";
             int code = rs.code();
@@ -103,6 +112,9 @@ public final class DebugResponder {
             if (obj != null && obj.has("step") && !obj.get("step").isJsonNull()) {
                 stepDto = JsonUtils.GSON.fromJson(obj.get("step"), DebugStepDTO.class);
             }
+            DebugStateDTO state = (stepDto != null && tracker != null)
+                    ? tracker.apply(stepDto).current()
+                    : null;
 
             int creditsCurrent = 0;
             int creditsUsed = 0;
@@ -139,6 +151,7 @@ public final class DebugResponder {
 
             return new DebugResults.StepResult(
                     stepDto,
+                    state,
                     creditsCurrent,
                     creditsUsed,
                     terminated,
@@ -188,14 +201,51 @@ public final class DebugResponder {
                 outOfCredits = obj.get("outOfCredits").getAsBoolean();
             }
 
+            // set once a resume has finished: BREAKPOINT / WATCH / BUDGET / EXIT / INTERRUPTED
+            String stopReason = null;
+            if (obj != null && obj.has("stopReason") && !obj.get("stopReason").isJsonNull()) {
+                stopReason = obj.get("stopReason").getAsString();
+            }
+
             return new DebugResults.Terminated(
                     terminated,
                     creditsCurrent,
-                    outOfCredits
+                    outOfCredits,
+                    stopReason
             );
         }
     }
 
+    /**
+     * Waits on GET /api/debug/events for the "stop" event of the running resume.
+     * Returns null if the stream could not be opened or ended without one; the caller polls terminated() then.
+     */
+    public static DebugResults.Stopped awaitStop(Request eventsReq) {
+        DebugResults.Stopped[] stopped = new DebugResults.Stopped[1];
+        try {
+            EventStreamResponder.read(eventsReq, (event, data) -> {
+                if (!"stop".equals(event)) {
+                    return true;
+                }
+                JsonObject obj = JsonUtils.GSON.fromJson(data, JsonObject.class);
+                DebugResults.Terminated done = new DebugResults.Terminated(
+                        obj.has("terminated") && obj.get("terminated").getAsBoolean(),
+                        obj.has("creditsCurrent") ? obj.get("creditsCurrent").getAsInt() : 0,
+                        obj.has("outOfCredits") && obj.get("outOfCredits").getAsBoolean(),
+                        obj.has("stopReason") ? obj.get("stopReason").getAsString() : null
+                );
+                DebugStateDTO state = (obj.has("state") && !obj.get("state").isJsonNull())
+                        ? JsonUtils.GSON.fromJson(obj.get("state"), DebugStateDTO.class)
+                        : null;
+                stopped[0] = new DebugResults.Stopped(done, state);
+                return false;
+            });
+        } catch (Exception ignore) {
+            // no stream: caller falls back to polling
+        }
+        return stopped[0];
+    }
+
     public static DebugResults.History history(Request req) throws Exception {
         try (Response res = HttpClientUtil.runSync(req)) {
             String body = (res.body() != null) ? res.body().string() : "";
@@ -1,15 +1,15 @@
 package client.responses.runtime;
 
-// No need to import DebugStateDTO here anymore.
-
+import execution.debug.DebugStateDTO;
 import execution.debug.DebugStepDTO;
 
 public final class DebugResults {
     private DebugResults() {}
     public record Stop(boolean stopped, String debugId) {}
-    public record Terminated(boolean terminated, int creditsCurrent, boolean outOfCredits) {}
+    public record Terminated(boolean terminated, int creditsCurrent, boolean outOfCredits, String stopReason) {}
+    public record Stopped(Terminated done, DebugStateDTO state) {}
     public record History(boolean ok, int runNumber) {}
-    public record StepResult( DebugStepDTO step, int creditsCurrent, int creditsUsed, boolean terminated, boolean outOfCredits) {}
+    public record StepResult( DebugStepDTO step, DebugStateDTO state, int creditsCurrent, int creditsUsed, boolean terminated, boolean outOfCredits) {}
     public record InitResult(boolean accepted, String debugId, int retryMs, boolean locked, int creditsCurrent) {}
 
     public record Submit(boolean accepted, String debugId, int retryMs, boolean locked) {}
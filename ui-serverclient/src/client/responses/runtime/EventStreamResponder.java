@@ -0,0 +1,52 @@
+package client.responses.runtime;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+import utils.HttpClientUtil;
+
+import java.io.IOException;
+
+/** Reads a text/event-stream response (GET /api/execute/events, /api/debug/events) event by event. */
+public final class EventStreamResponder {
+
+    private EventStreamResponder() {}
+
+    public interface Handler {
+        /** @return false once the caller has what it waited for; the stream is closed then */
+        boolean onEvent(String event, String data);
+    }
+
+    /**
+     * Opens {@code req} and hands every event to {@code handler} until it returns false.
+     *
+     * @return true if the handler stopped the stream, false if the server ended it first
+     */
+    public static boolean read(Request req, Handler handler) throws IOException {
+        try (Response rs = HttpClientUtil.openStream(req)) {
+            if (rs.code() != 200 || rs.body() == null) {
+                throw new IOException("EVENTS failed: HTTP " + rs.code());
+            }
+            BufferedSource in = rs.body().source();
+            String event = "message";
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = in.readUtf8Line()) != null) {
+                if (line.isEmpty()) {
+                    // blank line ends an event; heartbeats (": ping") carry no data
+                    if (data.length() > 0 && !handler.onEvent(event, data.toString())) {
+                        return true;
+                    }
+                    event = "message";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) data.append('\n');
+                    data.append(line.substring(5).trim());
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -13,11 +13,13 @@ import okhttp3.Response;
 import utils.HttpClientUtil;
 import utils.JsonUtils;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 public class ExecuteResponder {
 
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final long LONG_POLL_WAIT_MS = 25_000L; // server caps it at 30 s
 
     // ---- SUBMIT: POST /api/execute -> jobId ----
     public static Request buildSubmitRequest(String executeEndpointUrl,
@@ -96,50 +98,117 @@ public class ExecuteResponder {
         return new Request.Builder().url(url).get().build();
     }
 
+    /** Long poll: the server answers once the job has ended or after {@code waitMs}, whichever comes first. */
+    public static Request buildPollRequest(String executeEndpointUrl, String jobId, long waitMs) {
+        HttpUrl url = HttpUrl.parse(executeEndpointUrl).newBuilder()
+                .addQueryParameter("jobId", jobId)
+                .addQueryParameter("wait", String.valueOf(waitMs))
+                .build();
+        return new Request.Builder().url(url).get().build();
+    }
+
     public static ExecutionPollDTO poll(Request getPoll) throws Exception {
-        try (Response rs = HttpClientUtil.runSyncWithTimeout(getPoll, 3, TimeUnit.SECONDS)) {
+        return poll(getPoll, 0L);
+    }
+
+    public static ExecutionPollDTO poll(Request getPoll, long waitMs) throws Exception {
+        try (Response rs = HttpClientUtil.runSyncWithTimeout(getPoll, waitMs + 3_000L, TimeUnit.MILLISECONDS)) {
             String body = rs.body() != null ? rs.body().string() : "";
             if (rs.code() < 200 || rs.code() >= 300) {
                 throw new RuntimeException("POLL failed: HTTP " + rs.code() + " | " + body);
             }
 
-            JsonObject obj = JsonUtils.GSON.fromJson(body, JsonObject.class);
-            if (obj == null || !obj.has("status")) {
-                throw new RuntimeException("POLL malformed response: " + body);
-            }
+            return toPoll(body);
+        }
+    }
 
-            // status
-            String statusStr = obj.get("status").getAsString();
-            ExecutionPollDTO.Status status;
-            try {
-                status = ExecutionPollDTO.Status.valueOf(statusStr);
-            } catch (IllegalArgumentException ex) {
-                status = ExecutionPollDTO.Status.ERROR;
-            }
+    // ---- EVENTS: GET /api/execute/events?jobId=... -> status pushes until the job ends ----
+    public static Request buildEventsRequest(String executeEndpointUrl, String jobId) {
+        HttpUrl url = HttpUrl.parse(executeEndpointUrl).newBuilder()
+                .addPathSegment("events")
+                .addQueryParameter("jobId", jobId)
+                .build();
+        return new Request.Builder().url(url).get().build();
+    }
 
-            // result (only when DONE)
-            ExecutionDTO dto = null;
-            if (status == ExecutionPollDTO.Status.DONE && obj.has("result")) {
-                JsonElement res = obj.get("result");
-                if (res != null && !res.isJsonNull()) {
-                    dto = JsonUtils.GSON.fromJson(res, ExecutionDTO.class);
+    /**
+     * Blocks until the job reaches a terminal status and returns that status (with its result).
+     * Listens on the event stream; if the stream cannot be opened or drops, long-polls instead.
+     */
+    public static ExecutionPollDTO awaitJob(String executeEndpointUrl, String jobId) throws Exception {
+        ExecutionPollDTO[] last = new ExecutionPollDTO[1];
+        try {
+            EventStreamResponder.read(buildEventsRequest(executeEndpointUrl, jobId), (event, data) -> {
+                if (!"status".equals(event)) {
+                    return true;
                 }
-            }
+                last[0] = toPoll(data);
+                return !isTerminal(last[0].getStatus());
+            });
+        } catch (IOException ignore) {
+            // no stream (older server, proxy): fall back to long polling
+        }
+        if (last[0] != null && isTerminal(last[0].getStatus())) {
+            return last[0];
+        }
 
-            // error (present on ERROR or other failure statuses)
-            String err = null;
-            if (obj.has("error") && !obj.get("error").isJsonNull()) {
-                JsonElement er = obj.get("error");
-                err = er.isJsonPrimitive() ? er.getAsString() : er.toString();
+        while (true) {
+            long asked = System.currentTimeMillis();
+            ExecutionPollDTO pr = poll(buildPollRequest(executeEndpointUrl, jobId, LONG_POLL_WAIT_MS), LONG_POLL_WAIT_MS);
+            if (isTerminal(pr.getStatus())) {
+                return pr;
+            }
+            // a server that ignores "wait" answers at once; don't hammer it
+            long took = System.currentTimeMillis() - asked;
+            if (took < 300) {
+                Thread.sleep(300 - took);
             }
+        }
+    }
+
+    private static boolean isTerminal(ExecutionPollDTO.Status status) {
+        return status != ExecutionPollDTO.Status.PENDING && status != ExecutionPollDTO.Status.RUNNING;
+    }
 
-            boolean outOfCredits = false;
-            if (obj.has("outOfCredits") && !obj.get("outOfCredits").isJsonNull()) {
-                outOfCredits = obj.get("outOfCredits").getAsBoolean();
+    // same JSON from GET /api/execute and from a "status" event
+    private static ExecutionPollDTO toPoll(String body) {
+        JsonObject obj = JsonUtils.GSON.fromJson(body, JsonObject.class);
+        if (obj == null || !obj.has("status")) {
+            throw new RuntimeException("POLL malformed response: " + body);
+        }
+
+        // status
+        String statusStr = obj.get("status").getAsString();
+        ExecutionPollDTO.Status status;
+        try {
+            status = ExecutionPollDTO.Status.valueOf(statusStr);
+        } catch (IllegalArgumentException ex) {
+            status = ExecutionPollDTO.Status.ERROR;
+        }
+
+        // result (DONE, or TIMED_OUT with the state the run reached before its time ran out)
+        ExecutionDTO dto = null;
+        if ((status == ExecutionPollDTO.Status.DONE || status == ExecutionPollDTO.Status.TIMED_OUT)
+                && obj.has("result")) {
+            JsonElement res = obj.get("result");
+            if (res != null && !res.isJsonNull()) {
+                dto = JsonUtils.GSON.fromJson(res, ExecutionDTO.class);
             }
+        }
+
+        // error (present on ERROR or other failure statuses)
+        String err = null;
+        if (obj.has("error") && !obj.get("error").isJsonNull()) {
+            JsonElement er = obj.get("error");
+            err = er.isJsonPrimitive() ? er.getAsString() : er.toString();
+        }
 
-            return new ExecutionPollDTO(status, dto, err, outOfCredits);
+        boolean outOfCredits = false;
+        if (obj.has("outOfCredits") && !obj.get("outOfCredits").isJsonNull()) {
+            outOfCredits = obj.get("outOfCredits").getAsBoolean();
         }
+
+        return new ExecutionPollDTO(status, dto, err, outOfCredits);
     }
 
     // ---- CANCEL: DELETE /api/execute?jobId=... ----
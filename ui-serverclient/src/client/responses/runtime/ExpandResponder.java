@@ -1,6 +1,9 @@
 package client.responses.runtime;
 
+import com.google.gson.reflect.TypeToken;
 import display.ExpandDTO;
+import display.ExpandPageDTO;
+import display.InstructionDTO;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -9,9 +12,13 @@ import utils.HttpClientUtil;
 import utils.JsonUtils;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
 
 public class ExpandResponder {
 
+    private static final Type CHAIN_TYPE = new TypeToken<List<InstructionDTO>>() {}.getType();
+
     // Expand for a full program (identified by its program name).
     public static ExpandDTO expandProgram(String programName, int degree) throws IOException {
         Request req = buildProgramRequest(programName, degree);
@@ -24,16 +31,76 @@ public class ExpandResponder {
         return call(req);
     }
 
+    // One window of a program's expansion (rows only, lineage is fetched per row).
+    public static ExpandPageDTO pageProgram(String programName, int degree, int offset, int limit) throws IOException {
+        return call(pageRequest("program", programName, degree, offset, limit), ExpandPageDTO.class);
+    }
+
+    // One window of a function's expansion.
+    public static ExpandPageDTO pageFunction(String functionUserString, int degree, int offset, int limit) throws IOException {
+        return call(pageRequest(Constants.JSON_FUNCTION, functionUserString, degree, offset, limit), ExpandPageDTO.class);
+    }
+
+    // Instructions expanded row 'number' (1-based) of a program came from, nearest first.
+    public static List<InstructionDTO> lineageProgram(String programName, int degree, int number) throws IOException {
+        return call(lineageRequest("program", programName, degree, number), CHAIN_TYPE);
+    }
+
+    // Same, for a function's expansion.
+    public static List<InstructionDTO> lineageFunction(String functionUserString, int degree, int number) throws IOException {
+        return call(lineageRequest(Constants.JSON_FUNCTION, functionUserString, degree, number), CHAIN_TYPE);
+    }
+
     // Shared HTTP execution logic.
     private static ExpandDTO call(Request req) throws IOException {
+        return call(req, ExpandDTO.class);
+    }
+
+    private static <T> T call(Request req, Type type) throws IOException {
         try (Response res = HttpClientUtil.runSync(req)) {
             int code = res.code();
             String body = (res.body() != null) ? res.body().string() : "";
             if (code != 200) {
                 throw new IOException("EXPAND failed: HTTP " + code + " | " + body);
             }
-            return JsonUtils.GSON.fromJson(body, ExpandDTO.class);
+            return JsonUtils.GSON.fromJson(body, type);
+        }
+    }
+
+    // Build GET /api/expand?degree=...&<target>=...&offset=...&limit=...
+    private static Request pageRequest(String targetParam, String targetValue, int degree, int offset, int limit) {
+        HttpUrl url = expandUrl(targetParam, targetValue, degree).newBuilder()
+                .addQueryParameter(Constants.QP_OFFSET, String.valueOf(offset))
+                .addQueryParameter(Constants.QP_LIMIT, String.valueOf(limit))
+                .build();
+        return get(url);
+    }
+
+    // Build GET /api/expand?degree=...&<target>=...&row=...
+    private static Request lineageRequest(String targetParam, String targetValue, int degree, int number) {
+        HttpUrl url = expandUrl(targetParam, targetValue, degree).newBuilder()
+                .addQueryParameter(Constants.QP_ROW, String.valueOf(number))
+                .build();
+        return get(url);
+    }
+
+    private static HttpUrl expandUrl(String targetParam, String targetValue, int degree) {
+        HttpUrl base = HttpUrl.parse(Constants.BASE_URL + Constants.API_EXPAND);
+        if (base == null) {
+            throw new IllegalArgumentException("Invalid BASE_URL/API_EXPAND");
         }
+        return base.newBuilder()
+                .addQueryParameter("degree", String.valueOf(degree))
+                .addQueryParameter(targetParam, targetValue)
+                .build();
+    }
+
+    private static Request get(HttpUrl url) {
+        return new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader(Constants.HEADER_ACCEPT, Constants.CONTENT_TYPE_JSON)
+                .build();
     }
 
     // Build GET /api/expand?degree=...&program=...
@@ -66,27 +66,25 @@ public class RemoteExecutionAPI implements ExecutionAPI {
                 try { Thread.sleep(Math.max(300, sr.getRetryMs())); } catch (InterruptedException ignore) {}
             }
 
-            // ---- POLL PHASE ----
-            while (true) {
-                Request pollReq = ExecuteResponder.buildPollRequest(executeUrl, jobId);
-                ExecutionPollDTO pr = ExecuteResponder.poll(pollReq);
-                switch (pr.getStatus()) {
-                    case PENDING:
-                    case RUNNING:
-                        try { Thread.sleep(300); } catch (InterruptedException ignore) {}
-                        continue;
-                    case DONE:
+            // ---- WAIT PHASE (server pushes the status; polls if the stream is unavailable) ----
+            ExecutionPollDTO pr = ExecuteResponder.awaitJob(executeUrl, jobId);
+            switch (pr.getStatus()) {
+                case DONE:
+                    return pr.getResult();
+                case CANCELED:
+                    throw new RuntimeException("Canceled");
+                case TIMED_OUT:
+                    // paused at the time limit: what ran (and was paid) so far
+                    if (pr.getResult() != null) {
                         return pr.getResult();
-                    case CANCELED:
-                        throw new RuntimeException("Canceled");
-                    case TIMED_OUT:
-                    case ERROR:
-                    default:
-                        String err = (pr.getError() == null || pr.getError().isBlank())
-                                ? "Unknown error"
-                                : pr.getError();
-                        throw new RuntimeException("Execute failed: " + err);
-                }
+                    }
+                    throw new RuntimeException("Execute failed: Timed out");
+                case ERROR:
+                default:
+                    String err = (pr.getError() == null || pr.getError().isBlank())
+                            ? "Unknown error"
+                            : pr.getError();
+                    throw new RuntimeException("Execute failed: " + err);
             }
         } catch (Exception e) {
             throw new RuntimeException("Execute failed: " + e.getMessage(), e);
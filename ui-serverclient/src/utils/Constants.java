@@ -9,6 +9,7 @@ public class Constants {
     public static final String API_STATUS   = "/api/status";
     public static final String API_EXPAND   = "/api/expand";
     public static final String API_EXECUTE  = "/api/execute";
+    public static final String API_EXECUTE_EVENTS = "/api/execute/events";
     public static final String API_FUNCTIONS= "/api/functions";
     public static final String API_HISTORY  = "/api/history";
     public static final String API_DEBUG_INIT       = "/api/debug/init";
@@ -18,6 +19,7 @@ public class Constants {
     public static final String API_DEBUG_RESUME       = "/api/debug/resume";
     public static final String API_DEBUG_HISTORY   = "/api/debug/history";
     public static final String API_DEBUG_STATE = "/api/debug/state";
+    public static final String API_DEBUG_EVENTS = "/api/debug/events";
     public static final String API_PROGRAMS= "/api/programs";
     public static final String API_PROGRAM_BY_NAME= "/api/programs/by-name";
     public static final String API_FUNCTIONS_KEYS    = "/api/functions/keys";
@@ -33,7 +35,11 @@ public class Constants {
 
     public static final String QP_DEBUG_ID   = "debugId";
     public static final String JSON_FUNCTION = "function";
+    public static final String QP_OFFSET     = "offset";
+    public static final String QP_LIMIT      = "limit";
+    public static final String QP_ROW        = "row";
 
     public static final int REFRESH_RATE_MS = 1000;
+    public static final int EXPAND_PAGE_ROWS = 2000; // rows fetched per /api/expand page
     public static final int SC_TOO_MANY_REQUESTS = 429;
 }
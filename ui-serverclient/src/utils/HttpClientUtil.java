@@ -11,6 +11,11 @@ public final class HttpClientUtil {
             new OkHttpClient.Builder()
                     .cookieJar(new SimpleCookieManager())
                     .build();
+    // same connection pool and cookies as CLIENT
+    private static final OkHttpClient STREAMING =
+            CLIENT.newBuilder()
+                    .readTimeout(0, TimeUnit.MILLISECONDS)
+                    .build();
 
     private HttpClientUtil() {}
 
@@ -24,6 +29,11 @@ public final class HttpClientUtil {
         CLIENT.newCall(req).enqueue(cb);
     }
 
+    /** For event streams: no read timeout, the server sends a heartbeat and closes the stream itself. */
+    public static Response openStream(Request req) throws IOException {
+        return STREAMING.newCall(req).execute();
+    }
+
     public static Response runSyncWithTimeout(Request req, long value, TimeUnit unit) throws IOException {
         Call call = CLIENT.newCall(req);
         call.timeout().timeout(value, unit);